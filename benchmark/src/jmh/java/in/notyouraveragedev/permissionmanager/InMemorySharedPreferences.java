@@ -0,0 +1,58 @@
+package in.notyouraveragedev.permissionmanager;
+
+import android.content.SharedPreferences;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory {@link SharedPreferences}, with edits applied to a map on commit
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+class InMemorySharedPreferences implements SharedPreferences {
+
+    private final Map<String, Object> values = new HashMap<>();
+
+    @Override
+    public synchronized Map<String, ?> getAll() {
+        return new HashMap<>(values);
+    }
+
+    @Override
+    public Editor edit() {
+        return new Editor() {
+            private final Map<String, Object> changes = new HashMap<>();
+
+            @Override
+            public Editor putBoolean(String key, boolean value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor remove(String key) {
+                changes.put(key, null);
+                return this;
+            }
+
+            @Override
+            public boolean commit() {
+                synchronized (InMemorySharedPreferences.this) {
+                    for (Map.Entry<String, Object> change : changes.entrySet()) {
+                        if (change.getValue() == null)
+                            values.remove(change.getKey());
+                        else
+                            values.put(change.getKey(), change.getValue());
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public void apply() {
+                commit();
+            }
+        };
+    }
+}
@@ -0,0 +1,55 @@
+package in.notyouraveragedev.permissionmanager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+
+import in.notyouraveragedev.permissionmanager.listener.PermissionResponseListener;
+import in.notyouraveragedev.permissionmanager.responses.PermissionResponse;
+
+/**
+ * Benchmarks of the {@link ListenerRegistry} operations, the lookup done on every delivery of results
+ * and the registration done by every PermissionManager
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+@State(Scope.Thread)
+public class ListenerRegistryBenchmark {
+
+    private final PermissionResponseListener listener = new PermissionResponseListener() {
+        @Override
+        public void singlePermissionResponse(PermissionResponse permissionResponse) {
+        }
+
+        @Override
+        public void multiplePermissionResponse(List<PermissionResponse> permissionResponses) {
+        }
+    };
+
+    private String listenerToken;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        listenerToken = ListenerRegistry.registerListener(listener);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ListenerRegistry.unregisterListener(listenerToken);
+    }
+
+    @Benchmark
+    public PermissionResponseListener getListener() {
+        return ListenerRegistry.getListener(listenerToken);
+    }
+
+    @Benchmark
+    public void registerAndUnregister() {
+        ListenerRegistry.unregisterListener(ListenerRegistry.registerListener(listener));
+    }
+}
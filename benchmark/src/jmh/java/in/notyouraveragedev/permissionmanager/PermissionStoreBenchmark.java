@@ -0,0 +1,84 @@
+package in.notyouraveragedev.permissionmanager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+/**
+ * Benchmarks of the {@link PermissionStore} operations performed by PreferenceManager during a request cycle,
+ * for both the SharedPreferences and the memory mapped stores.
+ * The write back is run on the calling thread, so {@link #markAndFlush()} includes the cost of writing the changes
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+@State(Scope.Thread)
+public class PermissionStoreBenchmark {
+
+    private static final String[] PERMISSIONS = {
+            "android.permission.CAMERA",
+            "android.permission.RECORD_AUDIO",
+            "android.permission.ACCESS_FINE_LOCATION",
+            "android.permission.READ_CONTACTS"
+    };
+
+    private static final Executor DIRECT_EXECUTOR = Runnable::run;
+
+    @Param({"sharedPreferences", "mapped"})
+    public String storeType;
+
+    private PermissionStore permissionStore;
+    private File storeFile;
+    private int cursor;
+    private boolean permanentlyDenied;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if ("mapped".equals(storeType)) {
+            storeFile = File.createTempFile("permission_history", ".bin");
+            storeFile.delete();
+            permissionStore = new MappedPermissionStore(storeFile, DIRECT_EXECUTOR);
+        } else {
+            permissionStore = new SharedPreferencesPermissionStore(new InMemorySharedPreferences(), DIRECT_EXECUTOR);
+        }
+        permissionStore.setPermanentlyDenied(PERMISSIONS[0], true);
+        permissionStore.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (storeFile != null)
+            storeFile.delete();
+    }
+
+    private String nextPermission() {
+        cursor = (cursor + 1) & (PERMISSIONS.length - 1);
+        return PERMISSIONS[cursor];
+    }
+
+    @Benchmark
+    public boolean isPermanentlyDenied() {
+        return permissionStore.isPermanentlyDenied(nextPermission());
+    }
+
+    @Benchmark
+    public void recordRequestAndResult() {
+        String permission = nextPermission();
+        permissionStore.recordRequest(permission);
+        permissionStore.recordDenied(permission, cursor);
+    }
+
+    @Benchmark
+    public void markAndFlush() {
+        permanentlyDenied = !permanentlyDenied;
+        permissionStore.setPermanentlyDenied(nextPermission(), permanentlyDenied);
+        permissionStore.flush();
+    }
+}
@@ -0,0 +1,106 @@
+package in.notyouraveragedev.permissionmanager.decision;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the decisions taken by PermissionManager on every request cycle: the classification of the
+ * requested permissions before the request and the mapping of the results once they arrive.
+ * <p>
+ * The facts are served from arrays, standing in for the Android Permission System and the permission store.
+ * The permissions cover every classification and every result outcome
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+@State(Scope.Thread)
+public class PermissionDecisionEngineBenchmark {
+
+    /**
+     * Granted, undeclared, previously denied, permanently denied and new permissions
+     */
+    private final boolean[] granted = {true, false, false, false, false};
+    private final boolean[] undeclared = {false, true, false, false, false};
+    private final boolean[] rationale = {false, false, true, false, false};
+    private final boolean[] storedPermanentlyDenied = {false, false, false, true, false};
+
+    /**
+     * The result of a permission whose request was skipped, same as the one used by PermissionManager
+     */
+    private static final int RESULT_SKIPPED = -4;
+
+    /**
+     * Results of a request covering every outcome
+     */
+    private final int[] grantResults = {
+            PermissionDecisionEngine.STATUS_GRANTED,
+            PermissionDecisionEngine.STATUS_DENIED,
+            PermissionDecisionEngine.STATUS_DENIED,
+            PermissionDecisionEngine.STATUS_PERMANENTLY_DENIED,
+            RESULT_SKIPPED
+    };
+
+    private final PermissionFacts classificationFacts = (question, index) -> {
+        switch (question) {
+            case IS_GRANTED:
+                return granted[index];
+            case IS_UNDECLARED:
+                return undeclared[index];
+            case SHOULD_SHOW_RATIONALE:
+                return rationale[index];
+            case IS_STORED_PERMANENTLY_DENIED:
+                return storedPermanentlyDenied[index];
+            default:
+                return false;
+        }
+    };
+
+    private final PermissionFacts resultFacts = (question, index) -> {
+        switch (question) {
+            case IS_SKIPPED:
+                return grantResults[index] == RESULT_SKIPPED;
+            case IS_UNDECLARED:
+                return undeclared[index];
+            case IS_RESULT_PERMANENTLY_DENIED:
+                return grantResults[index] == PermissionDecisionEngine.STATUS_PERMANENTLY_DENIED;
+            case IS_GRANTED:
+                return grantResults[index] == PermissionDecisionEngine.STATUS_GRANTED;
+            case WAS_CLASSIFIED_PERMANENTLY_DENIED:
+                return storedPermanentlyDenied[index];
+            case SHOULD_SHOW_RATIONALE:
+                return rationale[index];
+            default:
+                return false;
+        }
+    };
+
+    @Benchmark
+    public CycleAction classifyAndDecideCycle() {
+        boolean hasPreviouslyDenied = false;
+        boolean hasNew = false;
+        boolean hasPermanentlyDenied = false;
+        for (int i = 0; i < granted.length; i++) {
+            switch (PermissionDecisionEngine.classify(classificationFacts, i)) {
+                case PREVIOUSLY_DENIED:
+                    hasPreviouslyDenied = true;
+                    break;
+                case NEW:
+                    hasNew = true;
+                    break;
+                case PERMANENTLY_DENIED:
+                    hasPermanentlyDenied = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return PermissionDecisionEngine.decideCycle(hasPreviouslyDenied, hasNew, hasPermanentlyDenied);
+    }
+
+    @Benchmark
+    public void resolveResults(Blackhole blackhole) {
+        for (int i = 0; i < grantResults.length; i++)
+            blackhole.consume(PermissionDecisionEngine.resolveResult(resultFacts, i).reportedStatus);
+    }
+}
@@ -0,0 +1,26 @@
+package android.content;
+
+import java.util.Map;
+
+/**
+ * Stand-in for the Android SharedPreferences interface, limited to the members used by the library,
+ * so that the SharedPreferences backed permission store can be compiled and measured on a plain JVM.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+public interface SharedPreferences {
+
+    Map<String, ?> getAll();
+
+    Editor edit();
+
+    interface Editor {
+        Editor putBoolean(String key, boolean value);
+
+        Editor remove(String key);
+
+        boolean commit();
+
+        void apply();
+    }
+}
@@ -0,0 +1,46 @@
+package in.notyouraveragedev.permissionmanager;
+
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * {@link PermissionRequestEngine} that performs the operations from the transparent activity
+ * {@link RequestPermissionsActivity}.
+ * <p>
+ * The data passed to this activity are
+ * 1. INTENT_OPERATION: INTENT_OPERATION_REQUEST (To make permission requests) or
+ * INTENT_OPERATION_SETTINGS (To open the application info page in settings)
+ * 2. INTENT_PERMISSIONS: The permissions
+ * 3. INTENT_REQUEST_ID: The id of the request in the {@link PermissionRequestTable}
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+class ActivityRequestEngine implements PermissionRequestEngine {
+
+    /**
+     * The context from which the transparent activity is started
+     */
+    private final Context context;
+
+    ActivityRequestEngine(Context context) {
+        this.context = context;
+    }
+
+    @Override
+    public void requestPermissions(String[] permissions, int requestId) {
+        startRequestPermissionsActivity(Constants.INTENT_OPERATION_REQUEST, permissions, requestId);
+    }
+
+    @Override
+    public void openSettings(String[] permissions, int requestId) {
+        startRequestPermissionsActivity(Constants.INTENT_OPERATION_SETTINGS, permissions, requestId);
+    }
+
+    private void startRequestPermissionsActivity(String operation, String[] permissions, int requestId) {
+        Intent intent = new Intent(context, RequestPermissionsActivity.class);
+        intent.putExtra(Constants.INTENT_OPERATION, operation);
+        intent.putExtra(Constants.INTENT_PERMISSIONS, permissions);
+        intent.putExtra(Constants.INTENT_REQUEST_ID, requestId);
+        context.startActivity(intent);
+    }
+}
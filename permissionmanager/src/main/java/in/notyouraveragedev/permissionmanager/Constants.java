@@ -8,18 +8,20 @@ package in.notyouraveragedev.permissionmanager;
 class Constants {
 
     static final String PREFERENCE_NAME = "PERMISSION_CACHE";
+    static final String MAPPED_STORE_FILE_NAME = "permission_history.bin";
     
     static final int DEFAULT_REQUEST_CODE = 0;
     static final int PERMISSON_SKIPPED = -4;
+    static final long DEFAULT_COALESCING_WINDOW_MILLIS = 0;
+    static final int DEFAULT_FLIGHT_RECORDER_CAPACITY = 128;
 
     static final String INTENT_OPERATION = "OPERATION";
     static final String INTENT_OPERATION_SETTINGS = "SETTINGS";
     static final String INTENT_OPERATION_REQUEST = "PERMISSION_REQUEST";
-    static final String INTENT_CALLING_ACTIVITY = "CALLING_ACTIVITY";
 
 
     static final String INTENT_PERMISSIONS = "PERMISSIONS";
-    static final String INTENT_PERMISSION_REQUEST_CODE = "PERMISSION_REQUEST_CODE";
+    static final String INTENT_REQUEST_ID = "REQUEST_ID";
     static final String URI_SCHEME = "package";
 
 }
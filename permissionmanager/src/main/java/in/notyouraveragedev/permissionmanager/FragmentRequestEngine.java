@@ -0,0 +1,76 @@
+package in.notyouraveragedev.permissionmanager;
+
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentActivity;
+import androidx.fragment.app.FragmentManager;
+
+/**
+ * {@link PermissionRequestEngine} that performs the operations from a headless {@link PermissionRequestFragment}
+ * attached to the host activity, avoiding the start of a new activity for every request.
+ * <p>
+ * The operations fall back to the given engine when the fragment cannot be attached,
+ * i.e. when the host is not a {@link FragmentActivity} or its state has already been saved.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+class FragmentRequestEngine implements PermissionRequestEngine {
+
+    private static final String FRAGMENT_TAG = "in.notyouraveragedev.permissionmanager.PermissionRequestFragment";
+
+    /**
+     * The host activity
+     */
+    private final FragmentActivity activity;
+
+    /**
+     * The engine used when the fragment cannot be attached
+     */
+    private final PermissionRequestEngine fallbackEngine;
+
+    FragmentRequestEngine(FragmentActivity activity, PermissionRequestEngine fallbackEngine) {
+        this.activity = activity;
+        this.fallbackEngine = fallbackEngine;
+    }
+
+    @Override
+    public void requestPermissions(String[] permissions, int requestId) {
+        PermissionRequestFragment fragment = attachFragment();
+        if (fragment != null)
+            fragment.startPermissionRequest(permissions, requestId);
+        else
+            fallbackEngine.requestPermissions(permissions, requestId);
+    }
+
+    @Override
+    public void openSettings(String[] permissions, int requestId) {
+        PermissionRequestFragment fragment = attachFragment();
+        if (fragment != null)
+            fragment.startSettingsRequest(permissions, requestId);
+        else
+            fallbackEngine.openSettings(permissions, requestId);
+    }
+
+    /**
+     * Method to find the headless fragment of the host activity, adding it if it is not present
+     *
+     * @return the attached fragment, or null if the fragment cannot be attached
+     */
+    private PermissionRequestFragment attachFragment() {
+        FragmentManager fragmentManager = activity.getSupportFragmentManager();
+        if (fragmentManager.isDestroyed())
+            return null;
+
+        Fragment fragment = fragmentManager.findFragmentByTag(FRAGMENT_TAG);
+        if (fragment instanceof PermissionRequestFragment)
+            return (PermissionRequestFragment) fragment;
+
+        if (fragmentManager.isStateSaved())
+            return null;
+
+        PermissionRequestFragment permissionRequestFragment = new PermissionRequestFragment();
+        fragmentManager.beginTransaction()
+                .add(permissionRequestFragment, FRAGMENT_TAG)
+                .commitNow();
+        return permissionRequestFragment;
+    }
+}
@@ -0,0 +1,68 @@
+package in.notyouraveragedev.permissionmanager;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * {@link PermissionStore} keeping the permanently denied permissions in memory only.
+ * <p>
+ * Used by {@link PreferenceManager} when the persisted permission details could not be loaded,
+ * so that the permission requests keep working for the lifetime of the process.
+ * <p>
+ * The request history is not tracked by this store.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+class InMemoryPermissionStore implements PermissionStore {
+
+    private final Set<String> permanentlyDeniedPermissions = Collections.synchronizedSet(new HashSet<>());
+
+    @Override
+    public boolean isPermanentlyDenied(String permission) {
+        return permanentlyDeniedPermissions.contains(permission);
+    }
+
+    @Override
+    public void setPermanentlyDenied(String permission, boolean permanentlyDenied) {
+        if (permanentlyDenied)
+            permanentlyDeniedPermissions.add(permission);
+        else
+            permanentlyDeniedPermissions.remove(permission);
+    }
+
+    @Override
+    public void recordRequest(String permission) {
+        // Request history is not tracked
+    }
+
+    @Override
+    public void recordGranted(String permission, long timestamp) {
+        // Request history is not tracked
+    }
+
+    @Override
+    public void recordDenied(String permission, long timestamp) {
+        // Request history is not tracked
+    }
+
+    @Override
+    public int getRequestCount(String permission) {
+        return 0;
+    }
+
+    @Override
+    public long getLastDeniedTime(String permission) {
+        return 0;
+    }
+
+    @Override
+    public long getLastGrantedTime(String permission) {
+        return 0;
+    }
+
+    @Override
+    public void flush() {
+        // Nothing is persisted
+    }
+}
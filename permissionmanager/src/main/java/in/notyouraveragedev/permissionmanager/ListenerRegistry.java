@@ -0,0 +1,83 @@
+package in.notyouraveragedev.permissionmanager;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import in.notyouraveragedev.permissionmanager.listener.PermissionResponseListener;
+
+/**
+ * Class to keep track of the listeners registered by the {@link PermissionManager} instances.
+ * <p>
+ * Each PermissionManager registers its listener using a unique token, which is passed along with
+ * the permission requests so that the responses reach the listener of the PermissionManager that made the request.
+ * Only weak references to the listeners are held, the PermissionManager holds the strong reference,
+ * so a registered listener never keeps a destroyed activity alive. Entries are removed once the
+ * owner is destroyed, and entries whose listener has been collected are purged on every registration.
+ * <p>
+ * Created by A Anand on 21-05-2020
+ */
+class ListenerRegistry {
+
+    private static final AtomicLong tokenSequence = new AtomicLong();
+
+    private static final Map<String, WeakReference<PermissionResponseListener>> subscribedListeners = new ConcurrentHashMap<>();
+
+    private ListenerRegistry() {
+    }
+
+    /**
+     * Method to register a listener
+     *
+     * @param listener the listener
+     * @return the unique token identifying the listener
+     */
+    static String registerListener(PermissionResponseListener listener) {
+        purgeCollectedListeners();
+        String listenerToken = "PermissionManager#" + tokenSequence.incrementAndGet();
+        subscribedListeners.put(listenerToken, new WeakReference<>(listener));
+        return listenerToken;
+    }
+
+    /**
+     * Method to get a registered listener
+     *
+     * @param listenerToken the token of the listener
+     * @return the listener, or null if the listener is no longer registered
+     */
+    static PermissionResponseListener getListener(String listenerToken) {
+        if (listenerToken == null)
+            return null;
+        WeakReference<PermissionResponseListener> listenerReference = subscribedListeners.get(listenerToken);
+        return listenerReference != null ? listenerReference.get() : null;
+    }
+
+    /**
+     * Method to remove a registered listener
+     *
+     * @param listenerToken the token of the listener
+     */
+    static void unregisterListener(String listenerToken) {
+        subscribedListeners.remove(listenerToken);
+    }
+
+    /**
+     * @return the number of registered listeners
+     */
+    static int size() {
+        return subscribedListeners.size();
+    }
+
+    /**
+     * Method to remove the entries whose listeners have been garbage collected
+     */
+    private static void purgeCollectedListeners() {
+        Iterator<WeakReference<PermissionResponseListener>> iterator = subscribedListeners.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().get() == null)
+                iterator.remove();
+        }
+    }
+}
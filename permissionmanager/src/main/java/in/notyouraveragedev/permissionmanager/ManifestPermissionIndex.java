@@ -0,0 +1,158 @@
+package in.notyouraveragedev.permissionmanager;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.PermissionInfo;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import in.notyouraveragedev.permissionmanager.service.ContextCompatBackend;
+import in.notyouraveragedev.permissionmanager.service.PermissionBackend;
+import in.notyouraveragedev.permissionmanager.service.PermissionCheckerBackend;
+
+/**
+ * Index of the permissions declared in the manifest of the application, used to answer the status of
+ * permissions that never need the Android Permission System.
+ * <p>
+ * 1. Permissions that are not declared in the manifest are always denied, and requesting them
+ * never shows a prompt.
+ * <p>
+ * 2. Permissions with the normal protection level are granted at install time and are always granted.
+ * <p>
+ * The declared permissions are read once per process with a single package info lookup.
+ * The protection level of a declared permission is looked up the first time the permission is checked.
+ * If the package info is not available, no permission is answered by the index.
+ * <p>
+ * The index describes the Android Permission System itself, so it is only used with the backends shipped
+ * with the library that query the system. Any other {@link PermissionBackend} answers every permission on its own.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+class ManifestPermissionIndex {
+
+    /**
+     * Status returned for permissions that must be checked with the Android Permission System
+     */
+    static final int STATUS_UNKNOWN = Integer.MIN_VALUE;
+
+    private static volatile ManifestPermissionIndex instance;
+
+    /**
+     * Index answering no permission, used with the backends that do not query the Android Permission System
+     */
+    private static final ManifestPermissionIndex EMPTY = new ManifestPermissionIndex();
+
+    private final PackageManager packageManager;
+
+    /**
+     * The permissions declared in the manifest, or null if the package info is not available
+     */
+    private final Set<String> declaredPermissions;
+
+    /**
+     * The statuses already answered for declared permissions, {@link #STATUS_UNKNOWN} for runtime permissions
+     */
+    private final Map<String, Integer> declaredPermissionStatuses = new ConcurrentHashMap<>();
+
+    private ManifestPermissionIndex(Context context) {
+        packageManager = context.getPackageManager();
+        Set<String> permissions = null;
+        try {
+            PackageInfo packageInfo = packageManager
+                    .getPackageInfo(context.getPackageName(), PackageManager.GET_PERMISSIONS);
+            permissions = new HashSet<>();
+            if (packageInfo.requestedPermissions != null)
+                Collections.addAll(permissions, packageInfo.requestedPermissions);
+        } catch (PackageManager.NameNotFoundException ignored) {
+            // Every permission will be checked with the Android Permission System
+        }
+        declaredPermissions = permissions;
+    }
+
+    private ManifestPermissionIndex() {
+        packageManager = null;
+        declaredPermissions = null;
+    }
+
+    /**
+     * Method to get the index of the application, building it on first use
+     *
+     * @param context any context of the application
+     * @return the index
+     */
+    static ManifestPermissionIndex get(Context context) {
+        if (instance == null) {
+            synchronized (ManifestPermissionIndex.class) {
+                if (instance == null)
+                    instance = new ManifestPermissionIndex(context.getApplicationContext());
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Method to get the index to be used with a backend
+     *
+     * @param context any context of the application
+     * @param backend the backend checking the permissions
+     * @return the index of the application if the backend queries the Android Permission System,
+     * otherwise an index answering no permission
+     */
+    static ManifestPermissionIndex forBackend(Context context, PermissionBackend backend) {
+        return queriesSystem(backend) ? get(context) : EMPTY;
+    }
+
+    /**
+     * @param backend the backend
+     * @return true if the backend is one of the backends shipped with the library that query the Android Permission System
+     */
+    static boolean queriesSystem(PermissionBackend backend) {
+        Class<?> backendClass = backend.getClass();
+        return backendClass == PermissionCheckerBackend.class || backendClass == ContextCompatBackend.class;
+    }
+
+    /**
+     * Method to get the status of a permission if it can be answered without the Android Permission System
+     *
+     * @param permission the permission
+     * @return {@link PermissionManager#PERMISSION_DENIED} for undeclared permissions,
+     * {@link PermissionManager#PERMISSION_GRANTED} for normal permissions, otherwise {@link #STATUS_UNKNOWN}
+     */
+    int statusOf(String permission) {
+        if (declaredPermissions == null)
+            return STATUS_UNKNOWN;
+        if (!declaredPermissions.contains(permission))
+            return PermissionManager.PERMISSION_DENIED;
+
+        Integer status = declaredPermissionStatuses.get(permission);
+        if (status == null) {
+            status = lookUpProtectionStatus(permission);
+            declaredPermissionStatuses.put(permission, status);
+        }
+        return status;
+    }
+
+    /**
+     * @param permission the permission
+     * @return true if the permission is not declared in the manifest and can never be granted
+     */
+    boolean isUndeclared(String permission) {
+        return declaredPermissions != null && !declaredPermissions.contains(permission);
+    }
+
+    private int lookUpProtectionStatus(String permission) {
+        try {
+            PermissionInfo permissionInfo = packageManager.getPermissionInfo(permission, 0);
+            if ((permissionInfo.protectionLevel & PermissionInfo.PROTECTION_MASK_BASE) == PermissionInfo.PROTECTION_NORMAL)
+                return PermissionManager.PERMISSION_GRANTED;
+        } catch (PackageManager.NameNotFoundException ignored) {
+            // Unknown to the system, left to the Android Permission System
+        }
+        return STATUS_UNKNOWN;
+    }
+}
@@ -0,0 +1,363 @@
+package in.notyouraveragedev.permissionmanager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import in.notyouraveragedev.permissionmanager.registry.PermissionRegistry;
+
+/**
+ * {@link PermissionStore} backed by a small fixed layout binary file that is memory mapped
+ * using {@link FileChannel#map(FileChannel.MapMode, long, long)}.
+ * <p>
+ * The file consists of a header followed by fixed size records, one record per permission.
+ * <pre>
+ * Header (32 bytes)  : magic (int), version (int), record count (int), record capacity (int), flags (int), reserved
+ * Record (128 bytes) : name length (short), flags (byte), reserved (byte), request count (int),
+ *                      last denied time (long), last granted time (long), name (UTF-8, up to 104 bytes)
+ * </pre>
+ * On open, the records are indexed by the permission ids of {@link PermissionRegistry}, so every read is
+ * a direct offset into the mapped buffer without any parsing. Writes go straight to the mapped buffer
+ * and are forced to the disk on the write executor when {@link #flush()} is called.
+ * <p>
+ * Permissions whose name does not fit in a record are only tracked in memory.
+ * <p>
+ * A file whose header or records are not valid is discarded, and the store starts over with an empty file.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+class MappedPermissionStore implements PermissionStore {
+
+    private static final int MAGIC = 0x50524D48;
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 32;
+    private static final int HEADER_OFFSET_MAGIC = 0;
+    private static final int HEADER_OFFSET_VERSION = 4;
+    private static final int HEADER_OFFSET_RECORD_COUNT = 8;
+    private static final int HEADER_OFFSET_CAPACITY = 12;
+    private static final int HEADER_OFFSET_FLAGS = 16;
+
+    private static final int HEADER_FLAG_MIGRATED = 1;
+    private static final int HEADER_FLAG_LEGACY_REMOVED = 2;
+
+    private static final int RECORD_SIZE = 128;
+    private static final int RECORD_OFFSET_NAME_LENGTH = 0;
+    private static final int RECORD_OFFSET_FLAGS = 2;
+    private static final int RECORD_OFFSET_REQUEST_COUNT = 4;
+    private static final int RECORD_OFFSET_LAST_DENIED = 8;
+    private static final int RECORD_OFFSET_LAST_GRANTED = 16;
+    private static final int RECORD_OFFSET_NAME = 24;
+    private static final int MAX_NAME_LENGTH = RECORD_SIZE - RECORD_OFFSET_NAME;
+
+    private static final byte FLAG_PERMANENTLY_DENIED = 1;
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int NO_RECORD = -1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * The channel of the store file, kept open for remapping when the store grows
+     */
+    private final FileChannel fileChannel;
+
+    /**
+     * The executor on which the mapped buffer is forced to the disk
+     */
+    private final Executor writeExecutor;
+
+    /**
+     * Permanently denied permissions whose names do not fit in a record
+     */
+    private final Set<String> overflowPermanentlyDenied = new HashSet<>();
+
+    private MappedByteBuffer buffer;
+    private int recordCount;
+    private int capacity;
+
+    /**
+     * Record index of each permission, indexed by the permission id
+     */
+    private int[] recordIndices = new int[0];
+
+    /**
+     * Opens the store file, creating it if it does not exist or does not have a valid header and records
+     *
+     * @param file          the store file
+     * @param writeExecutor the executor on which the buffer is forced to the disk
+     * @throws IOException if the file could not be opened or mapped
+     */
+    MappedPermissionStore(File file, Executor writeExecutor) throws IOException {
+        this.writeExecutor = writeExecutor;
+        this.fileChannel = new RandomAccessFile(file, "rw").getChannel();
+
+        if (fileChannel.size() >= HEADER_SIZE && hasValidHeader()) {
+            capacity = buffer.getInt(HEADER_OFFSET_CAPACITY);
+            recordCount = buffer.getInt(HEADER_OFFSET_RECORD_COUNT);
+            map(capacity);
+            if (!indexRecords())
+                createEmpty();
+        } else {
+            createEmpty();
+        }
+    }
+
+    /**
+     * Method to start over with an empty store, overwriting the header of the file.
+     * The records of the previous contents are left in place and are overwritten as new records are added
+     *
+     * @throws IOException if the file could not be mapped
+     */
+    private void createEmpty() throws IOException {
+        recordIndices = new int[0];
+        capacity = INITIAL_CAPACITY;
+        recordCount = 0;
+        map(capacity);
+        buffer.putInt(HEADER_OFFSET_MAGIC, MAGIC);
+        buffer.putInt(HEADER_OFFSET_VERSION, VERSION);
+        buffer.putInt(HEADER_OFFSET_RECORD_COUNT, recordCount);
+        buffer.putInt(HEADER_OFFSET_CAPACITY, capacity);
+        buffer.putInt(HEADER_OFFSET_FLAGS, 0);
+    }
+
+    /**
+     * @return true if the permissions of the previous storage have been migrated to this store
+     */
+    synchronized boolean isMigrated() {
+        return (buffer.getInt(HEADER_OFFSET_FLAGS) & HEADER_FLAG_MIGRATED) != 0;
+    }
+
+    /**
+     * Method to import the permanently denied permissions from a previous storage.
+     * The imported permissions are forced to the disk before returning, so that the previous storage can be cleared.
+     * Must not be called on the main thread
+     *
+     * @param permanentlyDeniedPermissions the permanently denied permissions
+     */
+    synchronized void migrate(Collection<String> permanentlyDeniedPermissions) {
+        for (String permission : permanentlyDeniedPermissions)
+            setPermanentlyDenied(permission, true);
+        buffer.force();
+    }
+
+    /**
+     * Method to mark the migration from the previous storage as finished, so that it is not repeated
+     * when the store is opened again. The mark is forced to the disk before returning.
+     * Must not be called on the main thread
+     */
+    synchronized void markMigrated() {
+        setHeaderFlag(HEADER_FLAG_MIGRATED);
+    }
+
+    /**
+     * @return true if the previous storage has been cleared after the migration
+     */
+    synchronized boolean isLegacyRemoved() {
+        return (buffer.getInt(HEADER_OFFSET_FLAGS) & HEADER_FLAG_LEGACY_REMOVED) != 0;
+    }
+
+    /**
+     * Method to mark the previous storage as cleared, so that clearing it is not repeated
+     * when the store is opened again. The mark is forced to the disk before returning.
+     * Must not be called on the main thread
+     */
+    synchronized void markLegacyRemoved() {
+        setHeaderFlag(HEADER_FLAG_LEGACY_REMOVED);
+    }
+
+    private void setHeaderFlag(int flag) {
+        buffer.putInt(HEADER_OFFSET_FLAGS, buffer.getInt(HEADER_OFFSET_FLAGS) | flag);
+        buffer.force();
+    }
+
+    @Override
+    public synchronized boolean isPermanentlyDenied(String permission) {
+        int recordOffset = recordOffset(permission);
+        if (recordOffset == NO_RECORD)
+            return overflowPermanentlyDenied.contains(permission);
+        return (buffer.get(recordOffset + RECORD_OFFSET_FLAGS) & FLAG_PERMANENTLY_DENIED) != 0;
+    }
+
+    @Override
+    public synchronized void setPermanentlyDenied(String permission, boolean permanentlyDenied) {
+        int recordOffset = permanentlyDenied ? recordOffsetForWrite(permission) : recordOffset(permission);
+        if (recordOffset == NO_RECORD) {
+            if (permanentlyDenied)
+                overflowPermanentlyDenied.add(permission);
+            else
+                overflowPermanentlyDenied.remove(permission);
+            return;
+        }
+
+        byte flags = buffer.get(recordOffset + RECORD_OFFSET_FLAGS);
+        flags = (byte) (permanentlyDenied ? flags | FLAG_PERMANENTLY_DENIED : flags & ~FLAG_PERMANENTLY_DENIED);
+        buffer.put(recordOffset + RECORD_OFFSET_FLAGS, flags);
+    }
+
+    @Override
+    public synchronized void recordRequest(String permission) {
+        int recordOffset = recordOffsetForWrite(permission);
+        if (recordOffset != NO_RECORD)
+            buffer.putInt(recordOffset + RECORD_OFFSET_REQUEST_COUNT,
+                    buffer.getInt(recordOffset + RECORD_OFFSET_REQUEST_COUNT) + 1);
+    }
+
+    @Override
+    public synchronized void recordGranted(String permission, long timestamp) {
+        int recordOffset = recordOffsetForWrite(permission);
+        if (recordOffset != NO_RECORD)
+            buffer.putLong(recordOffset + RECORD_OFFSET_LAST_GRANTED, timestamp);
+    }
+
+    @Override
+    public synchronized void recordDenied(String permission, long timestamp) {
+        int recordOffset = recordOffsetForWrite(permission);
+        if (recordOffset != NO_RECORD)
+            buffer.putLong(recordOffset + RECORD_OFFSET_LAST_DENIED, timestamp);
+    }
+
+    @Override
+    public synchronized int getRequestCount(String permission) {
+        int recordOffset = recordOffset(permission);
+        return recordOffset == NO_RECORD ? 0 : buffer.getInt(recordOffset + RECORD_OFFSET_REQUEST_COUNT);
+    }
+
+    @Override
+    public synchronized long getLastDeniedTime(String permission) {
+        int recordOffset = recordOffset(permission);
+        return recordOffset == NO_RECORD ? 0 : buffer.getLong(recordOffset + RECORD_OFFSET_LAST_DENIED);
+    }
+
+    @Override
+    public synchronized long getLastGrantedTime(String permission) {
+        int recordOffset = recordOffset(permission);
+        return recordOffset == NO_RECORD ? 0 : buffer.getLong(recordOffset + RECORD_OFFSET_LAST_GRANTED);
+    }
+
+    @Override
+    public void flush() {
+        final MappedByteBuffer mappedBuffer;
+        synchronized (this) {
+            mappedBuffer = buffer;
+        }
+        writeExecutor.execute(mappedBuffer::force);
+    }
+
+    /**
+     * Method to check whether the file starts with the header of a supported version
+     *
+     * @return true if the header is valid
+     * @throws IOException if the header could not be mapped
+     */
+    private boolean hasValidHeader() throws IOException {
+        buffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        if (buffer.getInt(HEADER_OFFSET_MAGIC) != MAGIC || buffer.getInt(HEADER_OFFSET_VERSION) != VERSION)
+            return false;
+
+        int storedCapacity = buffer.getInt(HEADER_OFFSET_CAPACITY);
+        int storedRecordCount = buffer.getInt(HEADER_OFFSET_RECORD_COUNT);
+        return storedCapacity > 0 && storedRecordCount >= 0 && storedRecordCount <= storedCapacity
+                && fileChannel.size() >= HEADER_SIZE + (long) storedCapacity * RECORD_SIZE;
+    }
+
+    /**
+     * Method to map the header and the given number of records of the file
+     *
+     * @param recordCapacity the number of records to map
+     * @throws IOException if the file could not be mapped
+     */
+    private void map(int recordCapacity) throws IOException {
+        buffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) recordCapacity * RECORD_SIZE);
+    }
+
+    /**
+     * Method to index all the records of the file by their permission ids
+     *
+     * @return false if a record is not valid, in which case the file cannot be trusted
+     */
+    private boolean indexRecords() {
+        for (int recordIndex = 0; recordIndex < recordCount; recordIndex++) {
+            int recordOffset = HEADER_SIZE + recordIndex * RECORD_SIZE;
+            int nameLength = buffer.getShort(recordOffset + RECORD_OFFSET_NAME_LENGTH);
+            if (nameLength < 0 || nameLength > MAX_NAME_LENGTH)
+                return false;
+            byte[] name = new byte[nameLength];
+            for (int i = 0; i < nameLength; i++)
+                name[i] = buffer.get(recordOffset + RECORD_OFFSET_NAME + i);
+            setRecordIndex(PermissionRegistry.intern(new String(name, UTF_8)), recordIndex);
+        }
+        return true;
+    }
+
+    private void setRecordIndex(int permissionId, int recordIndex) {
+        if (permissionId >= recordIndices.length) {
+            int oldLength = recordIndices.length;
+            recordIndices = Arrays.copyOf(recordIndices, Math.max(permissionId + 1, oldLength * 2));
+            Arrays.fill(recordIndices, oldLength, recordIndices.length, NO_RECORD);
+        }
+        recordIndices[permissionId] = recordIndex;
+    }
+
+    /**
+     * Method to get the offset of the record of a permission
+     *
+     * @param permission the permission
+     * @return the offset of the record in the buffer, or {@link #NO_RECORD} if the permission has no record
+     */
+    private int recordOffset(String permission) {
+        int permissionId = PermissionRegistry.idOf(permission);
+        if (permissionId == PermissionRegistry.NO_ID || permissionId >= recordIndices.length
+                || recordIndices[permissionId] == NO_RECORD)
+            return NO_RECORD;
+        return HEADER_SIZE + recordIndices[permissionId] * RECORD_SIZE;
+    }
+
+    /**
+     * Method to get the offset of the record of a permission, appending a new record if the permission has none
+     *
+     * @param permission the permission
+     * @return the offset of the record in the buffer,
+     * or {@link #NO_RECORD} if the permission name does not fit in a record or the store could not grow
+     */
+    private int recordOffsetForWrite(String permission) {
+        int recordOffset = recordOffset(permission);
+        if (recordOffset != NO_RECORD)
+            return recordOffset;
+
+        byte[] name = permission.getBytes(UTF_8);
+        if (name.length > MAX_NAME_LENGTH)
+            return NO_RECORD;
+
+        if (recordCount == capacity) {
+            try {
+                map(capacity * 2);
+            } catch (IOException e) {
+                return NO_RECORD;
+            }
+            capacity *= 2;
+            buffer.putInt(HEADER_OFFSET_CAPACITY, capacity);
+        }
+
+        int recordIndex = recordCount;
+        recordOffset = HEADER_SIZE + recordIndex * RECORD_SIZE;
+        for (int i = 0; i < RECORD_SIZE; i++)
+            buffer.put(recordOffset + i, (byte) 0);
+        buffer.putShort(recordOffset + RECORD_OFFSET_NAME_LENGTH, (short) name.length);
+        for (int i = 0; i < name.length; i++)
+            buffer.put(recordOffset + RECORD_OFFSET_NAME + i, name[i]);
+
+        recordCount++;
+        buffer.putInt(HEADER_OFFSET_RECORD_COUNT, recordCount);
+        setRecordIndex(PermissionRegistry.intern(permission), recordIndex);
+        return recordOffset;
+    }
+}
@@ -0,0 +1,132 @@
+package in.notyouraveragedev.permissionmanager;
+
+import android.app.Activity;
+
+import in.notyouraveragedev.permissionmanager.decision.CycleAction;
+import in.notyouraveragedev.permissionmanager.decision.PermissionDecisionEngine;
+import in.notyouraveragedev.permissionmanager.decision.PermissionFacts;
+import in.notyouraveragedev.permissionmanager.decision.PermissionState;
+import in.notyouraveragedev.permissionmanager.registry.PermissionRegistry;
+import in.notyouraveragedev.permissionmanager.registry.PermissionSet;
+import in.notyouraveragedev.permissionmanager.service.PermissionBackend;
+
+/**
+ * The state of the permissions of a request cycle, computed once in a single pass before the request is made.
+ * <p>
+ * The permissions are classified by the {@link PermissionDecisionEngine}, which only asks for the rationale of
+ * permissions that are declared and not granted, and for the stored permanently denied status of permissions without
+ * a rationale. Based on these, the permissions are classified into
+ * 1. Granted Permissions
+ * 2. Denied Permissions
+ * 3. Permanently Denied Permissions
+ * 4. New Permission Requests and
+ * 5. Undeclared Permissions, which are not declared in the manifest and are never requested
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+class PermissionClassification {
+
+    /**
+     * The classified permissions and their statuses, in the order of the permissions
+     */
+    final String[] permissions;
+    final int[] permissionStatuses;
+
+    /**
+     * The state each permission has been classified into, in the order of the permissions
+     */
+    final PermissionState[] permissionStates;
+
+    final PermissionSet grantedPermissions = new PermissionSet();
+    final PermissionSet previouslyDeniedPermissions = new PermissionSet();
+    final PermissionSet permanentlyDeniedPermissions = new PermissionSet();
+    final PermissionSet newPermissionRequests = new PermissionSet();
+    final PermissionSet undeclaredPermissions = new PermissionSet();
+
+    /**
+     * Method to classify the permissions
+     *
+     * @param permissions             the permissions
+     * @param permissionStatuses      the current status of the permissions, in the order of the permissions
+     * @param activity                the activity from which the permissions will be requested
+     * @param preferenceManager       the store of the permanently denied permissions
+     * @param manifestPermissionIndex the index of the permissions declared in the manifest
+     * @param permissionBackend       the backend telling whether a rationale should be shown for a permission
+     */
+    PermissionClassification(String[] permissions, int[] permissionStatuses, Activity activity,
+                             PreferenceManager preferenceManager, ManifestPermissionIndex manifestPermissionIndex,
+                             PermissionBackend permissionBackend) {
+        this.permissions = permissions;
+        this.permissionStatuses = permissionStatuses;
+        this.permissionStates = new PermissionState[permissions.length];
+
+        PermissionFacts facts = (question, index) -> {
+            switch (question) {
+                case IS_GRANTED:
+                    return permissionStatuses[index] == PermissionManager.PERMISSION_GRANTED;
+                case IS_UNDECLARED:
+                    return manifestPermissionIndex.isUndeclared(permissions[index]);
+                case SHOULD_SHOW_RATIONALE:
+                    return permissionBackend.shouldShowRequestPermissionRationale(activity, permissions[index]);
+                case IS_STORED_PERMANENTLY_DENIED:
+                    return preferenceManager.isPermissionPreviouslyPermanentlyDenied(permissions[index]);
+                default:
+                    return false;
+            }
+        };
+
+        for (int i = 0; i < permissions.length; i++) {
+            int permissionId = PermissionRegistry.intern(permissions[i]);
+            permissionStates[i] = PermissionDecisionEngine.classify(facts, i);
+            switch (permissionStates[i]) {
+                case GRANTED:
+                    // Granted permissions need not be requested again
+                    preferenceManager.removePermissionPermanentlyDeniedStatus(permissions[i]);
+                    grantedPermissions.add(permissionId);
+                    break;
+                case UNDECLARED:
+                    undeclaredPermissions.add(permissionId);
+                    break;
+                case PREVIOUSLY_DENIED:
+                    previouslyDeniedPermissions.add(permissionId);
+                    break;
+                case PERMANENTLY_DENIED:
+                    permanentlyDeniedPermissions.add(permissionId);
+                    break;
+                case NEW:
+                    newPermissionRequests.add(permissionId);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Method to decide the action of the request cycle from the classification
+     *
+     * @return the action of the request cycle
+     */
+    CycleAction decideCycle() {
+        return PermissionDecisionEngine.decideCycle(!previouslyDeniedPermissions.isEmpty(),
+                !newPermissionRequests.isEmpty(), !permanentlyDeniedPermissions.isEmpty());
+    }
+
+    /**
+     * Method to get the results of permissions that are not requested.
+     * Granted permissions are reported as granted, undeclared permissions as denied and the others as permanently denied
+     *
+     * @param permissions the permissions not being requested
+     * @return the results of the permissions
+     */
+    int[] resolvedResults(String[] permissions) {
+        int[] results = new int[permissions.length];
+        for (int i = 0; i < permissions.length; i++) {
+            if (grantedPermissions.contains(permissions[i]))
+                results[i] = PermissionManager.PERMISSION_GRANTED;
+            else if (undeclaredPermissions.contains(permissions[i]))
+                results[i] = PermissionManager.PERMISSION_DENIED;
+            else
+                results[i] = PermissionManager.PERMISSION_PERMANENTLY_DENIED;
+        }
+        return results;
+    }
+}
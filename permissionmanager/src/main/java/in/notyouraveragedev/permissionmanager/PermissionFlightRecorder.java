@@ -0,0 +1,263 @@
+package in.notyouraveragedev.permissionmanager;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import in.notyouraveragedev.permissionmanager.decision.PermissionState;
+import in.notyouraveragedev.permissionmanager.registry.PermissionRegistry;
+
+/**
+ * Fixed-size ring buffer of the latest permission events of the application, kept for diagnostics.
+ * <p>
+ * A single recorder is shared by all the PermissionManagers of the process, see {@link #obtain(int)}, so that
+ * the history survives the destruction of activities and the results of requests adopted by a recreated activity
+ * are recorded along with the events that led to them.
+ * <p>
+ * Every event is a compact binary record of three longs in a single preallocated array
+ * 1. The wall clock time of the event in milliseconds
+ * 2. The event type, the result, the request id and the interned permission id packed together
+ * 3. The sequence number of the record, written last, telling readers that the record is complete
+ * <p>
+ * Writers claim a slot with a single atomic increment and never lock or allocate, so events can be recorded
+ * from any thread. Once the buffer is full the oldest records are overwritten, so the memory used stays
+ * the same however long the application runs. Records being overwritten while the buffer is dumped are skipped.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+class PermissionFlightRecorder {
+
+    /**
+     * The events recorded for a permission
+     */
+    enum Event {
+        /**
+         * The permission has been classified, the result is the ordinal of its {@link PermissionState}
+         */
+        CLASSIFIED,
+        RATIONALE_SHOWN,
+        /**
+         * The alert dialog has been dismissed, the result is 1 if the user continued and 0 for "Not Now"
+         */
+        RATIONALE_DISMISSED,
+        /**
+         * The permission has been requested from the Android Permission System
+         */
+        REQUESTED,
+        SETTINGS_OPENED,
+        /**
+         * The result of the request has arrived, the result is the status returned by the request
+         */
+        RESULT,
+        /**
+         * The status of the permission has been delivered to the caller, the result is the reported status
+         */
+        DELIVERED
+    }
+
+    /**
+     * Request id recorded for events that are not tied to a single request
+     */
+    static final int NO_REQUEST = 0;
+
+    private static final int LONGS_PER_RECORD = 3;
+
+    private static final int PERMISSION_ID_MASK = 0xFFFFFF;
+
+    private static final Event[] EVENTS = Event.values();
+
+    private static final PermissionState[] PERMISSION_STATES = PermissionState.values();
+
+    private static volatile PermissionFlightRecorder instance;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicLongArray records;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Constructor to create a recorder
+     *
+     * @param capacity the number of events to keep, rounded up to a power of two
+     */
+    PermissionFlightRecorder(int capacity) {
+        int size = roundCapacity(capacity);
+        this.capacity = size;
+        this.mask = size - 1;
+        this.records = new AtomicLongArray(size * LONGS_PER_RECORD);
+    }
+
+    /**
+     * Method to round a capacity up to the power of two kept by a recorder
+     *
+     * @param capacity the number of events requested
+     * @return the number of events a recorder created with this capacity keeps
+     */
+    static int roundCapacity(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity));
+        return size < capacity ? size << 1 : size;
+    }
+
+    /**
+     * Method to get the recorder of the process, creating it on first use.
+     * The capacity is set by the first PermissionManager enabling the recorder, later ones get the same recorder
+     * whatever their capacity, compare it with {@link #roundCapacity(int)} to detect a mismatch
+     *
+     * @param capacity the number of events to keep, if the recorder has not been created yet
+     * @return the recorder
+     */
+    static PermissionFlightRecorder obtain(int capacity) {
+        if (instance == null) {
+            synchronized (PermissionFlightRecorder.class) {
+                if (instance == null)
+                    instance = new PermissionFlightRecorder(capacity);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @return the number of events kept
+     */
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of events recorded since the recorder was created, including overwritten ones
+     */
+    long getRecordedCount() {
+        return sequence.get();
+    }
+
+    /**
+     * Method to record an event of a permission
+     *
+     * @param event        the event
+     * @param requestId    the id of the request, or {@link #NO_REQUEST}
+     * @param permissionId the interned id of the permission
+     * @param result       the result of the event
+     */
+    void record(Event event, int requestId, int permissionId, int result) {
+        long recordSequence = sequence.getAndIncrement();
+        int base = (int) (recordSequence & mask) * LONGS_PER_RECORD;
+        // Invalidating the slot before overwriting it, so that readers never see a half written record
+        records.set(base + 2, 0);
+        records.set(base, System.currentTimeMillis());
+        records.set(base + 1, pack(event, requestId, permissionId, result));
+        records.lazySet(base + 2, recordSequence + 1);
+    }
+
+    /**
+     * Method to record an event for each of the permissions
+     *
+     * @param event       the event
+     * @param requestId   the id of the request, or {@link #NO_REQUEST}
+     * @param permissions the permissions
+     * @param results     the result of each of the permissions, or null if the event has no result
+     */
+    void record(Event event, int requestId, String[] permissions, int[] results) {
+        for (int i = 0; i < permissions.length; i++)
+            record(event, requestId, PermissionRegistry.idOf(permissions[i]), results != null ? results[i] : 0);
+    }
+
+    /**
+     * Method to write the recorded events to a file, oldest first, replacing its contents
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be written
+     */
+    void dump(File file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
+            dump(writer);
+            if (writer.checkError())
+                throw new IOException("Unable to write " + file);
+        }
+    }
+
+    /**
+     * Method to write the recorded events, oldest first, one line per event
+     *
+     * @param writer the writer
+     */
+    void dump(PrintWriter writer) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        long end = sequence.get();
+        long start = Math.max(0, end - capacity);
+        writer.println("PermissionManager flight recorder: " + (end - start) + " of " + end + " events");
+        for (long recordSequence = start; recordSequence < end; recordSequence++) {
+            int base = (int) (recordSequence & mask) * LONGS_PER_RECORD;
+            if (records.get(base + 2) != recordSequence + 1)
+                continue;
+            long time = records.get(base);
+            long packed = records.get(base + 1);
+            // The record has been overwritten while it was being read
+            if (records.get(base + 2) != recordSequence + 1)
+                continue;
+
+            Event event = EVENTS[(int) ((packed >>> 16) & 0xFF)];
+            int requestId = (int) ((packed >>> 24) & 0xFFFF);
+            int permissionId = (int) (packed >>> 40) & PERMISSION_ID_MASK;
+            int result = (short) packed;
+
+            writer.print(dateFormat.format(new Date(time)));
+            writer.print(' ');
+            writer.print(event);
+            writer.print(' ');
+            writer.print(permissionId == PERMISSION_ID_MASK ? "?" : PermissionRegistry.nameOf(permissionId));
+            String resultName = describeResult(event, result);
+            if (resultName != null) {
+                writer.print(' ');
+                writer.print(resultName);
+            }
+            if (requestId != NO_REQUEST) {
+                writer.print(" request=");
+                writer.print(requestId);
+            }
+            writer.println();
+        }
+        writer.flush();
+    }
+
+    private static long pack(Event event, int requestId, int permissionId, int result) {
+        return ((long) (permissionId & PERMISSION_ID_MASK) << 40)
+                | ((long) (requestId & 0xFFFF) << 24)
+                | ((long) event.ordinal() << 16)
+                | (result & 0xFFFF);
+    }
+
+    private static String describeResult(Event event, int result) {
+        switch (event) {
+            case CLASSIFIED:
+                return result >= 0 && result < PERMISSION_STATES.length ? PERMISSION_STATES[result].name() : null;
+            case RATIONALE_DISMISSED:
+                return result != 0 ? "CONTINUED" : "NOT_NOW";
+            case RESULT:
+            case DELIVERED:
+                return describeStatus(result);
+            default:
+                return null;
+        }
+    }
+
+    private static String describeStatus(int status) {
+        switch (status) {
+            case PermissionManager.PERMISSION_GRANTED:
+                return "GRANTED";
+            case PermissionManager.PERMISSION_DENIED:
+                return "DENIED";
+            case PermissionManager.PERMISSION_PERMANENTLY_DENIED:
+                return "PERMANENTLY_DENIED";
+            case Constants.PERMISSON_SKIPPED:
+                return "SKIPPED";
+            default:
+                return String.valueOf(status);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package in.notyouraveragedev.permissionmanager;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The pending result of an asynchronous permission request made using
+ * {@link PermissionManager#requestPermissionsAsync(Executor, String...)}.
+ * <p>
+ * Callbacks can be chained using {@link #whenComplete(Callback)} and {@link #thenApply(Function)},
+ * and are run on the executor given when the request was made, unless another executor is specified.
+ * A timeout can be set using {@link #orTimeout(long, TimeUnit)}.
+ * <p>
+ * Cancelling the future, or the future timing out, cancels the request: a queued request is dropped,
+ * and the alert dialog, snackbar or transparent activity of the request is torn down
+ * unless other callers are waiting for the same request.
+ * <p>
+ * The results are delivered from the main thread, so {@link #get()} must not be called on the main thread.
+ *
+ * @param <T> the type of the result
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+public class PermissionFuture<T> implements Future<T> {
+
+    /**
+     * Callback receiving either the result or the error of a future
+     *
+     * @param <T> the type of the result
+     */
+    public interface Callback<T> {
+        void onComplete(T result, Throwable error);
+    }
+
+    /**
+     * Function transforming the result of a future
+     *
+     * @param <T> the type of the result
+     * @param <R> the type of the transformed result
+     */
+    public interface Function<T, R> {
+        R apply(T result) throws Exception;
+    }
+
+    /**
+     * The executor on which callbacks are run by default
+     */
+    private final Executor executor;
+
+    private final Object lock = new Object();
+    private boolean done;
+    private T result;
+    private Throwable error;
+    private List<Runnable> completionActions = new ArrayList<>();
+
+    /**
+     * Tears down the request, run if the future is cancelled or times out
+     */
+    private volatile Runnable canceller;
+
+    PermissionFuture(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Method to complete the future with a result
+     *
+     * @param result the result
+     * @return true if the future has been completed by this call
+     */
+    boolean complete(T result) {
+        return completeWith(result, null);
+    }
+
+    /**
+     * Method to complete the future with an error
+     *
+     * @param error the error
+     * @return true if the future has been completed by this call
+     */
+    boolean completeExceptionally(Throwable error) {
+        return completeWith(null, error);
+    }
+
+    void setCanceller(Runnable canceller) {
+        this.canceller = canceller;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!completeWith(null, new CancellationException("Permission request cancelled")))
+            return false;
+        runCanceller();
+        return true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        synchronized (lock) {
+            return done && error instanceof CancellationException;
+        }
+    }
+
+    @Override
+    public boolean isDone() {
+        synchronized (lock) {
+            return done;
+        }
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        synchronized (lock) {
+            while (!done)
+                lock.wait();
+            return report();
+        }
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (lock) {
+            while (!done) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0)
+                    throw new TimeoutException();
+                TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+            }
+            return report();
+        }
+    }
+
+    /**
+     * Method to run a callback once the future completes, on the default executor of the future
+     *
+     * @param callback the callback
+     * @return this future
+     */
+    public PermissionFuture<T> whenComplete(Callback<? super T> callback) {
+        return whenComplete(executor, callback);
+    }
+
+    /**
+     * Method to run a callback once the future completes
+     *
+     * @param executor the executor on which the callback is run
+     * @param callback the callback
+     * @return this future
+     */
+    public PermissionFuture<T> whenComplete(Executor executor, Callback<? super T> callback) {
+        addCompletionAction(() -> executor.execute(() -> callback.onComplete(result, error)));
+        return this;
+    }
+
+    /**
+     * Method to transform the result of the future, on the default executor of the future.
+     * Cancelling the returned future cancels this future
+     *
+     * @param function the function transforming the result
+     * @param <R>      the type of the transformed result
+     * @return a future completing with the transformed result
+     */
+    public <R> PermissionFuture<R> thenApply(Function<? super T, ? extends R> function) {
+        return thenApply(executor, function);
+    }
+
+    /**
+     * Method to transform the result of the future.
+     * Cancelling the returned future cancels this future
+     *
+     * @param executor the executor on which the function is run
+     * @param function the function transforming the result
+     * @param <R>      the type of the transformed result
+     * @return a future completing with the transformed result
+     */
+    public <R> PermissionFuture<R> thenApply(Executor executor, Function<? super T, ? extends R> function) {
+        PermissionFuture<R> dependent = new PermissionFuture<>(executor);
+        dependent.setCanceller(() -> cancel(false));
+        whenComplete(executor, (result, error) -> {
+            if (error != null) {
+                dependent.completeExceptionally(error);
+                return;
+            }
+            try {
+                dependent.complete(function.apply(result));
+            } catch (Exception e) {
+                dependent.completeExceptionally(e);
+            }
+        });
+        return dependent;
+    }
+
+    /**
+     * Method to fail the future with a {@link TimeoutException} if it does not complete within the given time.
+     * The request is cancelled when the future times out
+     *
+     * @param timeout the time to wait
+     * @param unit    the unit of the time to wait
+     * @return this future
+     */
+    public PermissionFuture<T> orTimeout(long timeout, TimeUnit unit) {
+        Runnable timeoutAction = () -> {
+            if (completeExceptionally(new TimeoutException("Permission request timed out")))
+                runCanceller();
+        };
+        Handler timeoutHandler = TimeoutHandlerHolder.timeoutHandler;
+        timeoutHandler.postDelayed(timeoutAction, unit.toMillis(timeout));
+        addCompletionAction(() -> timeoutHandler.removeCallbacks(timeoutAction));
+        return this;
+    }
+
+    private boolean completeWith(T result, Throwable error) {
+        List<Runnable> actions;
+        synchronized (lock) {
+            if (done)
+                return false;
+            this.result = result;
+            this.error = error;
+            this.done = true;
+            actions = completionActions;
+            completionActions = null;
+            lock.notifyAll();
+        }
+        for (Runnable action : actions)
+            action.run();
+        return true;
+    }
+
+    private void addCompletionAction(Runnable action) {
+        synchronized (lock) {
+            if (!done) {
+                completionActions.add(action);
+                return;
+            }
+        }
+        action.run();
+    }
+
+    private void runCanceller() {
+        Runnable canceller = this.canceller;
+        this.canceller = null;
+        if (canceller != null)
+            canceller.run();
+    }
+
+    private T report() throws ExecutionException {
+        if (error instanceof CancellationException)
+            throw (CancellationException) error;
+        if (error != null)
+            throw new ExecutionException(error);
+        return result;
+    }
+
+    /**
+     * Holder of the handler of the timeouts, created on the first timeout instead of when the class is loaded
+     */
+    private static class TimeoutHandlerHolder {
+        private static final Handler timeoutHandler = new Handler(Looper.getMainLooper());
+    }
+}
@@ -1,34 +1,50 @@
 package in.notyouraveragedev.permissionmanager;
 
 import android.app.Activity;
-import android.app.Dialog;
+import android.app.Application;
 import android.content.Context;
-import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.graphics.Color;
-import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
 import android.os.Build;
-import android.view.LayoutInflater;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 import android.view.View;
-import android.view.ViewGroup;
-import android.widget.ImageView;
-import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.fragment.app.FragmentActivity;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
 import com.google.android.material.snackbar.BaseTransientBottomBar;
 import com.google.android.material.snackbar.Snackbar;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import in.notyouraveragedev.permissionmanager.decision.CycleAction;
+import in.notyouraveragedev.permissionmanager.decision.PermissionDecisionEngine;
+import in.notyouraveragedev.permissionmanager.decision.PermissionFacts;
+import in.notyouraveragedev.permissionmanager.decision.ResultOutcome;
 import in.notyouraveragedev.permissionmanager.listener.InternalPermissionListener;
 import in.notyouraveragedev.permissionmanager.listener.PermissionResponseListener;
+import in.notyouraveragedev.permissionmanager.listener.PermissionStatusObserver;
+import in.notyouraveragedev.permissionmanager.metrics.PermissionMetrics;
+import in.notyouraveragedev.permissionmanager.registry.PermissionRegistry;
+import in.notyouraveragedev.permissionmanager.registry.PermissionSet;
 import in.notyouraveragedev.permissionmanager.responses.PermissionResponse;
-import in.notyouraveragedev.permissionmanager.service.PermissionService;
+import in.notyouraveragedev.permissionmanager.responses.PermissionResults;
+import in.notyouraveragedev.permissionmanager.service.PermissionBackend;
 import in.notyouraveragedev.permissionmanager.util.Utility;
 
 /**
@@ -49,6 +65,9 @@ import in.notyouraveragedev.permissionmanager.util.Utility;
  * <p>
  * All the permission statuses will be shared with calling activity as a {@link PermissionResponse}.
  * <p>
+ * Requests made within a short window of each other are merged into a single request, and requests for permissions
+ * that are already being requested are attached to the request in flight. The results are sent to every caller.
+ * <p>
  * Created by A Anand on 17-05-2020
  */
 public class PermissionManager {
@@ -65,11 +84,6 @@ public class PermissionManager {
      */
     private static final int SINGLE_PERMISSION_REQUEST_CODE = 1001;
     private static final int MULTIPLE_PERMISSION_REQUEST_CODE = 1002;
-    /**
-     * The InternalPermissionListener used to get used permission choices from the
-     * transparent activity to PermissionManager.
-     */
-    static InternalPermissionListener internalPermissionListener;
     /**
      * The context of the activity from which PermissionManager was created
      */
@@ -85,6 +99,143 @@ public class PermissionManager {
      */
     private View snackBarContainer;
 
+    /**
+     * The listener to which the permission responses are sent
+     */
+    private PermissionResponseListener permissionResponseListener;
+
+    /**
+     * The token identifying the listener in the {@link ListenerRegistry}
+     */
+    private String listenerToken;
+
+    /**
+     * Whether the statuses of multiple permissions are to be checked using a single package info lookup
+     */
+    private boolean batchPermissionQuery;
+
+    /**
+     * The backend used to check, explain and request permissions
+     */
+    private PermissionBackend permissionBackend;
+
+    /**
+     * The collector of the events of the request cycles, null if none
+     */
+    private PermissionMetrics permissionMetrics;
+
+    /**
+     * The trace of the stages of the permission requests, see {@link PermissionTrace}
+     */
+    private PermissionTrace permissionTrace;
+
+    /**
+     * The latest permission events kept for diagnostics, null if the flight recorder has been disabled
+     */
+    private PermissionFlightRecorder flightRecorder;
+
+    /**
+     * The engine used to make permission requests and to open the application info page
+     */
+    private PermissionRequestEngine permissionRequestEngine;
+
+    /**
+     * The key identifying the host activity across configuration changes,
+     * null if the host activity cannot be identified once recreated
+     */
+    private String ownerKey;
+
+    /**
+     * The window in milliseconds within which consecutive permission requests are merged
+     */
+    private long requestCoalescingWindow;
+
+    /**
+     * The requests waiting for the coalescing window to close, along with the message of the first of them
+     */
+    private final List<RequestWaiter> pendingWaiters = new ArrayList<>();
+    private String pendingRequestMessage;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable pendingRequestsFlusher = this::flushPendingRequests;
+
+    /**
+     * The permissions classified as permanently denied by request cycles whose results have not been resolved yet
+     */
+    private final PermissionSet classifiedPermanentlyDenied = new PermissionSet();
+
+    /**
+     * The index of the permissions declared in the manifest, obtained on first use.
+     * Answers no permission unless the backend queries the Android Permission System
+     */
+    private ManifestPermissionIndex manifestPermissionIndex;
+
+    /**
+     * The pending asynchronous requests along with the listeners completing them. Accessed on the main thread only
+     */
+    private final Map<PermissionFuture<PermissionResults>, InternalPermissionListener> pendingFutures = new HashMap<>();
+
+    /**
+     * The reusable alert dialog explaining why previously denied permissions are needed
+     */
+    private RationaleDialog rationaleDialog;
+
+    /**
+     * Cache of permission statuses, valid until the host activity is resumed
+     * or a permission request round trip finishes.
+     * If the {@link PermissionManagerCore} has been installed, the cache is shared by all the PermissionManagers
+     * using the same kind of backend and is valid until the application returns from background
+     */
+    private PermissionStatusCache permissionStatusCache;
+
+    /**
+     * The InternalPermissionListener used to get user permission choices from the
+     * transparent activity to this PermissionManager. Requests made by this PermissionManager
+     * are registered in the {@link PermissionRequestTable} with this listener.
+     */
+    private final InternalPermissionListener internalListener = this::notifyActivity;
+
+    /**
+     * The observers of permission status changes
+     */
+    private final PermissionStatusObservers permissionStatusObservers =
+            new PermissionStatusObservers(this::checkPermissionStatuses);
+
+    /**
+     * Observer of the host activity lifecycle
+     */
+    private final LifecycleEventObserver hostLifecycleObserver = (source, event) -> {
+        if (event == Lifecycle.Event.ON_RESUME) {
+            permissionStatusCache.invalidate();
+            permissionStatusObservers.refresh();
+        } else if (event == Lifecycle.Event.ON_PAUSE)
+            preferenceManager.flush();
+        else if (event == Lifecycle.Event.ON_DESTROY) {
+            source.getLifecycle().removeObserver(this.hostLifecycleObserver);
+            onHostDestroyed(this.context instanceof Activity && ((Activity) this.context).isChangingConfigurations());
+        }
+    };
+
+    /**
+     * Callbacks of the host activity lifecycle, used when the {@link PermissionManagerCore} has been installed
+     */
+    private final PermissionManagerCore.Host coreHost = new PermissionManagerCore.Host() {
+        @Override
+        public void onHostResumed() {
+            permissionStatusObservers.refresh();
+        }
+
+        @Override
+        public void onHostPaused() {
+            preferenceManager.flush();
+        }
+
+        @Override
+        public void onHostDestroyed(boolean changingConfigurations) {
+            PermissionManager.this.onHostDestroyed(changingConfigurations);
+        }
+    };
+
     /**
      * Constructor to create a PermissionManager using the used selections from {@link PermissionManagerBuilder}
      *
@@ -92,16 +243,34 @@ public class PermissionManager {
      */
     PermissionManager(PermissionManagerBuilder permissionManagerBuilder) {
         this.context = permissionManagerBuilder.getContext();
-        preferenceManager = new PreferenceManager(this.context);
+        // The persisted permission details are loaded in the background, building never touches the disk
+        permissionTrace = PermissionTrace.of(permissionManagerBuilder.isPermissionTracingEnabled());
+        preferenceManager = new PreferenceManager(this.context, permissionManagerBuilder.isMappedPermissionStoreEnabled(),
+                permissionTrace);
+        /*
+         * Registering the response Listener.
+         * The registry only holds a weak reference, the strong reference is held by this PermissionManager
+         */
+        permissionResponseListener = permissionManagerBuilder.getPermissionResponseListener();
+        listenerToken = ListenerRegistry.registerListener(permissionResponseListener);
         /*
-         * Registering the response Listener
+         * Taking over the requests left in flight by the previous instance of the activity,
+         * if the activity has been recreated due to a configuration change.
+         * The instance is identified by a retained headless fragment, which only FragmentActivities can hold
          */
-        StaticKeeper.registerListener(this.context.getClass().getSimpleName(),
-                permissionManagerBuilder.getPermissionResponseListener());
+        if (this.context instanceof FragmentActivity)
+            ownerKey = PermissionOwnerFragment.getOwnerKey((FragmentActivity) this.context);
+        if (ownerKey != null)
+            PermissionRequestTable.adopt(ownerKey, internalListener, listenerToken);
+        requestCoalescingWindow = permissionManagerBuilder.getRequestCoalescingWindow();
         /*
-         * Listener used to get user choices from transparent activity
+         * The alert dialog is created the first time it is needed,
+         * or once the main thread is idle if pre-warming has been enabled
          */
-        initializeInternalPermissionListener();
+        rationaleDialog = new RationaleDialog(this.context);
+        if (permissionManagerBuilder.isRationaleDialogPrewarmEnabled() && this.context instanceof Activity
+                && Looper.myLooper() == Looper.getMainLooper())
+            rationaleDialog.prewarm();
         /*
          * The view for snackbar to find a parent.
          * If the view the provided then snackbar will be used to open
@@ -110,6 +279,90 @@ public class PermissionManager {
          *
          */
         snackBarContainer = permissionManagerBuilder.getSnackBarContainer();
+        batchPermissionQuery = permissionManagerBuilder.isBatchPermissionQueryEnabled();
+        permissionBackend = permissionManagerBuilder.getPermissionBackend();
+        permissionMetrics = permissionManagerBuilder.getPermissionMetrics();
+        int flightRecorderCapacity = permissionManagerBuilder.getFlightRecorderCapacity();
+        if (flightRecorderCapacity > 0) {
+            flightRecorder = PermissionFlightRecorder.obtain(flightRecorderCapacity);
+            if (flightRecorder.getCapacity() != PermissionFlightRecorder.roundCapacity(flightRecorderCapacity))
+                Log.w("Permission Manager", "The flight recorder is shared and already keeps "
+                        + flightRecorder.getCapacity() + " events, ignoring the capacity of " + flightRecorderCapacity);
+        }
+        /*
+         * Requests are made from the transparent activity unless headless fragment requests have been enabled.
+         * The transparent activity remains the fallback whenever the headless fragment cannot be used
+         */
+        PermissionRequestEngine activityRequestEngine = new ActivityRequestEngine(this.context);
+        if (permissionManagerBuilder.isHeadlessFragmentRequestsEnabled() && this.context instanceof FragmentActivity)
+            permissionRequestEngine = new FragmentRequestEngine((FragmentActivity) this.context, activityRequestEngine);
+        else
+            permissionRequestEngine = activityRequestEngine;
+        /*
+         * If the core has been installed, this PermissionManager uses the cached statuses shared by the core,
+         * and is told about the lifecycle of its activity by the core.
+         *
+         * Otherwise, permissions can be changed from settings while the activity is in background,
+         * so the cached statuses are dropped whenever the host activity is resumed.
+         * In both cases pending preference changes are written back when the host activity is paused
+         * and the listener is unregistered once the host activity is destroyed
+         */
+        PermissionManagerCore core = PermissionManagerCore.get();
+        if (core != null && this.context instanceof Activity) {
+            permissionStatusCache = core.getPermissionStatusCache(permissionBackend);
+            core.bind((Activity) this.context, coreHost);
+        } else {
+            permissionStatusCache = new PermissionStatusCache();
+            if (this.context instanceof LifecycleOwner)
+                ((LifecycleOwner) this.context).getLifecycle().addObserver(hostLifecycleObserver);
+        }
+    }
+
+    /**
+     * Method to install the process-wide core shared by all the PermissionManagers.
+     * Should be called once from Application.onCreate().
+     * <p>
+     * Once installed, PermissionManagers built for activities share the cached permission statuses,
+     * so that a status learned in one screen is reused in every other screen, and the lifecycle of their activity
+     * is tracked by the core instead of by a lifecycle observer per PermissionManager.
+     * The persisted permission details start loading in the background.
+     * <p>
+     * Installing the core changes when the cached statuses are dropped. Without the core, the cache of each
+     * PermissionManager is invalidated every time its activity is resumed. With the core, the shared cache is only
+     * invalidated when the application returns to the foreground, as statuses can only change outside of a request
+     * while the application is in background. Resuming an activity of an application in foreground,
+     * e.g. when navigating back to it, keeps the cached statuses. In both modes the cache is invalidated
+     * once the results of a request arrive.
+     *
+     * @param application the application
+     */
+    public static void install(Application application) {
+        PermissionManagerCore.install(application);
+        PreferenceManager.load(application, false);
+    }
+
+    /**
+     * Method to start loading the persisted permission details in the background ahead of time,
+     * for example from Application.onCreate(), so that they are ready by the time a permission is requested.
+     * <p>
+     * Building a PermissionManager never waits for these details, they are only awaited
+     * by the first permission request that needs them.
+     *
+     * @param context any context of the application
+     */
+    public static void prewarm(Context context) {
+        PreferenceManager.load(context, false);
+    }
+
+    /**
+     * Method to start loading the persisted permission details in the background ahead of time.
+     * Similar to {@link PermissionManager#prewarm(Context)}, for PermissionManagers built with the mapped permission store
+     *
+     * @param context               any context of the application
+     * @param mappedPermissionStore whether the mapped permission store is used
+     */
+    public static void prewarm(Context context, boolean mappedPermissionStore) {
+        PreferenceManager.load(context, mappedPermissionStore);
     }
 
     /**
@@ -120,7 +373,7 @@ public class PermissionManager {
      * @return true if the permission has been granted, else false
      */
     public boolean hasPermission(String permission) {
-        return PermissionService.checkSelfPermission(this.context, permission) == PackageManager.PERMISSION_GRANTED;
+        return checkPermissionStatus(permission) == PackageManager.PERMISSION_GRANTED;
     }
 
     /**
@@ -137,24 +390,73 @@ public class PermissionManager {
      * @return a list of {@link PermissionResponse}
      */
     public List<PermissionResponse> hasPermissions(String... permissions) {
+        int[] permissionStatuses = checkPermissionStatuses(permissions);
         // For Nougat and above Streams can be used
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
-            return Arrays.stream(permissions)
-                    .map(permission -> new PermissionResponse(
-                            permission,
-                            PermissionService.checkSelfPermission(this.context, permission)))
+            return IntStream.range(0, permissions.length)
+                    .mapToObj(i -> new PermissionResponse(permissions[i], permissionStatuses[i]))
                     .collect(Collectors.toList());
         } else {
             List<PermissionResponse> returnResponse = new ArrayList<>();
 
-            for (String permission : permissions) {
-                returnResponse.add(new PermissionResponse(
-                        permission, PermissionService.checkSelfPermission(this.context, permission)));
+            for (int i = 0; i < permissions.length; i++) {
+                returnResponse.add(new PermissionResponse(permissions[i], permissionStatuses[i]));
             }
             return returnResponse;
         }
     }
 
+    /**
+     * Method checks the status of a set of permissions.
+     * Similar to {@link PermissionManager#hasPermissions(String...)} the result will be returned
+     * as a {@link List<PermissionResponse>}, ordered by the permission ids of the {@link PermissionSet}
+     *
+     * @param permissions the permissions whose current status needs to be checked
+     * @return a list of {@link PermissionResponse}
+     */
+    public List<PermissionResponse> hasPermissions(PermissionSet permissions) {
+        return hasPermissions(permissions.toArray());
+    }
+
+    /**
+     * Method to observe the status of permissions.
+     * The observer is notified with the current status of all the permissions when it is added.
+     * Afterwards the permissions are checked again whenever the host activity is resumed and whenever
+     * a permission request finishes, and the observer is notified of only the permissions whose status has changed.
+     * <p>
+     * All the observed permissions of this PermissionManager are checked together, once per check,
+     * however many observers there are. Observers are removed once the host activity is destroyed.
+     *
+     * @param permissions the permissions to observe
+     * @param executor    the executor on which the observer is notified
+     * @param observer    the observer
+     */
+    public void observe(String[] permissions, Executor executor, PermissionStatusObserver observer) {
+        permissionStatusObservers.add(permissions, executor, observer);
+    }
+
+    /**
+     * Method to observe the status of a set of permissions.
+     * Behaves the same as {@link PermissionManager#observe(String[], Executor, PermissionStatusObserver)}
+     *
+     * @param permissions the permissions to observe
+     * @param executor    the executor on which the observer is notified
+     * @param observer    the observer
+     */
+    public void observe(PermissionSet permissions, Executor executor, PermissionStatusObserver observer) {
+        observe(permissions.toArray(), executor, observer);
+    }
+
+    /**
+     * Method to stop observing the status of permissions
+     *
+     * @param observer the observer to remove
+     * @return true if the observer was observing permissions
+     */
+    public boolean removeObserver(PermissionStatusObserver observer) {
+        return permissionStatusObservers.remove(observer);
+    }
+
     /**
      * Method to request a permission.
      * If the permission has been denied before then a default message
@@ -163,7 +465,8 @@ public class PermissionManager {
      * @param permission the permission to be requested
      */
     public void requestPermission(String permission) {
-        checkAndRequestPermission(permission, context.getResources().getText(R.string.default_request_message).toString());
+        enqueueRequest(SINGLE_PERMISSION_REQUEST_CODE, new String[]{permission},
+                context.getResources().getText(R.string.default_request_message).toString());
     }
 
     /**
@@ -179,7 +482,7 @@ public class PermissionManager {
         if (requestMessage == null || requestMessage.isEmpty())
             requestMessage = context.getResources().getText(R.string.default_request_message).toString();
 
-        checkAndRequestPermission(permission, requestMessage);
+        enqueueRequest(SINGLE_PERMISSION_REQUEST_CODE, new String[]{permission}, requestMessage);
     }
 
     /**
@@ -201,7 +504,8 @@ public class PermissionManager {
      * @param permissions the permissions to be requested
      */
     public void requestPermissions(String... permissions) {
-        checkAndRequestPermissions(permissions, context.getResources().getText(R.string.default_request_message).toString());
+        enqueueRequest(MULTIPLE_PERMISSION_REQUEST_CODE, permissions,
+                context.getResources().getText(R.string.default_request_message).toString());
     }
 
     /**
@@ -230,114 +534,320 @@ public class PermissionManager {
         if (requestMessage == null || requestMessage.isEmpty())
             requestMessage = context.getResources().getText(R.string.default_request_message).toString();
 
-        checkAndRequestPermissions(permissions, requestMessage);
+        enqueueRequest(MULTIPLE_PERMISSION_REQUEST_CODE, permissions, requestMessage);
+    }
+
+    /**
+     * Method to request a set of permissions.
+     * Behaves the same as {@link PermissionManager#requestPermissions(String...)}
+     *
+     * @param permissions the permissions to be requested
+     */
+    public void requestPermissions(PermissionSet permissions) {
+        requestPermissions(permissions.toArray());
+    }
+
+    /**
+     * Method to request a set of permissions.
+     * Behaves the same as {@link PermissionManager#requestPermissions(String, String[])}
+     *
+     * @param requestMessage the message to show before requesting previously denied permissions
+     * @param permissions    the permissions that needs to be requested
+     */
+    public void requestPermissions(String requestMessage, PermissionSet permissions) {
+        requestPermissions(requestMessage, permissions.toArray());
+    }
+
+    /**
+     * Method to request a group of permissions asynchronously.
+     * Behaves the same as {@link PermissionManager#requestPermissions(String...)}, but instead of being sent to the
+     * {@link PermissionResponseListener}, the results are provided through the returned {@link PermissionFuture}.
+     * <p>
+     * The future can be awaited from a background thread, chained, given a timeout or cancelled.
+     * Cancelling the future cancels the request. Pending futures are cancelled once the host activity is destroyed.
+     *
+     * @param executor    the executor on which the callbacks of the future are run
+     * @param permissions the permissions to be requested
+     * @return the future completing with the results of the request
+     */
+    public PermissionFuture<PermissionResults> requestPermissionsAsync(Executor executor, String... permissions) {
+        return requestPermissionsAsync(executor, null, permissions);
+    }
+
+    /**
+     * Method to request a group of permissions asynchronously, with a message to show before requesting previously
+     * denied permissions. See {@link PermissionManager#requestPermissionsAsync(Executor, String...)}
+     *
+     * @param executor       the executor on which the callbacks of the future are run
+     * @param requestMessage the message to show before requesting previously denied permissions
+     * @param permissions    the permissions to be requested
+     * @return the future completing with the results of the request
+     */
+    public PermissionFuture<PermissionResults> requestPermissionsAsync(Executor executor, String requestMessage,
+                                                                       String[] permissions) {
+        String message = requestMessage == null || requestMessage.isEmpty()
+                ? context.getResources().getText(R.string.default_request_message).toString()
+                : requestMessage;
+
+        PermissionFuture<PermissionResults> future = new PermissionFuture<>(executor);
+        /*
+         * The results are delivered straight to the future instead of the PermissionResponseListener.
+         * The waiter is not bound to the activity, so it is never handed over to a recreated activity
+         */
+        InternalPermissionListener futureListener = (requestId, requestCode, requestedPermissions, grantResults, token) -> {
+            if (future.isDone())
+                return;
+            future.complete(new PermissionResults(requestedPermissions,
+                    resolvePermissionStatuses(requestId, requestedPermissions, grantResults)));
+            finishRequestCycle();
+        };
+        // The future completes with the results of all its permissions
+        RequestWaiter waiter = new RequestWaiter(futureListener, null, MULTIPLE_PERMISSION_REQUEST_CODE,
+                permissions, null, permissionMetrics, true);
+
+        runOnMainThread(() -> {
+            if (future.isDone())
+                return;
+            // The future listener is only weakly referenced by the waiter
+            pendingFutures.put(future, futureListener);
+            future.whenComplete(this::runOnMainThread, (results, error) -> pendingFutures.remove(future));
+            future.setCanceller(() -> runOnMainThread(() -> cancelWaiter(waiter)));
+            enqueueWaiter(waiter, message);
+        });
+        return future;
     }
 
     /**
-     * Method checks previous permission requests and chooses an operation.
-     * If the permission has not been requested before, then the permission will be requested
+     * Method to cancel the request of a waiter. A queued request is dropped, otherwise the waiter is detached
+     * from the request in flight, which is torn down if no other waiter is left
+     *
+     * @param waiter the waiter
+     */
+    private void cancelWaiter(RequestWaiter waiter) {
+        if (!pendingWaiters.remove(waiter))
+            PermissionRequestTable.detach(waiter);
+    }
+
+    private void runOnMainThread(Runnable runnable) {
+        if (Looper.myLooper() == Looper.getMainLooper())
+            runnable.run();
+        else
+            mainHandler.post(runnable);
+    }
+
+    /**
+     * Method to queue a permission request.
      * <p>
-     * If the permission has been denied by the user, then an message will be displayed to the user
-     * informing why this permission is required giving user the choice to continue with permission
-     * request or to stop it.
+     * If all the permissions are already part of a request in flight, the caller is attached to that request
+     * and receives its results once they arrive, instead of making the same request again.
      * <p>
-     * If the permission has been denied before by selected the "Don't Ask Again" option, then
-     * user will be directed to the application info page in settings to grant the permission.
+     * Otherwise the request is queued, and all the requests queued within the request coalescing window
+     * are merged and made together as a single request. Without a window, the requests queued until the
+     * next message of the main thread are merged.
      *
-     * @param permission     the permission to be requested
-     * @param requestMessage the message explaining why the permission is needed by the application
+     * @param requestCode    the permission request code
+     * @param permissions    the permissions to be requested
+     * @param requestMessage the message explaining why the permissions are needed by the application
      */
-    private void checkAndRequestPermission(String permission, String requestMessage) {
-        if (PermissionService.checkSelfPermission(this.context, permission) == PackageManager.PERMISSION_GRANTED) {
-            preferenceManager.removePermissionPermanentlyDeniedStatus(permission);
-        }
-        if (PermissionService.isPermissionDeniedPreviously((Activity) context, permission)) {
-            showAlertDialog(SINGLE_PERMISSION_REQUEST_CODE, requestMessage, new String[]{permission});
-        } else if (preferenceManager.isPermissionPreviouslyPermanentlyDenied(permission)) {
-            openSettings(SINGLE_PERMISSION_REQUEST_CODE, new String[]{permission});
-        } else {
-            requestAllPermissions(SINGLE_PERMISSION_REQUEST_CODE, new String[]{permission});
+    private void enqueueRequest(int requestCode, String[] permissions, String requestMessage) {
+        // Single permission requests always report their permission, as they did before requests were merged
+        enqueueWaiter(new RequestWaiter(internalListener, ownerKey, requestCode, permissions, listenerToken,
+                permissionMetrics, requestCode == SINGLE_PERMISSION_REQUEST_CODE), requestMessage);
+    }
+
+    /**
+     * Method to queue the request of a waiter, see {@link PermissionManager#enqueueRequest(int, String[], String)}
+     *
+     * @param waiter         the waiter
+     * @param requestMessage the message explaining why the permissions are needed by the application
+     */
+    private void enqueueWaiter(RequestWaiter waiter, String requestMessage) {
+        if (PermissionRequestTable.attach(waiter))
+            return;
+
+        if (pendingWaiters.isEmpty()) {
+            // The message of the first request is used for the merged request
+            pendingRequestMessage = requestMessage;
+            mainHandler.postDelayed(pendingRequestsFlusher, requestCoalescingWindow);
         }
+        pendingWaiters.add(waiter);
     }
 
     /**
-     * For group permissions the incoming permissions are classified into
+     * Method to make a single request for all the queued requests.
+     * The permissions of all the queued requests are classified into
      * 1. Denied Permissions
-     * 2. Permanently Denied Permissions and
-     * 3. New Permission Requests
+     * 2. Permanently Denied Permissions
+     * 3. New Permission Requests and
+     * 4. Granted Permissions
+     * <p>
+     * If there are denied permissions, then a message will be displayed to the user informing why these permissions
+     * are required giving user the choice to continue with permission request or to stop it.
+     * Denied permissions and new permissions are requested together.
      * <p>
      * Permanently denied permissions must be granted from settings manually by used.
      * The application info page will be opened for such permission only if there are no other permission
-     * belonging to any other groups
+     * belonging to any other groups, otherwise they are reported as permanently denied.
      * <p>
-     * Denied permissions and new permissions are requested together
+     * Granted permissions will not be requested again. They are only reported as granted to callers
+     * of a single permission request and to asynchronous requests, other callers are only told about
+     * the permissions that were requested for them, as before requests were merged.
      * <p>
-     * Granted permissions will not be requested again
-     *
-     * @param permissions    the permissions to be requested
-     * @param requestMessage explanation for why the permission has been requested
+     * The request is registered in the {@link PermissionRequestTable} before anything is shown to the user,
+     * so that requests made meanwhile for the same permissions are attached to it.
+     * Its id is reserved before the classification, so that every trace section of the request is named with it.
+     * <p>
+     * If the persisted permission details are still being loaded, the requests stay queued until they are available,
+     * so the classification never waits for the disk on the main thread.
      */
-    private void checkAndRequestPermissions(String[] permissions, String requestMessage) {
-        List<String> previouslyDeniedPermissions = new ArrayList<>();
-        List<String> permanentlyDeniedPermissions = new ArrayList<>();
-        List<String> newPermissionRequests = new ArrayList<>();
+    private void flushPendingRequests() {
+        if (!pendingWaiters.isEmpty() && !preferenceManager.isLoaded()) {
+            // The classification reads the persisted details, the requests are flushed once they have been loaded
+            preferenceManager.whenLoaded(() -> mainHandler.post(pendingRequestsFlusher));
+            return;
+        }
+
+        List<RequestWaiter> waiters = new ArrayList<>(pendingWaiters);
+        pendingWaiters.clear();
+        if (waiters.isEmpty())
+            return;
+
+        // The set deduplicates the permissions, the list keeps them in the order in which they were asked for
+        PermissionSet permissionUnion = new PermissionSet();
+        List<String> orderedPermissions = new ArrayList<>();
+        for (RequestWaiter waiter : waiters)
+            for (String permission : waiter.permissions)
+                if (permissionUnion.add(PermissionRegistry.intern(permission)))
+                    orderedPermissions.add(permission);
+        String[] permissions = orderedPermissions.toArray(new String[0]);
 
         /*
-         * Categorizing the permissions
+         * Categorizing the permissions, the state of each permission is computed once for the whole request cycle.
+         * Permissions classified as permanently denied are remembered until their results have been resolved
          */
-        for (String permission : permissions) {
-            if (PermissionService.checkSelfPermission(this.context, permission) == PackageManager.PERMISSION_GRANTED) {
-                // Granted permissions can be ignored
-                preferenceManager.removePermissionPermanentlyDeniedStatus(permission);
-            } else if (PermissionService.isPermissionDeniedPreviously((Activity) context, permission)) {
-                // Permissions that have been denied previously by the user
-                previouslyDeniedPermissions.add(permission);
-            } else if (preferenceManager.isPermissionPreviouslyPermanentlyDenied(permission)) {
-                // Permissions that have been permannently denied
-                permanentlyDeniedPermissions.add(permission);
-            } else {
-                // permissions that have not been requested before
-                newPermissionRequests.add(permission);
-            }
+        int requestId = PermissionRequestTable.reserveRequestId();
+        permissionTrace.beginAsyncSection(PermissionTrace.REQUEST, requestId);
+        long classificationStart = permissionMetrics != null ? System.nanoTime() : 0;
+        PermissionClassification classification;
+        permissionTrace.beginSection(PermissionTrace.CLASSIFY, requestId);
+        try {
+            classification = new PermissionClassification(permissions, checkPermissionStatuses(permissions),
+                    (Activity) context, preferenceManager, getManifestPermissionIndex(), permissionBackend);
+        } finally {
+            permissionTrace.endSection();
         }
+        if (permissionMetrics != null)
+            permissionMetrics.onClassified(permissions, System.nanoTime() - classificationStart);
+        if (flightRecorder != null)
+            for (int i = 0; i < permissions.length; i++)
+                flightRecorder.record(PermissionFlightRecorder.Event.CLASSIFIED, requestId,
+                        PermissionRegistry.idOf(permissions[i]), classification.permissionStates[i].ordinal());
+        classifiedPermanentlyDenied.removeAll(permissionUnion);
+        classifiedPermanentlyDenied.addAll(classification.permanentlyDeniedPermissions);
+        PermissionSet grantedPermissions = classification.grantedPermissions;
+        PermissionSet previouslyDeniedPermissions = classification.previouslyDeniedPermissions;
+        PermissionSet permanentlyDeniedPermissions = classification.permanentlyDeniedPermissions;
+        PermissionSet newPermissionRequests = classification.newPermissionRequests;
+
+        CycleAction cycleAction = classification.decideCycle();
+        if (cycleAction == CycleAction.SHOW_RATIONALE || cycleAction == CycleAction.REQUEST) {
+            // New and already denied permissions are requested together, permanently denied and undeclared ones are reported as is
+            PermissionSet requestedPermissions = new PermissionSet();
+            requestedPermissions.addAll(previouslyDeniedPermissions);
+            requestedPermissions.addAll(newPermissionRequests);
+            String[] requested = requestedPermissions.toArray(permissions);
+
+            PermissionSet resolvedPermissions = new PermissionSet();
+            resolvedPermissions.addAll(grantedPermissions);
+            resolvedPermissions.addAll(permanentlyDeniedPermissions);
+            resolvedPermissions.addAll(classification.undeclaredPermissions);
+            String[] resolved = resolvedPermissions.toArray(permissions);
+
+            /*
+             * Each caller is told about its requested and undeclared permissions, granted ones are left out.
+             * Callers having none of them are told about their permanently denied permissions
+             */
+            PermissionSet reportedPermissions = new PermissionSet();
+            reportedPermissions.copyFrom(requestedPermissions);
+            reportedPermissions.addAll(classification.undeclaredPermissions);
+            selectReportedPermissions(waiters, reportedPermissions, permanentlyDeniedPermissions);
 
-        if (previouslyDeniedPermissions.size() > 0) {
-            // New and already denied permissions can be requested together after an alert dialog
-            previouslyDeniedPermissions.addAll(newPermissionRequests);
-            showAlertDialog(MULTIPLE_PERMISSION_REQUEST_CODE, requestMessage, previouslyDeniedPermissions.toArray(new String[0]));
-        } else if (newPermissionRequests.size() > 0) {
-            // if there are not denied permissions then, permissions can be requested directly
-            requestAllPermissions(MULTIPLE_PERMISSION_REQUEST_CODE, newPermissionRequests.toArray(new String[0]));
-        } else if (permanentlyDeniedPermissions.size() > 0) {
+            PermissionRequestTable.register(requestId, internalListener, permissionTrace, flightRecorder, waiters,
+                    resolved, classification.resolvedResults(resolved), requested,
+                    reportedPermissions, permanentlyDeniedPermissions);
+            if (cycleAction == CycleAction.SHOW_RATIONALE)
+                // Denied permissions are requested after an alert dialog
+                showAlertDialog(requestId, pendingRequestMessage, requested);
+            else
+                // if there are not denied permissions then, permissions can be requested directly
+                requestAllPermissions(requestId, requested);
+        } else if (cycleAction == CycleAction.OPEN_SETTINGS) {
             // if all the permissions have been denied permanently, then open application info page
-            openSettings(MULTIPLE_PERMISSION_REQUEST_CODE, permanentlyDeniedPermissions.toArray(new String[0]));
+            String[] requested = permanentlyDeniedPermissions.toArray(permissions);
+            PermissionSet resolvedPermissions = new PermissionSet();
+            resolvedPermissions.addAll(grantedPermissions);
+            resolvedPermissions.addAll(classification.undeclaredPermissions);
+            String[] resolved = resolvedPermissions.toArray(permissions);
+            // Each caller is told about its permanently denied and undeclared permissions, granted ones are left out
+            PermissionSet reportedPermissions = new PermissionSet();
+            reportedPermissions.copyFrom(permanentlyDeniedPermissions);
+            reportedPermissions.addAll(classification.undeclaredPermissions);
+            PermissionSet noPermissions = new PermissionSet();
+            selectReportedPermissions(waiters, reportedPermissions, noPermissions);
+            PermissionRequestTable.register(requestId, internalListener, permissionTrace, flightRecorder, waiters,
+                    resolved, classification.resolvedResults(resolved), requested, reportedPermissions, noPermissions);
+            openSettings(requestId, requested);
+        } else {
+            /*
+             * All the permissions have been granted or are not declared, nothing needs to be requested.
+             * Callers are only told about their undeclared permissions, as granted ones are left out
+             */
+            selectReportedPermissions(waiters, classification.undeclaredPermissions, new PermissionSet());
+            int[] grantResults = classification.resolvedResults(permissions);
+            permissionTrace.beginSection(PermissionTrace.DISPATCH, requestId);
+            try {
+                for (RequestWaiter waiter : waiters)
+                    waiter.deliver(requestId, permissions, grantResults);
+            } finally {
+                permissionTrace.endSection();
+                permissionTrace.endAsyncSection(PermissionTrace.REQUEST, requestId);
+            }
         }
     }
 
+    /**
+     * Method to select the permissions reported to each waiter of a request,
+     * see {@link RequestWaiter#selectReportedPermissions(PermissionSet, PermissionSet)}
+     *
+     * @param waiters  the waiters of the request
+     * @param reported the permissions of the request whose results are reported
+     * @param fallback the permissions reported to the waiters having none of the reported permissions
+     */
+    private static void selectReportedPermissions(List<RequestWaiter> waiters, PermissionSet reported,
+                                                  PermissionSet fallback) {
+        for (RequestWaiter waiter : waiters)
+            waiter.selectReportedPermissions(reported, fallback);
+    }
 
     /**
      * Method to make permission requests.
-     * This method starts a new Transparent Activity called RequestPermissionsActivity.
-     * This permission request will be performed using this activity's context
-     * and using the overridden onRequestPermissionsResult()
-     * the user choices are returned back to the internalPermissionListener
-     * <p>
-     * The data passed to this activity are
-     * 1. INTENT_OPERATION: INTENT_OPERATION_REQUEST (To make permission requests)
-     * 2. INTENT_PERMISSIONS: The permissions to be requested
-     * 3. INTENT_PERMISSION_REQUEST_CODE: Permission request code
-     * 4. INTENT_CALLING_ACTIVITY: Name of activity from which PermissionManager was created
+     * The request is made using the {@link PermissionRequestEngine} selected while building the PermissionManager.
+     * By default a new Transparent Activity called RequestPermissionsActivity is started and
+     * the permission request will be performed using this activity's context. If headless fragment requests
+     * have been enabled, the request is made from a headless fragment attached to the calling activity instead.
+     * In both cases the user choices are routed back through the {@link PermissionRequestTable}
      *
-     * @param requestCode the permission request code
+     * @param requestId   the id of the request in the {@link PermissionRequestTable}
      * @param permissions the permissions to be requested
      */
-    private void requestAllPermissions(int requestCode, String[] permissions) {
-        Intent requestPermissionIntent = new Intent(context, RequestPermissionsActivity.class);
-        requestPermissionIntent.putExtra(Constants.INTENT_OPERATION, Constants.INTENT_OPERATION_REQUEST);
-        requestPermissionIntent.putExtra(Constants.INTENT_PERMISSIONS, permissions);
-        requestPermissionIntent.putExtra(Constants.INTENT_PERMISSION_REQUEST_CODE, requestCode);
-        requestPermissionIntent.putExtra(Constants.INTENT_CALLING_ACTIVITY, context.getClass().getSimpleName());
-        context.startActivity(requestPermissionIntent);
+    private void requestAllPermissions(int requestId, String[] permissions) {
+        for (String permission : permissions)
+            preferenceManager.permissionRequested(permission);
+
+        if (flightRecorder != null)
+            flightRecorder.record(PermissionFlightRecorder.Event.REQUESTED, requestId, permissions, null);
+        PermissionRequestTable.handOver(requestId, permissionBackend, permissionMetrics, false);
+        permissionRequestEngine.requestPermissions(permissions, requestId);
     }
 
     /**
@@ -348,25 +858,25 @@ public class PermissionManager {
      * If SnackBar was not enabled by providing the view to find parent while building the PermissionManager,
      * then a Toast will be displayed and the user will be taken directly to the application info page in settings.
      *
-     * @param requestCode the permission request code
+     * @param requestId   the id of the request in the {@link PermissionRequestTable}
      * @param permissions the permissions to be requested
      */
-    private void openSettings(int requestCode, String[] permissions) {
+    private void openSettings(int requestId, String[] permissions) {
         if (snackBarContainer != null)
-            displaySnackBar(permissions, requestCode);
+            displaySnackBar(permissions, requestId);
         else
-            showToast(permissions, requestCode);
+            showToast(permissions, requestId);
     }
 
     /**
      * Method to show a toast and open the application info page in settings.
      *
      * @param permissions the permissions to be requested
-     * @param requestCode the permission request code
+     * @param requestId   the id of the request in the {@link PermissionRequestTable}
      */
-    private void showToast(String[] permissions, int requestCode) {
+    private void showToast(String[] permissions, int requestId) {
         Toast.makeText(context, R.string.manual_permission_message, Toast.LENGTH_LONG).show();
-        openPermissionSettings(permissions, requestCode);
+        openPermissionSettings(permissions, requestId);
     }
 
     /**
@@ -377,93 +887,117 @@ public class PermissionManager {
      * If the user choose to goto settings, then the changes will be returned (only for the requested permission)
      *
      * @param permissions the permission being requested
-     * @param requestCode the permission request code
+     * @param requestId   the id of the request in the {@link PermissionRequestTable}
      */
-    private void displaySnackBar(String[] permissions, int requestCode) {
-        Snackbar.make(snackBarContainer, R.string.manual_permission_message, Snackbar.LENGTH_LONG)
-                .setAction(R.string.snackbar_button_text, v -> openPermissionSettings(permissions, requestCode))
+    private void displaySnackBar(String[] permissions, int requestId) {
+        Snackbar snackbar = Snackbar.make(snackBarContainer, R.string.manual_permission_message, Snackbar.LENGTH_LONG)
+                .setAction(R.string.snackbar_button_text, v -> openPermissionSettings(permissions, requestId))
                 .addCallback(new BaseTransientBottomBar.BaseCallback<Snackbar>() {
                     @Override
                     public void onDismissed(Snackbar transientBottomBar, int event) {
+                        // The results of the settings page are sent once the user returns from it
+                        if (event == DISMISS_EVENT_ACTION)
+                            return;
                         int[] grantResults = new int[permissions.length];
                         Arrays.fill(grantResults, Constants.PERMISSON_SKIPPED);
-                        notifyActivity(requestCode, permissions, grantResults, context.getClass().getSimpleName());
+                        PermissionRequestTable.dispatch(requestId, permissions, grantResults);
                     }
 
                     @Override
                     public void onShown(Snackbar transientBottomBar) {
                         super.onShown(transientBottomBar);
                     }
-                })
-                .show();
+                });
+        snackbar.show();
+        PermissionRequestTable.setCanceller(requestId, snackbar::dismiss);
     }
 
     /**
      * Method to open the application info page in settings. This operations is actually
-     * implemented in the transparent activity {@link RequestPermissionsActivity}.
-     * <p>
-     * The data passed to this activity are
-     * 1. INTENT_OPERATION: INTENT_OPERATION_SETTINGS (To open the application info page in settings)
-     * 2. INTENT_PERMISSION_REQUEST_CODE: Permission request code
-     * 3. INTENT_PERMISSIONS: The permissions
+     * implemented by the {@link PermissionRequestEngine}, either in the transparent activity
+     * {@link RequestPermissionsActivity} or in the headless {@link PermissionRequestFragment}.
      *
      * @param permissions the permissions to be requested
-     * @param requestCode the permission request code
+     * @param requestId   the id of the request in the {@link PermissionRequestTable}
      */
-    private void openPermissionSettings(String[] permissions, int requestCode) {
-        Intent requestSettingsIntent = new Intent(context, RequestPermissionsActivity.class);
-        requestSettingsIntent.putExtra(Constants.INTENT_OPERATION, Constants.INTENT_OPERATION_SETTINGS);
-        requestSettingsIntent.putExtra(Constants.INTENT_PERMISSION_REQUEST_CODE, requestCode);
-        requestSettingsIntent.putExtra(Constants.INTENT_PERMISSIONS, permissions);
-        requestSettingsIntent.putExtra(Constants.INTENT_CALLING_ACTIVITY, context.getClass().getSimpleName());
-        context.startActivity(requestSettingsIntent);
+    private void openPermissionSettings(String[] permissions, int requestId) {
+        if (flightRecorder != null)
+            flightRecorder.record(PermissionFlightRecorder.Event.SETTINGS_OPENED, requestId, permissions, null);
+        PermissionRequestTable.handOver(requestId, permissionBackend, permissionMetrics, true);
+        permissionRequestEngine.openSettings(permissions, requestId);
     }
 
     /**
      * Method displays a custom alert to the user explaining why the requested permission is needed
      * for the application to work normally.
      *
-     * @param requestCode    the permission request code
+     * @param requestId      the id of the request in the {@link PermissionRequestTable}
      * @param requestMessage the reason explaining why the requested permission is needed
      * @param permissions    the permission being requested
      */
-    private void showAlertDialog(int requestCode, String requestMessage, final String[] permissions) {
-        // Inflating the alert dialog custom layout
-        ViewGroup viewGroup = ((Activity) this.context).findViewById(android.R.id.content);
-        final View dialogView = LayoutInflater.from(this.context)
-                .inflate(in.notyouraveragedev.permissionmanager.R.layout.alert_layout, viewGroup, false);
-        Dialog customDialog = new Dialog(this.context, R.style.Theme_AppCompat_Dialog);
-
-        // Setting the explanation in alert text view
-        ((TextView) dialogView.findViewById(R.id.tv_message)).setText(requestMessage);
+    private void showAlertDialog(int requestId, String requestMessage, final String[] permissions) {
+        permissionTrace.beginSection(PermissionTrace.SHOW_ALERT_DIALOG, requestId);
+        try {
+            showRationaleDialog(requestId, requestMessage, permissions);
+        } finally {
+            permissionTrace.endSection();
+        }
+    }
 
+    /**
+     * Method to inflate and show the alert dialog, see {@link #showAlertDialog(int, String, String[])}
+     *
+     * @param requestId      the id of the request in the {@link PermissionRequestTable}
+     * @param requestMessage the reason explaining why the requested permission is needed
+     * @param permissions    the permission being requested
+     */
+    private void showRationaleDialog(int requestId, String requestMessage, final String[] permissions) {
         // Setting the image drawable for single and group permission requests
-        if (permissions.length > 1)
-            ((ImageView) dialogView.findViewById(R.id.iv_permission_logo))
-                    .setImageDrawable(Utility.getDrawableImage(this.context, ""));
-        else
-            ((ImageView) dialogView.findViewById(R.id.iv_permission_logo))
-                    .setImageDrawable(Utility.getDrawableImage(this.context, permissions[0]));
+        Drawable icon = Utility.getDrawableImage(this.context, permissions.length > 1 ? "" : permissions[0]);
 
-        // Adding onclick listener to "Not Now" button
-        dialogView.findViewById(R.id.bt_not_now)
-                .setOnClickListener(view -> {
-                    customDialog.dismiss();
+        if (flightRecorder != null)
+            flightRecorder.record(PermissionFlightRecorder.Event.RATIONALE_SHOWN, requestId, permissions, null);
+        long shownAt = 0;
+        if (permissionMetrics != null) {
+            permissionMetrics.onRationaleShown(requestId, permissions);
+            shownAt = System.nanoTime();
+        }
+        final long rationaleShownAt = shownAt;
+        Runnable dialogCanceller = rationaleDialog.show(requestMessage, icon,
+                // "Not Now" button
+                () -> {
+                    if (permissionMetrics != null)
+                        permissionMetrics.onRationaleDismissed(requestId, permissions, false,
+                                System.nanoTime() - rationaleShownAt);
+                    recordRationaleDismissed(requestId, permissions, false);
                     int[] grantResults = new int[permissions.length];
                     Arrays.fill(grantResults, Constants.PERMISSON_SKIPPED);
-                    notifyActivity(requestCode, permissions, grantResults, this.context.getClass().getSimpleName());
-                });
-
-        // Adding onclick listener to "Continue" button
-        dialogView.findViewById(R.id.bt_continue)
-                .setOnClickListener(view -> {
-                    customDialog.dismiss();
-                    requestAllPermissions(requestCode, permissions);
+                    PermissionRequestTable.dispatch(requestId, permissions, grantResults);
+                },
+                // "Continue" button
+                () -> {
+                    if (permissionMetrics != null)
+                        permissionMetrics.onRationaleDismissed(requestId, permissions, true,
+                                System.nanoTime() - rationaleShownAt);
+                    recordRationaleDismissed(requestId, permissions, true);
+                    requestAllPermissions(requestId, permissions);
                 });
+        PermissionRequestTable.setCanceller(requestId, dialogCanceller);
+    }
 
-        customDialog.setContentView(dialogView);
-        Objects.requireNonNull(customDialog.getWindow()).setBackgroundDrawable(new ColorDrawable(Color.TRANSPARENT));
-        customDialog.show();
+    /**
+     * Method to record the dismissal of the alert dialog in the flight recorder
+     *
+     * @param requestId   the id of the request in the {@link PermissionRequestTable}
+     * @param permissions the permissions being requested
+     * @param continued   whether the user continued with the request
+     */
+    private void recordRationaleDismissed(int requestId, String[] permissions, boolean continued) {
+        if (flightRecorder == null)
+            return;
+        for (String permission : permissions)
+            flightRecorder.record(PermissionFlightRecorder.Event.RATIONALE_DISMISSED, requestId,
+                    PermissionRegistry.idOf(permission), continued ? 1 : 0);
     }
 
     /**
@@ -471,7 +1005,8 @@ public class PermissionManager {
      * Whenever the internal permission listener is notified, based on the type of permission request,
      * the current status of the requested permissions are returned to the calling activity that called
      * {@link PermissionManager}. The responses of the permissions are returned to Application Activity
-     * that initiated the request as a {@link List<PermissionResponse>} through the {@link PermissionResponseListener}.
+     * that initiated the request as a {@link PermissionResponse} for single permission requests and as
+     * {@link PermissionResults} for group permission requests through the {@link PermissionResponseListener}.
      * <p>
      * <p>
      * For Each Permission,
@@ -482,82 +1017,279 @@ public class PermissionManager {
      * 2. If the permission was not granted and denied by choosing "Don't Ask Again", then
      * the status of the permission is set as {@link PermissionManager#PERMISSION_PERMANENTLY_DENIED}
      * and its details are stored in a
-     * {@link android.content.SharedPreferences} using {@link in.notyouraveragedev.simplepreference.SimplePreferenceManager}
+     * {@link android.content.SharedPreferences} using {@link PreferenceManager}.
+     * All preference changes of the request cycle are written back together once the listener has been notified
      * <p>
      * 3. Otherwise the obtained {@code grantResults} is set as the status of the permission
      *
-     * @param requestCode     the permission request code
-     * @param permissions     the permissions being requested
-     * @param grantResults    the current status of the permissions
-     * @param callingActivity the name of the activity to which response needs to be sent
+     * @param requestId     the id of the request
+     * @param requestCode   the permission request code
+     * @param permissions   the permissions being requested
+     * @param grantResults  the current status of the permissions
+     * @param listenerToken the token of the listener to which response needs to be sent
      */
-    private void notifyActivity(int requestCode, String[] permissions, int[] grantResults, String callingActivity) {
+    private void notifyActivity(int requestId, int requestCode, String[] permissions, int[] grantResults,
+                                String listenerToken) {
+        int[] permissionStatuses = resolvePermissionStatuses(requestId, permissions, grantResults);
 
-        if (requestCode == SINGLE_PERMISSION_REQUEST_CODE) {
-            String permission = permissions[0];
-            PermissionResponse permissionResponse;
+        PermissionResponseListener listener = ListenerRegistry.getListener(listenerToken);
+        if (listener == null) {
+            // The PermissionManager that made the request no longer exists
+            Log.e("Permission Manager", "No listener registered for " + listenerToken);
+        } else if (requestCode == SINGLE_PERMISSION_REQUEST_CODE) {
+            listener.singlePermissionResponse(new PermissionResponse(permissions[0], permissionStatuses[0]));
+        } else if (requestCode == MULTIPLE_PERMISSION_REQUEST_CODE) {
+            // Notifying the listener from Application Activity
+            listener.multiplePermissionResponse(new PermissionResults(permissions, permissionStatuses));
+        }
+        finishRequestCycle();
+    }
+
+    /**
+     * Method to get the statuses to be reported for the results of a request, as decided by the {@link PermissionDecisionEngine}.
+     * The permanently denied permissions are stored and the outcome of the request is recorded in the permission history
+     * <p>
+     * The obtained results are the current statuses of the permissions, so they are not checked again. Permissions
+     * that were not requested or were classified as permanently denied before the request and are still not granted
+     * are permanently denied, otherwise only the rationale needs to be checked for the permissions that are not granted
+     *
+     * @param requestId    the id of the request
+     * @param permissions  the permissions being requested
+     * @param grantResults the current status of the permissions
+     * @return the statuses of the permissions, in the order of the permissions
+     */
+    private int[] resolvePermissionStatuses(int requestId, String[] permissions, int[] grantResults) {
+        // The request round trip might have changed the status of the permissions
+        permissionStatusCache.invalidate();
 
-            if (grantResults[0] == Constants.PERMISSON_SKIPPED) {
-                // Permission skipped
-                permissionResponse = new PermissionResponse(permission, PERMISSION_DENIED);
-            } else if (grantResults[0] != PERMISSION_GRANTED &&
-                    PermissionService.isPermissionPermanentlyDenied((Activity) this.context, permission)) {
-                // Permission permanently denied
-                permissionResponse = new PermissionResponse(permission, PERMISSION_PERMANENTLY_DENIED);
+        PermissionFacts facts = (question, index) -> {
+            switch (question) {
+                case IS_SKIPPED:
+                    return grantResults[index] == Constants.PERMISSON_SKIPPED;
+                case IS_UNDECLARED:
+                    return getManifestPermissionIndex().isUndeclared(permissions[index]);
+                case IS_RESULT_PERMANENTLY_DENIED:
+                    return grantResults[index] == PERMISSION_PERMANENTLY_DENIED;
+                case IS_GRANTED:
+                    return grantResults[index] == PERMISSION_GRANTED;
+                case WAS_CLASSIFIED_PERMANENTLY_DENIED:
+                    return classifiedPermanentlyDenied.contains(permissions[index]);
+                case SHOULD_SHOW_RATIONALE:
+                    return permissionBackend.shouldShowRequestPermissionRationale((Activity) this.context, permissions[index]);
+                default:
+                    return false;
+            }
+        };
+
+        int[] permissionStatuses = new int[permissions.length];
+        for (int i = 0; i < permissions.length; i++) {
+            ResultOutcome outcome = PermissionDecisionEngine.resolveResult(facts, i);
+            permissionStatuses[i] = outcome.reportedStatus;
+            if (outcome.storePermanentlyDenied)
                 // Permanently denied permissions details are stored in a SharedPreference for future use
-                preferenceManager.permissionPermanentlyDenied(permission);
-            } else {
-                permissionResponse = new PermissionResponse(permission, grantResults[0]);
+                preferenceManager.permissionPermanentlyDenied(permissions[i]);
+            if (outcome.recordHistory)
+                recordPermissionHistory(permissions[i], grantResults[i]);
+            classifiedPermanentlyDenied.remove(permissions[i]);
+            if (flightRecorder != null)
+                flightRecorder.record(PermissionFlightRecorder.Event.DELIVERED, requestId,
+                        PermissionRegistry.idOf(permissions[i]), permissionStatuses[i]);
+        }
+        return permissionStatuses;
+    }
+
+    /**
+     * Method to finish a request cycle once its results have been delivered
+     */
+    private void finishRequestCycle() {
+        // Writing back the preference changes of this request cycle as a single batch
+        preferenceManager.flush();
+        // The request might have changed the status of observed permissions
+        permissionStatusObservers.refresh();
+    }
+
+    /**
+     * Method to record the outcome of a permission request in the permission history
+     *
+     * @param permission  the requested permission
+     * @param grantResult the status obtained for the permission
+     */
+    private void recordPermissionHistory(String permission, int grantResult) {
+        if (grantResult == PERMISSION_GRANTED)
+            preferenceManager.permissionGranted(permission);
+        else
+            preferenceManager.permissionDenied(permission);
+    }
+
+    /**
+     * Method to get the index of the permissions declared in the manifest, building it on first use
+     *
+     * @return the index
+     */
+    private ManifestPermissionIndex getManifestPermissionIndex() {
+        if (manifestPermissionIndex == null)
+            manifestPermissionIndex = ManifestPermissionIndex.forBackend(this.context, permissionBackend);
+        return manifestPermissionIndex;
+    }
+
+    /**
+     * Method to get the current status of a permission.
+     * Permissions not declared in the manifest and normal permissions are answered by the {@link ManifestPermissionIndex}.
+     * Otherwise the status is served from the {@link PermissionStatusCache} if available,
+     * otherwise the Android Permission System is queried and the result is cached.
+     *
+     * @param permission the permission to check
+     * @return the current status of the permission
+     */
+    private int checkPermissionStatus(String permission) {
+        int indexedStatus = getManifestPermissionIndex().statusOf(permission);
+        if (indexedStatus != ManifestPermissionIndex.STATUS_UNKNOWN)
+            return indexedStatus;
+
+        Integer cachedStatus = permissionStatusCache.get(permission);
+        if (cachedStatus != null)
+            return cachedStatus;
+
+        return queryPermissionStatus(permission);
+    }
+
+    /**
+     * Method to get the current status of multiple permissions.
+     * Permissions not declared in the manifest and normal permissions are answered by the {@link ManifestPermissionIndex}.
+     * Otherwise the statuses are served from the {@link PermissionStatusCache} if available.
+     * If batch permission query has been enabled and more than one status is missing from the cache,
+     * then all the missing statuses are fetched at once from the {@link PermissionBackend},
+     * otherwise each missing permission is checked individually.
+     *
+     * @param permissions the permissions to check
+     * @return the current status of the permissions, in the order of the permissions
+     */
+    private int[] checkPermissionStatuses(String[] permissions) {
+        int[] permissionStatuses = new int[permissions.length];
+        int[] missingIndices = new int[permissions.length];
+        int missingCount = 0;
+
+        ManifestPermissionIndex manifestPermissionIndex = getManifestPermissionIndex();
+        for (int i = 0; i < permissions.length; i++) {
+            int indexedStatus = manifestPermissionIndex.statusOf(permissions[i]);
+            if (indexedStatus != ManifestPermissionIndex.STATUS_UNKNOWN) {
+                permissionStatuses[i] = indexedStatus;
+                continue;
             }
-            StaticKeeper.getListener(callingActivity).singlePermissionResponse(permissionResponse);
+            Integer cachedStatus = permissionStatusCache.get(permissions[i]);
+            if (cachedStatus != null)
+                permissionStatuses[i] = cachedStatus;
+            else
+                missingIndices[missingCount++] = i;
+        }
 
-        } else if (requestCode == MULTIPLE_PERMISSION_REQUEST_CODE) {
-            List<PermissionResponse> permissionResponses;
-            // Using streams for Nougat and above
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
-                permissionResponses = IntStream.range(0, permissions.length)
-                        .mapToObj(i -> {
-                            if (grantResults[i] == Constants.PERMISSON_SKIPPED) {
-                                // Permission request skipped
-                                return new PermissionResponse(permissions[i], PERMISSION_DENIED);
-                            } else if (grantResults[i] != PERMISSION_GRANTED &&
-                                    PermissionService.isPermissionPermanentlyDenied((Activity) this.context, permissions[i])) {
-                                // Permission permanently denied
-                                // Permanently denied permissions details are stored in a SharedPreference for future use
-                                preferenceManager.permissionPermanentlyDenied(permissions[i]);
-                                return new PermissionResponse(permissions[i], PERMISSION_PERMANENTLY_DENIED);
-                            }
-                            // Setting obtained status as permission status
-                            return new PermissionResponse(permissions[i], grantResults[i]);
-                        })
-                        .collect(Collectors.toList());
-            } else {
-                permissionResponses = new ArrayList<>();
-                for (int i = 0; i < permissions.length; i++)
-                    if (grantResults[i] == Constants.PERMISSON_SKIPPED) {
-                        // Permission request skipped
-                        permissionResponses.add(new PermissionResponse(permissions[i], PERMISSION_DENIED));
-                    } else if (grantResults[i] != PERMISSION_GRANTED &&
-                            PermissionService.isPermissionPermanentlyDenied((Activity) this.context, permissions[i])) {
-                        // Permission permanently denied
-                        permissionResponses.add(new PermissionResponse(permissions[i], PERMISSION_PERMANENTLY_DENIED));
-                        // Permanently denied permissions details are stored in a SharedPreference for future use
-                        preferenceManager.permissionPermanentlyDenied(permissions[i]);
-                    } else {
-                        // Setting obtained status as permission status
-                        permissionResponses.add(new PermissionResponse(permissions[i], grantResults[i]));
-                    }
+        if (batchPermissionQuery && missingCount > 1) {
+            String[] missingPermissions = new String[missingCount];
+            for (int i = 0; i < missingCount; i++)
+                missingPermissions[i] = permissions[missingIndices[i]];
+
+            int[] missingStatuses = permissionBackend.checkSelfPermissions(this.context, missingPermissions);
+            for (int i = 0; i < missingCount; i++) {
+                permissionStatuses[missingIndices[i]] = missingStatuses[i];
+                permissionStatusCache.put(missingPermissions[i], missingStatuses[i]);
             }
-            // Notifying the listener from Application Activity
-            StaticKeeper.getListener(callingActivity).multiplePermissionResponse(permissionResponses);
+        } else {
+            for (int i = 0; i < missingCount; i++)
+                permissionStatuses[missingIndices[i]] = queryPermissionStatus(permissions[missingIndices[i]]);
+        }
+        return permissionStatuses;
+    }
+
+    /**
+     * Method to query the {@link PermissionBackend} for the status of a permission
+     * and cache the result in the {@link PermissionStatusCache}
+     *
+     * @param permission the permission to check
+     * @return the current status of the permission
+     */
+    private int queryPermissionStatus(String permission) {
+        int permissionStatus = permissionBackend.checkSelfPermission(this.context, permission);
+        permissionStatusCache.put(permission, permissionStatus);
+        return permissionStatus;
+    }
+
+    /**
+     * Method to get the number of permission status checks that were answered
+     * from the in-memory cache without querying the Android Permission System.
+     * If the core has been installed, the count covers all the PermissionManagers sharing the cache.
+     *
+     * @return the number of cache hits
+     */
+    public long getPermissionCacheHitCount() {
+        return permissionStatusCache.getHitCount();
+    }
+
+    /**
+     * Method to get the number of permission status checks that had to query
+     * the Android Permission System.
+     * If the core has been installed, the count covers all the PermissionManagers sharing the cache.
+     *
+     * @return the number of cache misses
+     */
+    public long getPermissionCacheMissCount() {
+        return permissionStatusCache.getMissCount();
+    }
+
+    /**
+     * Method to write the latest permission events of the application, oldest first, one line per event.
+     * The events are kept by a flight recorder shared by all the PermissionManagers, so they include the events
+     * of the PermissionManagers of destroyed activities.
+     * The events cover the classification of the permissions, the alert dialog, the requests to the
+     * Android Permission System and to settings, their results and the statuses delivered to the listener.
+     * Nothing is written if the flight recorder has been disabled
+     *
+     * @param writer the writer
+     */
+    public void dumpFlightRecorder(PrintWriter writer) {
+        if (flightRecorder != null)
+            flightRecorder.dump(writer);
+    }
+
+    /**
+     * Method to write the latest permission events of the application to a file, replacing its contents.
+     * See {@link PermissionManager#dumpFlightRecorder(PrintWriter)}
+     *
+     * @param file the file
+     * @return true if the events have been written, false if the file could not be written
+     * or the flight recorder has been disabled
+     */
+    public boolean dumpFlightRecorder(File file) {
+        if (flightRecorder == null)
+            return false;
+        try {
+            flightRecorder.dump(file);
+            return true;
+        } catch (IOException e) {
+            Log.e("Permission Manager", "Unable to dump the flight recorder to " + file, e);
+            return false;
         }
     }
 
     /**
-     * Method to initialize the {@link InternalPermissionListener}
+     * Method to release the resources held for the host activity once it has been destroyed.
+     * Pending asynchronous requests are cancelled, and queued requests and observers are dropped.
+     * The alert dialog is released and the listener is unregistered.
+     * Requests in flight are released, or kept for the recreated activity when the configuration changes.
+     * Pending preference changes are written back.
+     *
+     * @param changingConfigurations whether the host activity is being recreated
      */
-    private void initializeInternalPermissionListener() {
-        internalPermissionListener = this::notifyActivity;
+    private void onHostDestroyed(boolean changingConfigurations) {
+        for (PermissionFuture<PermissionResults> future : new ArrayList<>(pendingFutures.keySet()))
+            future.cancel(false);
+        mainHandler.removeCallbacks(pendingRequestsFlusher);
+        pendingWaiters.clear();
+        rationaleDialog.release();
+        permissionStatusObservers.clear();
+        ListenerRegistry.unregisterListener(listenerToken);
+        // Waiters of an activity that cannot be identified once recreated would never be adopted
+        PermissionRequestTable.release(internalListener, changingConfigurations && ownerKey != null);
+        preferenceManager.flush();
     }
 
 }
@@ -5,6 +5,9 @@ import android.view.View;
 
 import in.notyouraveragedev.permissionmanager.builder.PermissionManagerBuilderContract;
 import in.notyouraveragedev.permissionmanager.listener.PermissionResponseListener;
+import in.notyouraveragedev.permissionmanager.metrics.PermissionMetrics;
+import in.notyouraveragedev.permissionmanager.service.PermissionBackend;
+import in.notyouraveragedev.permissionmanager.service.PermissionCheckerBackend;
 
 /**
  * Builder to create a {@link PermissionManager}.
@@ -14,6 +17,38 @@ import in.notyouraveragedev.permissionmanager.listener.PermissionResponseListene
  * An optional choice to use a SnackBar or a Toast while opening application info page,
  * in case of permanently denied permissions
  * <p>
+ * An optional choice to check the statuses of multiple permissions using a single package info lookup
+ * instead of one Android Permission System call per permission
+ * <p>
+ * An optional choice to store the permission details along with the request history of each permission
+ * in a memory mapped file instead of a SharedPreferences file
+ * <p>
+ * An optional choice to make the permission requests from a headless fragment attached to the activity
+ * instead of starting a transparent activity. This requires the activity to be a FragmentActivity.
+ * The fragment requests the permissions itself, so it can only be combined with the backends that request
+ * permissions from the Android Permission System, {@link PermissionCheckerBackend} and
+ * {@link in.notyouraveragedev.permissionmanager.service.ContextCompatBackend}
+ * <p>
+ * An optional choice of the window within which consecutive permission requests are merged into a single request.
+ * By default no window is used, and only the requests made before the next message of the main thread are merged
+ * <p>
+ * An optional choice to create the alert dialog for previously denied permissions ahead of time,
+ * once the main thread is idle after the PermissionManager has been built
+ * <p>
+ * An optional choice of the {@link PermissionBackend} used to check, explain and request permissions.
+ * Defaults to {@link PermissionCheckerBackend}
+ * <p>
+ * An optional {@link PermissionMetrics} receiving timed events of every request cycle.
+ * When none is set, no event is created and no time is measured
+ * <p>
+ * An optional choice to emit trace sections and async slices, named with the request id, for every stage of
+ * the permission requests, so that they show up in Systrace and Perfetto
+ * <p>
+ * An optional choice of the number of latest permission events kept in memory for diagnostics,
+ * see {@link PermissionManager#dumpFlightRecorder(java.io.PrintWriter)}. Setting it to 0 disables the recorder.
+ * The recorder is shared by all the PermissionManagers, its capacity is set by the first one enabling it.
+ * Defaults to {@link Constants#DEFAULT_FLIGHT_RECORDER_CAPACITY}
+ * <p>
  * Created by A Anand on 18-05-2020
  */
 public class PermissionManagerBuilder implements PermissionManagerBuilderContract, PermissionManagerBuilderContract.Listener {
@@ -29,6 +64,42 @@ public class PermissionManagerBuilder implements PermissionManagerBuilderContrac
      * The view that snack bar can use to find a parent
      */
     private View snackBarContainer;
+    /**
+     * Whether the statuses of multiple permissions are to be checked using a single package info lookup
+     */
+    private boolean batchPermissionQuery;
+    /**
+     * Whether the permission details are to be stored in the memory mapped permission store
+     */
+    private boolean mappedPermissionStore;
+    /**
+     * Whether the permission requests are to be made from a headless fragment instead of the transparent activity
+     */
+    private boolean headlessFragmentRequests;
+    /**
+     * The window in milliseconds within which consecutive permission requests are merged
+     */
+    private long requestCoalescingWindow = Constants.DEFAULT_COALESCING_WINDOW_MILLIS;
+    /**
+     * Whether the alert dialog is to be created at idle time instead of the first time it is needed
+     */
+    private boolean rationaleDialogPrewarm;
+    /**
+     * The backend used to talk to the Android Permission System
+     */
+    private PermissionBackend permissionBackend;
+    /**
+     * The collector of the events of the request cycles, null if none
+     */
+    private PermissionMetrics permissionMetrics;
+    /**
+     * Whether the stages of the permission requests are to be traced
+     */
+    private boolean permissionTracing;
+    /**
+     * The number of permission events kept by the flight recorder, 0 if disabled
+     */
+    private int flightRecorderCapacity = Constants.DEFAULT_FLIGHT_RECORDER_CAPACITY;
 
     private PermissionManagerBuilder(Context context) {
         this.context = context;
@@ -47,6 +118,11 @@ public class PermissionManagerBuilder implements PermissionManagerBuilderContrac
 
     @Override
     public PermissionManager build() {
+        // The headless fragment requests the permissions itself, a backend not backed by the system would be bypassed
+        if (headlessFragmentRequests && permissionBackend != null
+                && !ManifestPermissionIndex.queriesSystem(permissionBackend))
+            throw new IllegalStateException("Headless fragment requests bypass the permission backend, "
+                    + "they cannot be enabled along with " + permissionBackend.getClass().getName());
         return new PermissionManager(this);
     }
 
@@ -56,6 +132,68 @@ public class PermissionManagerBuilder implements PermissionManagerBuilderContrac
         return this;
     }
 
+    @Override
+    public PermissionManagerBuilder enableBatchPermissionQuery() {
+        this.batchPermissionQuery = true;
+        return this;
+    }
+
+    @Override
+    public PermissionManagerBuilder enableMappedPermissionStore() {
+        this.mappedPermissionStore = true;
+        return this;
+    }
+
+    @Override
+    public PermissionManagerBuilder enableHeadlessFragmentRequests() {
+        this.headlessFragmentRequests = true;
+        return this;
+    }
+
+    @Override
+    public PermissionManagerBuilder setRequestCoalescingWindow(long windowMillis) {
+        this.requestCoalescingWindow = Math.max(0, windowMillis);
+        return this;
+    }
+
+    @Override
+    public PermissionManagerBuilder enableRationaleDialogPrewarm() {
+        this.rationaleDialogPrewarm = true;
+        return this;
+    }
+
+    @Override
+    public PermissionManagerBuilder setPermissionBackend(PermissionBackend permissionBackend) {
+        this.permissionBackend = permissionBackend;
+        return this;
+    }
+
+    @Override
+    public PermissionManagerBuilder setPermissionMetrics(PermissionMetrics permissionMetrics) {
+        this.permissionMetrics = permissionMetrics;
+        return this;
+    }
+
+    @Override
+    public PermissionManagerBuilder enablePermissionTracing() {
+        this.permissionTracing = true;
+        return this;
+    }
+
+    /**
+     * Method to set the number of permission events kept by the flight recorder, 0 disables it.
+     * The recorder is shared by all the PermissionManagers of the process and keeps the capacity of the first one
+     * enabling it. A different capacity set on a later PermissionManager is ignored and a warning is logged.
+     *
+     * @param capacity the number of events to keep, rounded up to a power of two
+     * @return the builder
+     */
+    @Override
+    public PermissionManagerBuilder setFlightRecorderCapacity(int capacity) {
+        this.flightRecorderCapacity = Math.max(0, capacity);
+        return this;
+    }
+
     @Override
     public PermissionManagerBuilderContract addPermissionResponseListener(PermissionResponseListener permissionResponseListener) {
         this.permissionResponseListener = permissionResponseListener;
@@ -73,4 +211,40 @@ public class PermissionManagerBuilder implements PermissionManagerBuilderContrac
     View getSnackBarContainer() {
         return snackBarContainer;
     }
+
+    boolean isBatchPermissionQueryEnabled() {
+        return batchPermissionQuery;
+    }
+
+    boolean isMappedPermissionStoreEnabled() {
+        return mappedPermissionStore;
+    }
+
+    boolean isHeadlessFragmentRequestsEnabled() {
+        return headlessFragmentRequests;
+    }
+
+    long getRequestCoalescingWindow() {
+        return requestCoalescingWindow;
+    }
+
+    boolean isRationaleDialogPrewarmEnabled() {
+        return rationaleDialogPrewarm;
+    }
+
+    PermissionBackend getPermissionBackend() {
+        return permissionBackend != null ? permissionBackend : new PermissionCheckerBackend();
+    }
+
+    PermissionMetrics getPermissionMetrics() {
+        return permissionMetrics;
+    }
+
+    boolean isPermissionTracingEnabled() {
+        return permissionTracing;
+    }
+
+    int getFlightRecorderCapacity() {
+        return flightRecorderCapacity;
+    }
 }
@@ -0,0 +1,178 @@
+package in.notyouraveragedev.permissionmanager;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import in.notyouraveragedev.permissionmanager.service.PermissionBackend;
+
+/**
+ * The process-wide core shared by all the PermissionManagers, installed once from the {@link Application}
+ * using {@link PermissionManager#install(Application)}.
+ * <p>
+ * The core shares two things between the PermissionManagers.
+ * 1. The permission status caches, one per type of backend, so that a status learned in one activity
+ * is reused in every other one using the same kind of backend
+ * 2. The tracking of the activities using {@link Application.ActivityLifecycleCallbacks}, instead of one
+ * lifecycle observer per PermissionManager
+ * <p>
+ * Everything else is still built by each PermissionManager, i.e. its alert dialog, its PreferenceManager handle,
+ * its listener registration and its request queue.
+ * <p>
+ * Permission statuses can only change outside of a request while the application is in background
+ * (from the application info page in settings), so the shared cache is invalidated when the application
+ * returns to the foreground, instead of every time an activity is resumed.
+ * The persisted permission details and the requests in flight are already process-wide,
+ * held by {@link PreferenceManager} and {@link PermissionRequestTable}.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+class PermissionManagerCore implements Application.ActivityLifecycleCallbacks {
+
+    private static volatile PermissionManagerCore instance;
+
+    /**
+     * The permission status caches shared by the PermissionManagers, by the class of their backend
+     */
+    private final Map<Class<?>, PermissionStatusCache> permissionStatusCaches = new ConcurrentHashMap<>();
+
+    /**
+     * The PermissionManagers bound to each activity. Accessed on the main thread only
+     */
+    private final Map<Activity, List<Host>> hosts = new WeakHashMap<>();
+
+    /**
+     * The number of started activities, zero while the application is in background
+     */
+    private int startedActivityCount;
+
+    /**
+     * Constructor to create a core that is not installed, installing it is done by {@link #install(Application)}
+     */
+    PermissionManagerCore() {
+    }
+
+    /**
+     * Method to install the core, if not already installed
+     *
+     * @param application the application
+     * @return the installed core
+     */
+    static synchronized PermissionManagerCore install(Application application) {
+        if (instance == null) {
+            PermissionManagerCore core = new PermissionManagerCore();
+            application.registerActivityLifecycleCallbacks(core);
+            instance = core;
+        }
+        return instance;
+    }
+
+    /**
+     * @return the installed core, or null if the core has not been installed
+     */
+    static PermissionManagerCore get() {
+        return instance;
+    }
+
+    /**
+     * Method to get the permission status cache shared by the PermissionManagers using the same kind of backend.
+     * Statuses are only shared between the backends querying the Android Permission System,
+     * any other backend gets a cache of its own
+     *
+     * @param backend the backend of the PermissionManager
+     * @return the cache
+     */
+    PermissionStatusCache getPermissionStatusCache(PermissionBackend backend) {
+        if (!ManifestPermissionIndex.queriesSystem(backend))
+            return new PermissionStatusCache();
+
+        PermissionStatusCache permissionStatusCache = permissionStatusCaches.get(backend.getClass());
+        if (permissionStatusCache == null) {
+            PermissionStatusCache newCache = new PermissionStatusCache();
+            permissionStatusCache = permissionStatusCaches.putIfAbsent(backend.getClass(), newCache);
+            if (permissionStatusCache == null)
+                permissionStatusCache = newCache;
+        }
+        return permissionStatusCache;
+    }
+
+    /**
+     * Method to bind a PermissionManager to the lifecycle of its activity
+     *
+     * @param activity the activity
+     * @param host     the lifecycle callbacks of the PermissionManager
+     */
+    void bind(Activity activity, Host host) {
+        List<Host> activityHosts = hosts.get(activity);
+        if (activityHosts == null) {
+            activityHosts = new ArrayList<>(1);
+            hosts.put(activity, activityHosts);
+        }
+        activityHosts.add(host);
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+        // Returning from background, the permissions might have been changed from settings
+        if (startedActivityCount++ == 0)
+            for (PermissionStatusCache permissionStatusCache : permissionStatusCaches.values())
+                permissionStatusCache.invalidate();
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+        if (startedActivityCount > 0)
+            startedActivityCount--;
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+        List<Host> activityHosts = hosts.get(activity);
+        if (activityHosts != null)
+            for (Host host : activityHosts)
+                host.onHostPaused();
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+        List<Host> activityHosts = hosts.remove(activity);
+        if (activityHosts != null)
+            for (Host host : activityHosts)
+                host.onHostDestroyed(activity.isChangingConfigurations());
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+        // Not needed
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+        List<Host> activityHosts = hosts.get(activity);
+        if (activityHosts != null)
+            for (Host host : activityHosts)
+                host.onHostResumed();
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        // Not needed
+    }
+
+    /**
+     * The lifecycle callbacks of a PermissionManager bound to an activity
+     */
+    interface Host {
+        void onHostResumed();
+
+        void onHostPaused();
+
+        void onHostDestroyed(boolean changingConfigurations);
+    }
+}
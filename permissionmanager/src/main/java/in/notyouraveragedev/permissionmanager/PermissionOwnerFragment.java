@@ -0,0 +1,82 @@
+package in.notyouraveragedev.permissionmanager;
+
+import android.os.Bundle;
+
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentActivity;
+import androidx.fragment.app.FragmentManager;
+
+import java.util.UUID;
+
+/**
+ * The headless fragment identifying an activity using PermissionManager across configuration changes.
+ * <p>
+ * The fragment is retained, so the recreated activity finds the same fragment and the same owner key, and its
+ * PermissionManager adopts the waiters left in the {@link PermissionRequestTable} by the previous instance.
+ * Waiters that have not been adopted by the time the recreated activity is resumed, or once the activity
+ * is finished, are dropped.
+ * <p>
+ * This fragment is internal to PermissionManager and is not meant to be used directly.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+public class PermissionOwnerFragment extends Fragment {
+
+    private static final String FRAGMENT_TAG = "in.notyouraveragedev.permissionmanager.PermissionOwnerFragment";
+
+    /**
+     * The key identifying the activity, unique to this fragment
+     */
+    private final String ownerKey = UUID.randomUUID().toString();
+
+    /**
+     * Method to get the owner key of an activity, attaching the fragment if it is not present
+     *
+     * @param activity the activity
+     * @return the owner key, or null if the fragment cannot be attached
+     */
+    static String getOwnerKey(FragmentActivity activity) {
+        FragmentManager fragmentManager = activity.getSupportFragmentManager();
+        if (fragmentManager.isDestroyed())
+            return null;
+
+        Fragment fragment = fragmentManager.findFragmentByTag(FRAGMENT_TAG);
+        if (fragment instanceof PermissionOwnerFragment)
+            return ((PermissionOwnerFragment) fragment).ownerKey;
+
+        if (fragmentManager.isStateSaved())
+            return null;
+
+        PermissionOwnerFragment ownerFragment = new PermissionOwnerFragment();
+        try {
+            fragmentManager.beginTransaction()
+                    .add(ownerFragment, FRAGMENT_TAG)
+                    .commitNow();
+        } catch (IllegalStateException e) {
+            // The fragment manager is executing its transactions, the activity cannot be identified
+            return null;
+        }
+        return ownerFragment.ownerKey;
+    }
+
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setRetainInstance(true);
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        // The recreated activity had the chance to adopt the waiters of the previous instance
+        PermissionRequestTable.dropOrphans(ownerKey);
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        // Retained fragments are only destroyed once the activity is finished
+        PermissionRequestTable.dropOrphans(ownerKey);
+    }
+}
@@ -0,0 +1,30 @@
+package in.notyouraveragedev.permissionmanager;
+
+/**
+ * Contract of the engines used by {@link PermissionManager} to make permission requests to the Android Permission System
+ * and to open the application info page in settings.
+ * <p>
+ * Every operation is identified by the id under which it has been registered in the {@link PermissionRequestTable},
+ * and its results are reported back by dispatching them to the table using this id.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+interface PermissionRequestEngine {
+
+    /**
+     * Method to request permissions from the Android Permission System
+     *
+     * @param permissions the permissions to be requested
+     * @param requestId   the id of the request
+     */
+    void requestPermissions(String[] permissions, int requestId);
+
+    /**
+     * Method to open the application info page in settings,
+     * reporting the status of the permissions once the user returns
+     *
+     * @param permissions the permissions to be granted by the user
+     * @param requestId   the id of the request
+     */
+    void openSettings(String[] permissions, int requestId);
+}
@@ -0,0 +1,127 @@
+package in.notyouraveragedev.permissionmanager;
+
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.provider.Settings;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+
+import in.notyouraveragedev.permissionmanager.service.PermissionBackend;
+
+/**
+ * The headless fragment used by the {@link FragmentRequestEngine} to make permission requests
+ * to the Android Permission System and to open the Application Info Page in settings, without
+ * starting the transparent {@link RequestPermissionsActivity}.
+ * <p>
+ * The fragment is retained across configuration changes so that the results of pending operations are not lost.
+ * All data are returned to the PermissionManager that made the request using the {@link PermissionRequestTable}.
+ * <p>
+ * This fragment is internal to PermissionManager and is not meant to be used directly.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+public class PermissionRequestFragment extends Fragment {
+
+    /**
+     * The permissions of the pending operations, keyed by the request id
+     */
+    private final SparseArray<String[]> pendingOperations = new SparseArray<>();
+
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setRetainInstance(true);
+    }
+
+    /**
+     * Method to request permissions from the Android Permission System
+     *
+     * @param permissions the permissions to be requested
+     * @param requestId   the id of the request, used as the permission request code
+     */
+    void startPermissionRequest(String[] permissions, int requestId) {
+        trackOperation(permissions, requestId);
+        requestPermissions(permissions, requestId);
+    }
+
+    /**
+     * Method to open the application info page in settings
+     *
+     * @param permissions the permissions to be granted by the user
+     * @param requestId   the id of the request, used as the request code
+     */
+    void startSettingsRequest(String[] permissions, int requestId) {
+        trackOperation(permissions, requestId);
+        Intent permissionIntent = new Intent();
+        permissionIntent.setAction(Settings.ACTION_APPLICATION_DETAILS_SETTINGS);
+        permissionIntent.setData(Uri.fromParts(Constants.URI_SCHEME, requireActivity().getPackageName(), null));
+        startActivityForResult(permissionIntent, requestId);
+    }
+
+    /**
+     * Method to keep track of a pending operation. If the request is cancelled,
+     * the operation is dropped and its result will be ignored
+     *
+     * @param permissions the permissions of the operation
+     * @param requestId   the id of the request
+     */
+    private void trackOperation(String[] permissions, int requestId) {
+        pendingOperations.put(requestId, permissions);
+        PermissionRequestTable.setCanceller(requestId, () -> pendingOperations.remove(requestId));
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        String[] requestedPermissions = pendingOperations.get(requestCode);
+        pendingOperations.remove(requestCode);
+        if (requestedPermissions == null)
+            return;
+
+        if (grantResults.length == 0)
+            // The request was interrupted
+            sendCurrentStatus(requestCode, requestedPermissions);
+        else
+            sendResults(requestCode, permissions, grantResults);
+    }
+
+    @Override
+    public void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        String[] requestedPermissions = pendingOperations.get(requestCode);
+        pendingOperations.remove(requestCode);
+        if (requestedPermissions != null)
+            sendCurrentStatus(requestCode, requestedPermissions);
+    }
+
+    /**
+     * Method gets the current status of the permissions and notifies the listener
+     *
+     * @param requestId   the id of the request
+     * @param permissions the permissions
+     */
+    private void sendCurrentStatus(int requestId, String[] permissions) {
+        int[] grantResults = new int[permissions.length];
+        PermissionBackend permissionBackend = PermissionRequestTable.getBackend(requestId);
+        for (int i = 0; i < grantResults.length; i++)
+            grantResults[i] = permissionBackend.checkSelfPermission(requireActivity(), permissions[i]);
+        sendResults(requestId, permissions, grantResults);
+    }
+
+    /**
+     * Method routes the results to the PermissionManager that made the request
+     *
+     * @param requestId    the id of the request
+     * @param permissions  the permissions
+     * @param grantResults the current permission status
+     */
+    private void sendResults(int requestId, String[] permissions, int[] grantResults) {
+        if (!PermissionRequestTable.dispatch(requestId, permissions, grantResults))
+            Log.e("Permission Manager", "No request in flight with id " + requestId);
+    }
+}
@@ -0,0 +1,562 @@
+package in.notyouraveragedev.permissionmanager;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import in.notyouraveragedev.permissionmanager.listener.InternalPermissionListener;
+import in.notyouraveragedev.permissionmanager.metrics.PermissionMetrics;
+import in.notyouraveragedev.permissionmanager.registry.PermissionSet;
+import in.notyouraveragedev.permissionmanager.service.PermissionBackend;
+import in.notyouraveragedev.permissionmanager.service.PermissionCheckerBackend;
+
+/**
+ * Table of the permission requests that are in flight, i.e. being explained to the user or
+ * handed over to the Android Permission System or to the application info page in settings, and waiting for their results.
+ * <p>
+ * Every request is assigned a generated request id, which is passed along with the request and used as the
+ * request code towards the Android Permission System. When the results arrive, they are routed back
+ * to exactly the {@link RequestWaiter}s of the request, so requests from several PermissionManagers can be
+ * in flight at the same time.
+ * <p>
+ * A request for permissions that are all part of a request already in flight is attached to that request as
+ * another waiter instead of being made again, and receives the results of its permissions once they arrive.
+ * <p>
+ * If the activity of a PermissionManager is recreated due to a configuration change while its requests are in flight,
+ * its waiters are handed over to the next PermissionManager created for the recreated activity, identified by the
+ * owner key of its {@link PermissionOwnerFragment}. Results that arrive before the hand over are held back and
+ * delivered once the waiters have been adopted. Waiters that are not adopted by the time the recreated activity is
+ * resumed are dropped.
+ * <p>
+ * Waiters can be detached from a request, for example when an asynchronous request is cancelled. A request
+ * left without waiters is removed and its alert dialog, snackbar or transparent activity is torn down.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+class PermissionRequestTable {
+
+    /**
+     * Request ids are kept within the lower 16 bits allowed for permission request codes
+     */
+    private static final int MAX_REQUEST_ID = 0xFFFF;
+
+    private static final AtomicInteger requestIdSequence = new AtomicInteger();
+
+    private static final Map<Integer, InFlightRequest> inFlightRequests = new ConcurrentHashMap<>();
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * The backend of requests that are no longer in flight or whose backend is not known
+     */
+    private static final PermissionBackend defaultBackend = new PermissionCheckerBackend();
+
+    private PermissionRequestTable() {
+    }
+
+    /**
+     * Method to reserve the id of a new request, before its permissions are classified.
+     * The id is not used by any request in flight
+     *
+     * @return the request id
+     */
+    static int reserveRequestId() {
+        while (true) {
+            int requestId = requestIdSequence.incrementAndGet() & MAX_REQUEST_ID;
+            if (requestId != 0 && !inFlightRequests.containsKey(requestId))
+                return requestId;
+        }
+    }
+
+    /**
+     * Method to register a new request.
+     * The request cycle is traced as an async slice until its results are dispatched or it is cancelled
+     *
+     * @param requestId           the id reserved for the request using {@link #reserveRequestId()}
+     * @param issuer              the internal listener of the PermissionManager issuing the request
+     * @param trace               the trace of the PermissionManager issuing the request
+     * @param flightRecorder      the flight recorder of the application, null if disabled for the issuing PermissionManager
+     * @param waiters             the callers waiting for the results of the request
+     * @param resolvedPermissions the permissions whose results are already known and will not be requested
+     * @param resolvedResults     the results of the resolved permissions
+     * @param requestedPermissions the permissions that will be requested
+     * @param reportedPermissions  the permissions reported to the waiters, see {@link RequestWaiter#selectReportedPermissions}
+     * @param fallbackPermissions  the permissions reported to the waiters having none of the reported permissions
+     */
+    static void register(int requestId, InternalPermissionListener issuer, PermissionTrace trace,
+                         PermissionFlightRecorder flightRecorder, List<RequestWaiter> waiters,
+                         String[] resolvedPermissions, int[] resolvedResults, String[] requestedPermissions,
+                         PermissionSet reportedPermissions, PermissionSet fallbackPermissions) {
+        InFlightRequest inFlightRequest = new InFlightRequest(requestId, issuer, trace, flightRecorder, waiters,
+                resolvedPermissions, resolvedResults, reportedPermissions, fallbackPermissions);
+        for (String permission : requestedPermissions)
+            inFlightRequest.coveredPermissions.add(permission);
+        for (String permission : resolvedPermissions)
+            inFlightRequest.coveredPermissions.add(permission);
+        inFlightRequests.put(requestId, inFlightRequest);
+    }
+
+    /**
+     * Method to mark a request as handed over to the Android Permission System or to settings.
+     * From then on the request outlives the activity of the PermissionManager that issued it.
+     * The time until the results arrive is traced as an async slice
+     *
+     * @param requestId the request id
+     * @param backend   the backend of the PermissionManager that issued the request, used by the new handler of the request
+     * @param metrics   the collector of the PermissionManager that issued the request, null if none
+     * @param settings  true if the request is handed over to the application info page in settings
+     */
+    static void handOver(int requestId, PermissionBackend backend, PermissionMetrics metrics, boolean settings) {
+        InFlightRequest inFlightRequest = inFlightRequests.get(requestId);
+        if (inFlightRequest != null) {
+            synchronized (inFlightRequest) {
+                inFlightRequest.handedOver = true;
+                inFlightRequest.backend = backend;
+                inFlightRequest.metrics = metrics;
+                inFlightRequest.settings = settings;
+                if (metrics != null)
+                    inFlightRequest.handedOverAtNanos = System.nanoTime();
+                inFlightRequest.trace.beginAsyncSection(
+                        settings ? PermissionTrace.SETTINGS : PermissionTrace.SYSTEM_PROMPT, requestId);
+                // The new handler of the request sets its own canceller
+                inFlightRequest.canceller = null;
+            }
+        }
+    }
+
+    /**
+     * Method to get the backend with which a handed over request is to be made and its results checked
+     *
+     * @param requestId the request id
+     * @return the backend of the request, or the default backend if the request is no longer in flight
+     */
+    static PermissionBackend getBackend(int requestId) {
+        InFlightRequest inFlightRequest = inFlightRequests.get(requestId);
+        if (inFlightRequest != null) {
+            synchronized (inFlightRequest) {
+                if (inFlightRequest.backend != null)
+                    return inFlightRequest.backend;
+            }
+        }
+        return defaultBackend;
+    }
+
+    /**
+     * Method to set how the alert dialog, snackbar, transparent activity or headless fragment
+     * currently handling a request is torn down, if all the waiters of the request are detached
+     *
+     * @param requestId the request id
+     * @param canceller tears down the handling of the request, run on the thread detaching the last waiter
+     * @return false if the request is no longer in flight, in which case the handling should be torn down right away
+     */
+    static boolean setCanceller(int requestId, Runnable canceller) {
+        InFlightRequest inFlightRequest = inFlightRequests.get(requestId);
+        if (inFlightRequest == null)
+            return false;
+        synchronized (inFlightRequest) {
+            if (inFlightRequest.completed || inFlightRequest.waiters.isEmpty())
+                return false;
+            inFlightRequest.canceller = canceller;
+            return true;
+        }
+    }
+
+    /**
+     * Method to detach a waiter from the request it is waiting for.
+     * If no other waiters are left, the request is cancelled and its handling is torn down
+     *
+     * @param waiter the waiter
+     * @return true if the waiter was waiting for a request in flight
+     */
+    static boolean detach(RequestWaiter waiter) {
+        for (Map.Entry<Integer, InFlightRequest> entry : inFlightRequests.entrySet()) {
+            InFlightRequest inFlightRequest = entry.getValue();
+            Runnable canceller;
+            PermissionMetrics metrics;
+            synchronized (inFlightRequest) {
+                if (!inFlightRequest.waiters.remove(waiter))
+                    continue;
+                if (!inFlightRequest.waiters.isEmpty())
+                    return true;
+                inFlightRequests.remove(entry.getKey());
+                canceller = inFlightRequest.completed ? null : inFlightRequest.canceller;
+                metrics = takeCancelledMetrics(inFlightRequest);
+                complete(inFlightRequest);
+            }
+            if (canceller != null)
+                canceller.run();
+            if (metrics != null)
+                metrics.onRequestCancelled(entry.getKey());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Method to attach a waiter to a request in flight that covers all the permissions of the waiter
+     *
+     * @param waiter the waiter
+     * @return true if the waiter has been attached, false if no request in flight covers its permissions
+     */
+    static boolean attach(RequestWaiter waiter) {
+        PermissionSet waiterPermissions = PermissionSet.of(waiter.permissions);
+        for (InFlightRequest inFlightRequest : inFlightRequests.values()) {
+            synchronized (inFlightRequest) {
+                if (!inFlightRequest.completed && inFlightRequest.coveredPermissions.containsAll(waiterPermissions)) {
+                    waiter.selectReportedPermissions(inFlightRequest.reportedPermissions,
+                            inFlightRequest.fallbackPermissions);
+                    inFlightRequest.waiters.add(waiter);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method to route the results of a request back to its waiters.
+     * The request is removed from the table once its results have been delivered.
+     *
+     * @param requestId    the request id
+     * @param permissions  the requested permissions
+     * @param grantResults the status of the requested permissions
+     * @return true if the request was found in the table
+     */
+    static boolean dispatch(int requestId, String[] permissions, int[] grantResults) {
+        return dispatch(requestId, permissions, grantResults, false);
+    }
+
+    /**
+     * Method to route the results of a request back to its waiters.
+     * A replay delivers the results held back for adopted waiters, it brings no new results and is not recorded.
+     *
+     * @param requestId    the request id
+     * @param permissions  the requested permissions
+     * @param grantResults the status of the requested permissions
+     * @param replay       whether the results held back for adopted waiters are being delivered
+     * @return true if the request was found in the table
+     */
+    private static boolean dispatch(int requestId, String[] permissions, int[] grantResults, boolean replay) {
+        InFlightRequest inFlightRequest = inFlightRequests.get(requestId);
+        if (inFlightRequest == null)
+            return false;
+
+        List<RequestWaiter> readyWaiters = new ArrayList<>();
+        String[] allPermissions;
+        int[] allResults;
+        PermissionMetrics metrics = null;
+        boolean settings;
+        long handOverDuration = 0;
+        synchronized (inFlightRequest) {
+            // The time spent with the Android Permission System or in settings is reported once, when the results arrive
+            if (inFlightRequest.handedOver && !inFlightRequest.completed && inFlightRequest.metrics != null) {
+                metrics = inFlightRequest.metrics;
+                handOverDuration = System.nanoTime() - inFlightRequest.handedOverAtNanos;
+            }
+            settings = inFlightRequest.settings;
+            complete(inFlightRequest);
+            allPermissions = concat(inFlightRequest.resolvedPermissions, permissions);
+            allResults = concat(inFlightRequest.resolvedResults, grantResults);
+
+            Iterator<RequestWaiter> iterator = inFlightRequest.waiters.iterator();
+            while (iterator.hasNext()) {
+                RequestWaiter waiter = iterator.next();
+                if (!waiter.isOrphaned()) {
+                    readyWaiters.add(waiter);
+                    iterator.remove();
+                }
+            }
+
+            if (inFlightRequest.waiters.isEmpty()) {
+                inFlightRequests.remove(requestId);
+            } else {
+                // The owners of the remaining waiters are being recreated, the results are held back until adopted
+                inFlightRequest.resolvedPermissions = allPermissions;
+                inFlightRequest.resolvedResults = allResults;
+            }
+        }
+
+        if (inFlightRequest.flightRecorder != null && !replay)
+            inFlightRequest.flightRecorder.record(PermissionFlightRecorder.Event.RESULT, requestId,
+                    permissions, grantResults);
+        if (metrics != null) {
+            if (settings)
+                metrics.onSettingsRoundTripCompleted(requestId, permissions, grantResults, handOverDuration);
+            else
+                metrics.onSystemPromptCompleted(requestId, permissions, grantResults, handOverDuration);
+        }
+        inFlightRequest.trace.beginSection(PermissionTrace.DISPATCH, requestId);
+        try {
+            for (RequestWaiter waiter : readyWaiters)
+                waiter.deliver(requestId, allPermissions, allResults);
+        } finally {
+            inFlightRequest.trace.endSection();
+        }
+        return true;
+    }
+
+    /**
+     * Method to release the requests of a PermissionManager whose activity has been destroyed.
+     * <p>
+     * Requests issued by the PermissionManager that have not been handed over yet (the alert dialog or snackbar
+     * is still showing) are cancelled, and the waiters of other PermissionManagers attached to them are notified
+     * that the permissions were skipped.
+     * <p>
+     * The waiters of the PermissionManager are kept to be adopted by the next PermissionManager of the recreated
+     * activity if the activity is being recreated due to a configuration change, otherwise they are dropped.
+     *
+     * @param listener               the internal listener of the PermissionManager
+     * @param changingConfigurations whether the activity is being recreated and can be identified once recreated
+     */
+    static void release(InternalPermissionListener listener, boolean changingConfigurations) {
+        Map<RequestWaiter, Integer> cancelledWaiters = new LinkedHashMap<>();
+        List<Runnable> cancellationReports = new ArrayList<>();
+        Iterator<InFlightRequest> requestIterator = inFlightRequests.values().iterator();
+        while (requestIterator.hasNext()) {
+            InFlightRequest inFlightRequest = requestIterator.next();
+            synchronized (inFlightRequest) {
+                boolean cancelled = !inFlightRequest.handedOver && !inFlightRequest.completed
+                        && inFlightRequest.issuerReference.get() == listener;
+
+                Iterator<RequestWaiter> waiterIterator = inFlightRequest.waiters.iterator();
+                while (waiterIterator.hasNext()) {
+                    RequestWaiter waiter = waiterIterator.next();
+                    if (waiter.getListener() == listener) {
+                        if (changingConfigurations && !cancelled)
+                            waiter.orphan();
+                        else
+                            waiterIterator.remove();
+                    } else if (cancelled) {
+                        cancelledWaiters.put(waiter, inFlightRequest.requestId);
+                    }
+                }
+
+                if (cancelled || inFlightRequest.waiters.isEmpty()) {
+                    requestIterator.remove();
+                    addCancellationReport(inFlightRequest, cancellationReports);
+                    complete(inFlightRequest);
+                }
+            }
+        }
+
+        for (Runnable cancellationReport : cancellationReports)
+            cancellationReport.run();
+
+        for (Map.Entry<RequestWaiter, Integer> entry : cancelledWaiters.entrySet()) {
+            RequestWaiter waiter = entry.getKey();
+            int[] skippedResults = new int[waiter.permissions.length];
+            Arrays.fill(skippedResults, Constants.PERMISSON_SKIPPED);
+            waiter.deliver(entry.getValue(), waiter.permissions, skippedResults);
+        }
+    }
+
+    /**
+     * Method to hand over the waiters left behind by a recreated activity to its new PermissionManager.
+     * Results that have already arrived for these waiters are delivered on the main thread.
+     *
+     * @param ownerKey      the key identifying the owner activity
+     * @param listener      the internal listener of the new PermissionManager
+     * @param listenerToken the token of the listener of the new PermissionManager
+     */
+    static void adopt(String ownerKey, InternalPermissionListener listener, String listenerToken) {
+        for (Map.Entry<Integer, InFlightRequest> entry : inFlightRequests.entrySet()) {
+            InFlightRequest inFlightRequest = entry.getValue();
+            boolean adopted = false;
+            synchronized (inFlightRequest) {
+                for (RequestWaiter waiter : inFlightRequest.waiters) {
+                    if (waiter.isOrphaned() && ownerKey.equals(waiter.ownerKey)) {
+                        waiter.adopt(listener, listenerToken);
+                        adopted = true;
+                    }
+                }
+                if (!adopted || !inFlightRequest.completed)
+                    continue;
+            }
+
+            // The results have already arrived, delivering them once the new PermissionManager is ready
+            int requestId = entry.getKey();
+            mainHandler.post(() -> dispatch(requestId, new String[0], new int[0], true));
+        }
+    }
+
+    /**
+     * Method to drop the waiters left behind by an activity that have not been adopted, either because the recreated
+     * activity did not create a PermissionManager before being resumed or because the activity has been finished.
+     * Requests left without waiters are cancelled and their handling is torn down
+     *
+     * @param ownerKey the key identifying the owner activity
+     */
+    static void dropOrphans(String ownerKey) {
+        List<Runnable> cancellers = new ArrayList<>();
+        Iterator<InFlightRequest> requestIterator = inFlightRequests.values().iterator();
+        while (requestIterator.hasNext()) {
+            InFlightRequest inFlightRequest = requestIterator.next();
+            synchronized (inFlightRequest) {
+                boolean dropped = false;
+                Iterator<RequestWaiter> waiterIterator = inFlightRequest.waiters.iterator();
+                while (waiterIterator.hasNext()) {
+                    RequestWaiter waiter = waiterIterator.next();
+                    if (waiter.isOrphaned() && ownerKey.equals(waiter.ownerKey)) {
+                        waiterIterator.remove();
+                        dropped = true;
+                    }
+                }
+                if (!dropped || !inFlightRequest.waiters.isEmpty())
+                    continue;
+                requestIterator.remove();
+                if (!inFlightRequest.completed && inFlightRequest.canceller != null)
+                    cancellers.add(inFlightRequest.canceller);
+                addCancellationReport(inFlightRequest, cancellers);
+                complete(inFlightRequest);
+            }
+        }
+
+        for (Runnable canceller : cancellers)
+            canceller.run();
+    }
+
+    /**
+     * Method to take the collector to be told that a request is cancelled, if the request has been handed over
+     * and its results have not arrived yet. Must be called while holding the lock of the request, before completing it
+     *
+     * @param inFlightRequest the request being cancelled
+     * @return the collector of the request, or null if it does not need to be told
+     */
+    private static PermissionMetrics takeCancelledMetrics(InFlightRequest inFlightRequest) {
+        return inFlightRequest.handedOver && !inFlightRequest.completed ? inFlightRequest.metrics : null;
+    }
+
+    /**
+     * Method to add the report of the cancellation of a request to the collector of the request, if needed,
+     * to be run once the lock of the request has been released
+     *
+     * @param inFlightRequest the request being cancelled
+     * @param reports         the reports to be run
+     */
+    private static void addCancellationReport(InFlightRequest inFlightRequest, List<Runnable> reports) {
+        PermissionMetrics metrics = takeCancelledMetrics(inFlightRequest);
+        if (metrics != null) {
+            int requestId = inFlightRequest.requestId;
+            reports.add(() -> metrics.onRequestCancelled(requestId));
+        }
+    }
+
+    /**
+     * Method to mark a request as completed, ending its async slices the first time.
+     * Must be called while holding the lock of the request
+     *
+     * @param inFlightRequest the request
+     */
+    private static void complete(InFlightRequest inFlightRequest) {
+        if (inFlightRequest.completed)
+            return;
+        inFlightRequest.completed = true;
+        PermissionTrace trace = inFlightRequest.trace;
+        if (inFlightRequest.handedOver)
+            trace.endAsyncSection(inFlightRequest.settings ? PermissionTrace.SETTINGS : PermissionTrace.SYSTEM_PROMPT,
+                    inFlightRequest.requestId);
+        trace.endAsyncSection(PermissionTrace.REQUEST, inFlightRequest.requestId);
+    }
+
+    /**
+     * @return the number of requests in flight
+     */
+    static int size() {
+        return inFlightRequests.size();
+    }
+
+    private static String[] concat(String[] first, String[] second) {
+        if (first.length == 0)
+            return second;
+        String[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private static int[] concat(int[] first, int[] second) {
+        if (first.length == 0)
+            return second;
+        int[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    /**
+     * The details of a request in flight
+     */
+    private static class InFlightRequest {
+        private final int requestId;
+        /**
+         * The PermissionManager that issued the request
+         */
+        private final WeakReference<InternalPermissionListener> issuerReference;
+        /**
+         * The trace of the PermissionManager that issued the request
+         */
+        private final PermissionTrace trace;
+        /**
+         * The flight recorder of the application, null if disabled for the PermissionManager that issued the request
+         */
+        private final PermissionFlightRecorder flightRecorder;
+        /**
+         * The callers waiting for the results
+         */
+        private final List<RequestWaiter> waiters;
+        /**
+         * All the permissions the request will provide results for
+         */
+        private final PermissionSet coveredPermissions = new PermissionSet();
+        /**
+         * The permissions reported to the waiters, and those reported to the waiters having none of them
+         */
+        private final PermissionSet reportedPermissions;
+        private final PermissionSet fallbackPermissions;
+        /**
+         * The permissions whose results are known without asking the Android Permission System,
+         * and once the request has completed, the results held back for orphaned waiters
+         */
+        private String[] resolvedPermissions;
+        private int[] resolvedResults;
+        private boolean handedOver;
+        private boolean completed;
+        /**
+         * The backend of the PermissionManager that issued the request, once handed over
+         */
+        private PermissionBackend backend;
+        /**
+         * The collector of the PermissionManager that issued the request and when the request was handed over,
+         * whether to the Android Permission System or to settings
+         */
+        private PermissionMetrics metrics;
+        private long handedOverAtNanos;
+        private boolean settings;
+        /**
+         * Tears down the handling of the request once no waiter is left
+         */
+        private Runnable canceller;
+
+        private InFlightRequest(int requestId, InternalPermissionListener issuer, PermissionTrace trace,
+                                PermissionFlightRecorder flightRecorder, List<RequestWaiter> waiters,
+                                String[] resolvedPermissions, int[] resolvedResults,
+                                PermissionSet reportedPermissions, PermissionSet fallbackPermissions) {
+            this.requestId = requestId;
+            this.issuerReference = new WeakReference<>(issuer);
+            this.trace = trace;
+            this.flightRecorder = flightRecorder;
+            this.waiters = new ArrayList<>(waiters);
+            this.resolvedPermissions = resolvedPermissions;
+            this.resolvedResults = resolvedResults;
+            this.reportedPermissions = reportedPermissions;
+            this.fallbackPermissions = fallbackPermissions;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package in.notyouraveragedev.permissionmanager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory cache of permission statuses used by {@link PermissionManager} to avoid
+ * a binder round trip to the Android Permission System on every status check.
+ * <p>
+ * The cached statuses are only valid between lifecycle events that can change a permission status
+ * (the host activity being resumed or a permission request / settings round trip finishing),
+ * so the cache must be invalidated by the owner whenever such an event occurs.
+ * <p>
+ * Hit and miss counters are maintained so that the savings can be measured.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+class PermissionStatusCache {
+
+    /**
+     * The cached permission statuses
+     */
+    private final Map<String, Integer> permissionStatuses = new ConcurrentHashMap<>();
+
+    /**
+     * Number of lookups answered from the cache
+     */
+    private final AtomicLong hitCount = new AtomicLong();
+
+    /**
+     * Number of lookups that had to query the Android Permission System
+     */
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Method to get the cached status of a permission.
+     *
+     * @param permission the permission to look up
+     * @return the cached status, or null if the status is not cached
+     */
+    Integer get(String permission) {
+        Integer permissionStatus = permissionStatuses.get(permission);
+        if (permissionStatus != null)
+            hitCount.incrementAndGet();
+        else
+            missCount.incrementAndGet();
+        return permissionStatus;
+    }
+
+    /**
+     * Method to cache the status of a permission
+     *
+     * @param permission       the permission
+     * @param permissionStatus the current status of the permission
+     */
+    void put(String permission, int permissionStatus) {
+        permissionStatuses.put(permission, permissionStatus);
+    }
+
+    /**
+     * Method to drop all the cached statuses
+     */
+    void invalidate() {
+        permissionStatuses.clear();
+    }
+
+    long getHitCount() {
+        return hitCount.get();
+    }
+
+    long getMissCount() {
+        return missCount.get();
+    }
+}
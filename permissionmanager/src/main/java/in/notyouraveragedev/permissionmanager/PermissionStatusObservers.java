@@ -0,0 +1,155 @@
+package in.notyouraveragedev.permissionmanager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+import in.notyouraveragedev.permissionmanager.listener.PermissionStatusObserver;
+import in.notyouraveragedev.permissionmanager.registry.PermissionSet;
+import in.notyouraveragedev.permissionmanager.responses.PermissionResults;
+
+/**
+ * The {@link PermissionStatusObserver}s of a PermissionManager.
+ * <p>
+ * On every refresh the union of all the observed permissions is checked once, and each observer is notified,
+ * on its own executor, of only the permissions it observes whose status has changed since the last refresh.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+class PermissionStatusObservers {
+
+    /**
+     * Checks the current status of multiple permissions
+     */
+    interface StatusChecker {
+        int[] checkPermissionStatuses(String[] permissions);
+    }
+
+    private final StatusChecker statusChecker;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * The statuses of the observed permissions as of the last refresh
+     */
+    private final Map<String, Integer> lastStatuses = new HashMap<>();
+
+    PermissionStatusObservers(StatusChecker statusChecker) {
+        this.statusChecker = statusChecker;
+    }
+
+    /**
+     * Method to add an observer. The observer is notified of the current status of all its permissions,
+     * in the order in which they are given
+     *
+     * @param permissions the permissions to observe
+     * @param executor    the executor on which the observer is notified
+     * @param observer    the observer
+     */
+    void add(String[] permissions, Executor executor, PermissionStatusObserver observer) {
+        PermissionSet observedPermissions = new PermissionSet();
+        List<String> permissionOrder = new ArrayList<>();
+        for (String permission : permissions)
+            if (observedPermissions.add(permission))
+                permissionOrder.add(permission);
+        Subscription subscription = new Subscription(observedPermissions,
+                permissionOrder.toArray(new String[0]), executor, observer);
+        subscriptions.add(subscription);
+        refresh(subscription);
+    }
+
+    /**
+     * Method to remove an observer
+     *
+     * @param observer the observer
+     * @return true if the observer was found
+     */
+    boolean remove(PermissionStatusObserver observer) {
+        boolean removed = false;
+        for (Subscription subscription : subscriptions) {
+            if (subscription.observer == observer)
+                removed |= subscriptions.remove(subscription);
+        }
+        return removed;
+    }
+
+    void clear() {
+        subscriptions.clear();
+        synchronized (lastStatuses) {
+            lastStatuses.clear();
+        }
+    }
+
+    /**
+     * Method to check the observed permissions and notify the observers of the changed ones
+     */
+    void refresh() {
+        refresh(null);
+    }
+
+    /**
+     * @param newSubscription a subscription to notify of all its permissions, or null
+     */
+    private void refresh(Subscription newSubscription) {
+        if (subscriptions.isEmpty())
+            return;
+
+        PermissionSet observedPermissions = new PermissionSet();
+        for (Subscription subscription : subscriptions)
+            observedPermissions.addAll(subscription.permissions);
+        String[] permissions = observedPermissions.toArray();
+        int[] statuses = statusChecker.checkPermissionStatuses(permissions);
+
+        PermissionSet changedPermissions = new PermissionSet();
+        Map<String, Integer> currentStatuses = new HashMap<>();
+        synchronized (lastStatuses) {
+            for (int i = 0; i < permissions.length; i++) {
+                Integer lastStatus = lastStatuses.put(permissions[i], statuses[i]);
+                if (lastStatus != null && lastStatus != statuses[i])
+                    changedPermissions.add(permissions[i]);
+                currentStatuses.put(permissions[i], statuses[i]);
+            }
+            // Permissions no longer observed are forgotten
+            lastStatuses.keySet().retainAll(currentStatuses.keySet());
+        }
+
+        PermissionSet notifiedPermissions = new PermissionSet();
+        for (Subscription subscription : subscriptions) {
+            notifiedPermissions.copyFrom(subscription.permissions);
+            if (subscription != newSubscription) {
+                notifiedPermissions.retainAll(changedPermissions);
+                if (notifiedPermissions.isEmpty())
+                    continue;
+            }
+            String[] notified = notifiedPermissions.toArray(subscription.permissionOrder);
+            int[] notifiedStatuses = new int[notified.length];
+            for (int i = 0; i < notified.length; i++)
+                notifiedStatuses[i] = currentStatuses.get(notified[i]);
+
+            PermissionResults results = new PermissionResults(notified, notifiedStatuses);
+            subscription.executor.execute(() -> {
+                // The observer might have been removed meanwhile
+                if (subscriptions.contains(subscription))
+                    subscription.observer.onPermissionStatusChanged(results);
+            });
+        }
+    }
+
+    private static class Subscription {
+        private final PermissionSet permissions;
+        private final String[] permissionOrder;
+        private final Executor executor;
+        private final PermissionStatusObserver observer;
+
+        private Subscription(PermissionSet permissions, String[] permissionOrder, Executor executor,
+                             PermissionStatusObserver observer) {
+            this.permissions = permissions;
+            this.permissionOrder = permissionOrder;
+            this.executor = executor;
+            this.observer = observer;
+        }
+    }
+}
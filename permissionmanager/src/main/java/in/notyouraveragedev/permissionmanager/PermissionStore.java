@@ -0,0 +1,74 @@
+package in.notyouraveragedev.permissionmanager;
+
+/**
+ * Storage backend used by {@link PreferenceManager} to persist the permanently denied status
+ * and the request history of permissions.
+ * <p>
+ * Implementations are shared across all the {@link PreferenceManager} instances of the process
+ * and must be thread safe.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+interface PermissionStore {
+
+    /**
+     * @param permission the permission to be checked
+     * @return whether the permission has been marked as permanently denied
+     */
+    boolean isPermanentlyDenied(String permission);
+
+    /**
+     * Method to mark or un-mark a permission as permanently denied
+     *
+     * @param permission        the permission
+     * @param permanentlyDenied whether the permission has been permanently denied
+     */
+    void setPermanentlyDenied(String permission, boolean permanentlyDenied);
+
+    /**
+     * Method to record that a permission has been requested from the Android Permission System
+     *
+     * @param permission the requested permission
+     */
+    void recordRequest(String permission);
+
+    /**
+     * Method to record that a permission has been granted
+     *
+     * @param permission the granted permission
+     * @param timestamp  the time at which the permission was granted, in milliseconds
+     */
+    void recordGranted(String permission, long timestamp);
+
+    /**
+     * Method to record that a permission has been denied
+     *
+     * @param permission the denied permission
+     * @param timestamp  the time at which the permission was denied, in milliseconds
+     */
+    void recordDenied(String permission, long timestamp);
+
+    /**
+     * @param permission the permission
+     * @return the number of times the permission has been requested, 0 if not tracked
+     */
+    int getRequestCount(String permission);
+
+    /**
+     * @param permission the permission
+     * @return the time the permission was last denied, 0 if not tracked
+     */
+    long getLastDeniedTime(String permission);
+
+    /**
+     * @param permission the permission
+     * @return the time the permission was last granted, 0 if not tracked
+     */
+    long getLastGrantedTime(String permission);
+
+    /**
+     * Method to write back all the pending changes to the storage.
+     * The write back happens asynchronously.
+     */
+    void flush();
+}
@@ -0,0 +1,141 @@
+package in.notyouraveragedev.permissionmanager;
+
+import androidx.core.os.TraceCompat;
+
+/**
+ * Trace sections and async slices of the stages of the permission requests, shown by Systrace and Perfetto.
+ * <p>
+ * Sections are emitted only by PermissionManagers built with
+ * {@link PermissionManagerBuilder#enablePermissionTracing()}, so that nothing is traced and no section name
+ * is built otherwise. The sections and slices of a request are named with its request id, so that overlapping
+ * requests can be told apart
+ * 1. The classification of the permissions, as a section
+ * 2. The inflation and showing of the alert dialog, as a section
+ * 3. The whole request cycle, as an async slice from the classification until the results are dispatched
+ * 4. The time spent with the Android Permission System or in settings, as an async slice from the launch of
+ * the transparent activity or headless fragment until the results arrive
+ * 5. The dispatch of the results to the waiters of the request, as a section
+ * <p>
+ * The permission store is shared by all the PermissionManagers, so its loads and write backs on the background
+ * thread are traced once any PermissionManager has enabled tracing. They are not tied to a single request.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+class PermissionTrace {
+
+    /**
+     * The trace of PermissionManagers that have not enabled tracing
+     */
+    static final PermissionTrace DISABLED = new PermissionTrace(false);
+
+    private static final String PREFIX = "PermissionManager#";
+
+    static final String CLASSIFY = PREFIX + "classify ";
+    static final String SHOW_ALERT_DIALOG = PREFIX + "showAlertDialog ";
+    static final String REQUEST = PREFIX + "request ";
+    static final String SYSTEM_PROMPT = PREFIX + "systemPrompt ";
+    static final String SETTINGS = PREFIX + "settings ";
+    static final String DISPATCH = PREFIX + "dispatch ";
+    static final String AWAIT_PREFERENCES = PREFIX + "awaitPreferences";
+    static final String FLUSH_PREFERENCES = PREFIX + "flushPreferences";
+    static final String LOAD_PREFERENCES = PREFIX + "loadPreferences";
+    static final String WRITE_PREFERENCES = PREFIX + "writePreferences";
+
+    /**
+     * Whether any PermissionManager of the process has enabled tracing
+     */
+    private static volatile boolean enabledInProcess;
+
+    private final boolean enabled;
+
+    private PermissionTrace(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Method to get the trace of a PermissionManager
+     *
+     * @param enabled whether tracing has been enabled for the PermissionManager
+     * @return the trace
+     */
+    static PermissionTrace of(boolean enabled) {
+        if (!enabled)
+            return DISABLED;
+        enabledInProcess = true;
+        return new PermissionTrace(true);
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Method to begin a section of a request on the current thread. Must be ended by {@link #endSection()}
+     *
+     * @param name      the name of the section
+     * @param requestId the id of the request
+     */
+    void beginSection(String name, int requestId) {
+        if (enabled)
+            TraceCompat.beginSection(name + requestId);
+    }
+
+    /**
+     * Method to begin a section on the current thread that is not tied to a request.
+     * Must be ended by {@link #endSection()}
+     *
+     * @param name the name of the section
+     */
+    void beginSection(String name) {
+        if (enabled)
+            TraceCompat.beginSection(name);
+    }
+
+    void endSection() {
+        if (enabled)
+            TraceCompat.endSection();
+    }
+
+    /**
+     * Method to begin an async slice of a request, which may end on another thread or in another component
+     *
+     * @param name      the name of the slice
+     * @param requestId the id of the request
+     */
+    void beginAsyncSection(String name, int requestId) {
+        if (enabled)
+            TraceCompat.beginAsyncSection(name + requestId, requestId);
+    }
+
+    /**
+     * Method to end an async slice begun by {@link #beginAsyncSection(String, int)}
+     *
+     * @param name      the name of the slice
+     * @param requestId the id of the request
+     */
+    void endAsyncSection(String name, int requestId) {
+        if (enabled)
+            TraceCompat.endAsyncSection(name + requestId, requestId);
+    }
+
+    /**
+     * Method to begin a section of the shared permission store, see {@link #endSharedSection(boolean)}
+     *
+     * @param name the name of the section
+     * @return true if the section has begun and must be ended
+     */
+    static boolean beginSharedSection(String name) {
+        if (!enabledInProcess)
+            return false;
+        TraceCompat.beginSection(name);
+        return true;
+    }
+
+    /**
+     * @param begun the value returned by {@link #beginSharedSection(String)}
+     */
+    static void endSharedSection(boolean begun) {
+        if (begun)
+            TraceCompat.endSection();
+    }
+}
@@ -1,63 +1,327 @@
 package in.notyouraveragedev.permissionmanager;
 
 import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import in.notyouraveragedev.simplepreference.SimplePreferenceManager;
 
 /**
- * Preference Manager wrapper class over the {@link SimplePreferenceManager}
- * for all {@link android.content.SharedPreferences} operations
+ * Preference Manager class for all the persisted permission details.
+ * <p>
+ * The details are stored using a {@link PermissionStore}. By default the {@link SharedPreferencesPermissionStore}
+ * is used, storing the permanently denied permissions in a {@link SharedPreferences} file.
+ * The {@link MappedPermissionStore} can be enabled to store the permanently denied status along with the
+ * request history of each permission in a memory mapped file. The existing entries of the {@link SharedPreferences}
+ * file are migrated to the mapped store once, and are only removed from the SharedPreferences file once the
+ * migrated store has been opened again, so that they are still there if the mapped store fails in between.
+ * <p>
+ * The stores are loaded on a background executor, so that creating a PreferenceManager never touches the disk.
+ * The load is only awaited by the first call that needs the persisted details, callers on the main thread can
+ * use {@link #isLoaded()} and {@link #whenLoaded(Runnable)} to avoid waiting. If the store cannot be loaded,
+ * the permission details are only kept in memory, see {@link InMemoryPermissionStore}.
+ * <p>
+ * Changes are written back to the store in a single batch on the same executor whenever {@link #flush()} is called.
+ * <p>
+ * Waiting for the load and writing back are traced as sections when tracing has been enabled, see {@link PermissionTrace}.
  * <p>
  * Created by A Anand on 19-05-2020
  */
 class PreferenceManager {
+
+    /**
+     * Single background thread used for loading the stores and for all write backs,
+     * so that batches are committed in order and never before the store has been loaded
+     */
+    private static final ExecutorService writeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "PermissionManager-Preferences");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The executor on which the stores write back their changes, tracing every write back
+     */
+    private static final Executor tracedWriteExecutor = runnable -> writeExecutor.execute(() -> {
+        boolean traced = PermissionTrace.beginSharedSection(PermissionTrace.WRITE_PREFERENCES);
+        try {
+            runnable.run();
+        } finally {
+            PermissionTrace.endSharedSection(traced);
+        }
+    });
+
+    /**
+     * The stores are shared by all the PreferenceManager instances, so that they all see the same state.
+     * They are loaded on the background thread, which also precedes any write back
+     */
+    private static Future<PermissionStore> sharedPreferencesStoreLoader;
+    private static Future<PermissionStore> mappedStoreLoader;
+    private static PermissionStore sharedPreferencesStore;
+
     /**
-     * The SimplePreferenceManager
+     * The pending load of the store holding the permission details, and the store once it has been loaded
      */
-    private SimplePreferenceManager simplePreferenceManager;
+    private final Future<PermissionStore> permissionStoreLoader;
+    private volatile PermissionStore permissionStore;
 
     /**
-     * Constructor to initialize an instance of PreferenceManager specifying
-     * the {@link android.content.SharedPreferences} file name, using {@link Context#MODE_PRIVATE}
-     * operation mode and without any object storage support.
+     * The trace of the PermissionManager using this PreferenceManager
+     */
+    private final PermissionTrace trace;
+
+    /**
+     * Constructor to initialize an instance of PreferenceManager.
+     * The store is loaded in the background and is only awaited when the permission details are first needed
      *
-     * @param context the activity context
+     * @param context        the activity context
+     * @param useMappedStore whether the {@link MappedPermissionStore} is to be used
+     * @param trace          the trace of the PermissionManager
      */
-    PreferenceManager(Context context) {
-        simplePreferenceManager = new SimplePreferenceManager.SimplePreferenceManagerBuilder(context)
+    PreferenceManager(Context context, boolean useMappedStore, PermissionTrace trace) {
+        permissionStoreLoader = load(context, useMappedStore);
+        this.trace = trace;
+    }
+
+    /**
+     * Method to start loading a store in the background, if it is not already loaded or being loaded
+     *
+     * @param context        any context of the application
+     * @param useMappedStore whether the {@link MappedPermissionStore} is to be loaded
+     * @return the pending load of the store
+     */
+    static synchronized Future<PermissionStore> load(Context context, boolean useMappedStore) {
+        Context applicationContext = context.getApplicationContext();
+        if (useMappedStore) {
+            if (mappedStoreLoader == null)
+                mappedStoreLoader = writeExecutor.submit(() -> traceLoad(() -> createMappedStore(applicationContext)));
+            return mappedStoreLoader;
+        }
+        if (sharedPreferencesStoreLoader == null)
+            sharedPreferencesStoreLoader = writeExecutor.submit(
+                    () -> traceLoad(() -> getSharedPreferencesStore(applicationContext)));
+        return sharedPreferencesStoreLoader;
+    }
+
+    /**
+     * Method to load a store within a trace section. Runs on the background thread
+     *
+     * @param loader loads the store
+     * @return the store, or an {@link InMemoryPermissionStore} if the store could not be loaded
+     */
+    private static PermissionStore traceLoad(Callable<PermissionStore> loader) {
+        boolean traced = PermissionTrace.beginSharedSection(PermissionTrace.LOAD_PREFERENCES);
+        try {
+            return loader.call();
+        } catch (Exception e) {
+            Log.e("Permission Manager", "Unable to load the permission store, keeping the details in memory", e);
+            return new InMemoryPermissionStore();
+        } finally {
+            PermissionTrace.endSharedSection(traced);
+        }
+    }
+
+    /**
+     * Method to get the shared {@link SharedPreferencesPermissionStore} using the
+     * {@link SharedPreferences} file {@link Constants#PREFERENCE_NAME} in {@link Context#MODE_PRIVATE}.
+     * Runs on the background thread
+     *
+     * @param context the application context
+     * @return the store
+     */
+    private static synchronized PermissionStore getSharedPreferencesStore(Context context) {
+        if (sharedPreferencesStore == null) {
+            SharedPreferences sharedPreferences = context.getSharedPreferences(Constants.PREFERENCE_NAME, Context.MODE_PRIVATE);
+            sharedPreferencesStore = new SharedPreferencesPermissionStore(sharedPreferences, tracedWriteExecutor);
+        }
+        return sharedPreferencesStore;
+    }
+
+    /**
+     * Method to create a {@link SimplePreferenceManager} for the {@link SharedPreferences} file
+     * {@link Constants#PREFERENCE_NAME}, using {@link Context#MODE_PRIVATE} operation mode
+     *
+     * @param context the application context
+     * @return the SimplePreferenceManager
+     */
+    private static SimplePreferenceManager createSimplePreferenceManager(Context context) {
+        return new SimplePreferenceManager.SimplePreferenceManagerBuilder(context)
                 .havingFileName(Constants.PREFERENCE_NAME)
                 .usingOperationMode(Context.MODE_PRIVATE)
                 .build();
     }
 
+    /**
+     * Method to open the shared {@link MappedPermissionStore}.
+     * Until the store has been marked as migrated, the permanently denied permissions from the {@link SharedPreferences}
+     * file are migrated to it. The migrated entries are forced to the store file before the store is marked as migrated,
+     * so that a migration interrupted at any point is simply repeated the next time.
+     * <p>
+     * The migrated entries are kept in the SharedPreferences file until a later launch opens the migrated store again,
+     * so that the {@link SharedPreferencesPermissionStore} used when the store file cannot be opened
+     * still has the permanently denied permissions.
+     * Runs on the background thread
+     *
+     * @param context the application context
+     * @return the store
+     */
+    private static PermissionStore createMappedStore(Context context) {
+        try {
+            MappedPermissionStore store = new MappedPermissionStore(
+                    new File(context.getFilesDir(), Constants.MAPPED_STORE_FILE_NAME), tracedWriteExecutor);
+            if (!store.isMigrated()) {
+                Set<String> legacyPermissions = new HashSet<>(context.getSharedPreferences(Constants.PREFERENCE_NAME,
+                        Context.MODE_PRIVATE).getAll().keySet());
+                store.migrate(legacyPermissions);
+                store.markMigrated();
+            } else if (!store.isLegacyRemoved()) {
+                // The migrated store has been opened successfully once more, the legacy entries are no longer needed
+                SimplePreferenceManager simplePreferenceManager = createSimplePreferenceManager(context);
+                for (String permission : context.getSharedPreferences(Constants.PREFERENCE_NAME,
+                        Context.MODE_PRIVATE).getAll().keySet())
+                    simplePreferenceManager.removeData(permission);
+                store.markLegacyRemoved();
+            }
+            return store;
+        } catch (IOException e) {
+            Log.e("Permission Manager", "Unable to open the mapped permission store", e);
+            return getSharedPreferencesStore(context);
+        }
+    }
+
+    /**
+     * Method to get the store, waiting for it to be loaded if necessary
+     *
+     * @return the store
+     */
+    private PermissionStore getPermissionStore() {
+        PermissionStore store = permissionStore;
+        if (store != null)
+            return store;
+
+        boolean interrupted = false;
+        trace.beginSection(PermissionTrace.AWAIT_PREFERENCES);
+        try {
+            while (true) {
+                try {
+                    store = permissionStoreLoader.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            Log.e("Permission Manager", "Unable to load the permission store, keeping the details in memory", e.getCause());
+            store = new InMemoryPermissionStore();
+        } finally {
+            trace.endSection();
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+        permissionStore = store;
+        return store;
+    }
+
+    /**
+     * @return true if the store has been loaded, so that reading the permission details does not wait for the disk
+     */
+    boolean isLoaded() {
+        return permissionStore != null || permissionStoreLoader.isDone();
+    }
+
+    /**
+     * Method to run a callback once the store has been loaded.
+     * The callback is run on the background thread, right after the load if it is still pending
+     *
+     * @param callback the callback
+     */
+    void whenLoaded(Runnable callback) {
+        // The executor is single threaded, so the callback runs after the load submitted before it
+        writeExecutor.execute(callback);
+    }
+
     /**
      * Checks whether the permission has been denied permanently or not.
-     * If the permission has been denied permanently, then an entry will be
-     * saved in shared preference file.
      *
      * @param permission the permission to be checked
      * @return whether the permission has been previously denied permanently
      */
     boolean isPermissionPreviouslyPermanentlyDenied(String permission) {
-        return simplePreferenceManager.contains(permission);
+        return getPermissionStore().isPermanentlyDenied(permission);
     }
 
     /**
-     * Method to mark a permission as permanently denied. An entry will be
-     * saved in SharedPreference file for permanently denied permissions
+     * Method to mark a permission as permanently denied.
+     * The change will be written back on the next {@link #flush()}
      *
      * @param permission the permanently denied permission
      */
     void permissionPermanentlyDenied(String permission) {
-        simplePreferenceManager.saveBoolean(permission, true);
+        getPermissionStore().setPermanentlyDenied(permission, true);
     }
 
     /**
-     * Method to remove the permanently denied status from a permission
+     * Method to remove the permanently denied status from a permission.
+     * The change will be written back on the next {@link #flush()}
      *
      * @param permission the permission to be un-marked
      */
     void removePermissionPermanentlyDeniedStatus(String permission) {
-        simplePreferenceManager.removeData(permission);
+        getPermissionStore().setPermanentlyDenied(permission, false);
+    }
+
+    /**
+     * Method to record that a permission has been requested from the Android Permission System
+     *
+     * @param permission the requested permission
+     */
+    void permissionRequested(String permission) {
+        getPermissionStore().recordRequest(permission);
+    }
+
+    /**
+     * Method to record that a permission has been granted
+     *
+     * @param permission the granted permission
+     */
+    void permissionGranted(String permission) {
+        getPermissionStore().recordGranted(permission, System.currentTimeMillis());
+    }
+
+    /**
+     * Method to record that a permission has been denied
+     *
+     * @param permission the denied permission
+     */
+    void permissionDenied(String permission) {
+        getPermissionStore().recordDenied(permission, System.currentTimeMillis());
+    }
+
+    /**
+     * Method to write back all the pending changes to the store.
+     * The changes are written as one batch on a background thread.
+     * Nothing can have changed if the store has not been loaded yet.
+     */
+    void flush() {
+        PermissionStore store = permissionStore;
+        if (store == null)
+            return;
+        trace.beginSection(PermissionTrace.FLUSH_PREFERENCES);
+        try {
+            store.flush();
+        } finally {
+            trace.endSection();
+        }
     }
 }
@@ -0,0 +1,195 @@
+package in.notyouraveragedev.permissionmanager;
+
+import android.app.Activity;
+import android.app.Dialog;
+import android.content.Context;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+
+/**
+ * The alert dialog used by PermissionManager to explain why previously denied permissions are needed.
+ * <p>
+ * The dialog and its views are created once, the first time they are needed or at idle time if pre-warmed,
+ * and are then re-bound with the message, icon and callbacks of every request.
+ * If the dialog is already showing, the next request is queued and shown once the current one is dismissed.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+class RationaleDialog {
+
+    private final Context context;
+
+    private Dialog dialog;
+    private TextView messageView;
+    private ImageView iconView;
+
+    /**
+     * The request currently bound to the dialog, and the requests waiting for the dialog
+     */
+    private Binding currentBinding;
+    private final ArrayDeque<Binding> pendingBindings = new ArrayDeque<>();
+
+    /**
+     * Idle handler creating the dialog once the main thread has nothing else to do
+     */
+    private final MessageQueue.IdleHandler prewarmHandler = () -> {
+        ensureCreated();
+        return false;
+    };
+    private boolean prewarmScheduled;
+
+    RationaleDialog(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Method to create the dialog the next time the main thread is idle.
+     * Must be called from the main thread
+     */
+    void prewarm() {
+        if (dialog == null && !prewarmScheduled) {
+            prewarmScheduled = true;
+            Looper.myQueue().addIdleHandler(prewarmHandler);
+        }
+    }
+
+    /**
+     * Method to show the dialog for a request
+     *
+     * @param message    the reason explaining why the requested permissions are needed
+     * @param icon       the icon of the requested permissions
+     * @param onNotNow   called when the user chooses not to continue, or cancels the dialog
+     * @param onContinue called when the user chooses to continue with the request
+     * @return removes the request from the dialog without calling any of the callbacks
+     */
+    Runnable show(CharSequence message, Drawable icon, Runnable onNotNow, Runnable onContinue) {
+        Binding binding = new Binding(message, icon, onNotNow, onContinue);
+        if (currentBinding != null)
+            pendingBindings.add(binding);
+        else
+            bind(binding);
+        return () -> cancel(binding);
+    }
+
+    /**
+     * Method to remove a request from the dialog, showing the next queued request if it was the current one
+     *
+     * @param binding the request
+     */
+    private void cancel(Binding binding) {
+        if (pendingBindings.remove(binding) || currentBinding != binding)
+            return;
+        currentBinding = null;
+        if (dialog != null && dialog.isShowing())
+            dialog.dismiss();
+
+        Binding nextBinding = pendingBindings.poll();
+        if (nextBinding != null && dialog != null)
+            bind(nextBinding);
+    }
+
+    /**
+     * Method to dismiss the dialog and release its views along with the host activity.
+     * Queued requests are dropped
+     */
+    void release() {
+        if (prewarmScheduled) {
+            Looper.myQueue().removeIdleHandler(prewarmHandler);
+            prewarmScheduled = false;
+        }
+        pendingBindings.clear();
+        currentBinding = null;
+        if (dialog != null) {
+            dialog.setOnCancelListener(null);
+            dialog.dismiss();
+            dialog = null;
+            messageView = null;
+            iconView = null;
+        }
+    }
+
+    private void bind(Binding binding) {
+        ensureCreated();
+        currentBinding = binding;
+        messageView.setText(binding.message);
+        iconView.setImageDrawable(binding.icon);
+        dialog.show();
+    }
+
+    /**
+     * Method to inflate the custom layout and create the dialog, if not already done
+     */
+    private void ensureCreated() {
+        prewarmScheduled = false;
+        if (dialog != null)
+            return;
+
+        // Inflating the alert dialog custom layout
+        ViewGroup viewGroup = ((Activity) this.context).findViewById(android.R.id.content);
+        View dialogView = LayoutInflater.from(this.context)
+                .inflate(R.layout.alert_layout, viewGroup, false);
+        dialog = new Dialog(this.context, R.style.Theme_AppCompat_Dialog);
+
+        messageView = dialogView.findViewById(R.id.tv_message);
+        iconView = dialogView.findViewById(R.id.iv_permission_logo);
+
+        // The listeners are set once and act on whichever request is bound at the time
+        dialogView.findViewById(R.id.bt_not_now).setOnClickListener(view -> complete(false));
+        dialogView.findViewById(R.id.bt_continue).setOnClickListener(view -> complete(true));
+        dialog.setOnCancelListener(dialogInterface -> complete(false));
+
+        dialog.setContentView(dialogView);
+        Objects.requireNonNull(dialog.getWindow()).setBackgroundDrawable(new ColorDrawable(Color.TRANSPARENT));
+    }
+
+    /**
+     * Method to finish the current request and show the next queued one
+     *
+     * @param continueRequest whether the user chose to continue with the request
+     */
+    private void complete(boolean continueRequest) {
+        Binding binding = currentBinding;
+        if (binding == null)
+            return;
+        currentBinding = null;
+        if (dialog.isShowing())
+            dialog.dismiss();
+
+        if (continueRequest)
+            binding.onContinue.run();
+        else
+            binding.onNotNow.run();
+
+        Binding nextBinding = pendingBindings.poll();
+        if (nextBinding != null && dialog != null)
+            bind(nextBinding);
+    }
+
+    /**
+     * The content and callbacks of a request shown in the dialog
+     */
+    private static class Binding {
+        private final CharSequence message;
+        private final Drawable icon;
+        private final Runnable onNotNow;
+        private final Runnable onContinue;
+
+        private Binding(CharSequence message, Drawable icon, Runnable onNotNow, Runnable onContinue) {
+            this.message = message;
+            this.icon = icon;
+            this.onNotNow = onNotNow;
+            this.onContinue = onContinue;
+        }
+    }
+}
@@ -13,8 +13,7 @@ import androidx.appcompat.app.AppCompatActivity;
 import java.util.Arrays;
 import java.util.Objects;
 
-import in.notyouraveragedev.permissionmanager.listener.InternalPermissionListener;
-import in.notyouraveragedev.permissionmanager.service.PermissionService;
+import in.notyouraveragedev.permissionmanager.service.PermissionBackend;
 
 /**
  * The transparent activity used by Permission Manager to make permission requests
@@ -23,31 +22,26 @@ import in.notyouraveragedev.permissionmanager.service.PermissionService;
  * A separate activity is used so that the results (overriding methods onRequestPermissionsResult() and onActivityResult())
  * can be obtained and given back to PermissionManager.
  * <p>
- * All data are returned to PermissionManager using the InternalPermissionListener of Permission Manager.
+ * All data are returned to the PermissionManager that made the request using the {@link PermissionRequestTable}.
  * <p>
  * Created by A Anand on 18-05-2020
  */
 public class RequestPermissionsActivity extends AppCompatActivity {
 
-    /**
-     * The internal permission listener from PermissionManager
-     */
-    private InternalPermissionListener internalPermissionListener = PermissionManager.internalPermissionListener;
-
     /**
      * The permissions to be requested
      */
     private String[] permissions;
 
     /**
-     * The permission request code
+     * The id of the request in the {@link PermissionRequestTable}, also used as the permission request code
      */
-    private int requestCode;
+    private int requestId;
 
     /**
-     * The calling activity name
+     * Whether the request has been cancelled, in which case the results are no longer needed
      */
-    private String callingActivity;
+    private boolean cancelled;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -58,12 +52,20 @@ public class RequestPermissionsActivity extends AppCompatActivity {
          * These include the type of operation to perform:
          *                  INTENT_OPERATION  [INTENT_OPERATION_SETTINGS / INTENT_OPERATION_REQUEST]
          * The permission to work with: INTENT_PERMISSIONS
-         * The request code to use: INTENT_PERMISSION_REQUEST_CODE
+         * The id of the request: INTENT_REQUEST_ID
          */
         Bundle extras = Objects.requireNonNull(getIntent().getExtras());
         permissions = extras.getStringArray(Constants.INTENT_PERMISSIONS);
-        requestCode = extras.getInt(Constants.INTENT_PERMISSION_REQUEST_CODE, Constants.DEFAULT_REQUEST_CODE);
-        callingActivity = extras.getString(Constants.INTENT_CALLING_ACTIVITY);
+        requestId = extras.getInt(Constants.INTENT_REQUEST_ID, Constants.DEFAULT_REQUEST_CODE);
+
+        /*
+         * The request might have been cancelled before this activity was started.
+         * Otherwise this activity is finished as soon as the request is cancelled
+         */
+        if (!PermissionRequestTable.setCanceller(requestId, this::cancelRequest)) {
+            finish();
+            return;
+        }
 
         if (Objects.equals(extras.get(Constants.INTENT_OPERATION), Constants.INTENT_OPERATION_SETTINGS)) {
             /*
@@ -74,15 +76,15 @@ public class RequestPermissionsActivity extends AppCompatActivity {
             permissionIntent.setAction(Settings.ACTION_APPLICATION_DETAILS_SETTINGS);
             Uri uri = Uri.fromParts(Constants.URI_SCHEME, getPackageName(), null);
             permissionIntent.setData(uri);
-            startActivityForResult(permissionIntent, requestCode);
+            startActivityForResult(permissionIntent, requestId);
 
         } else if (Objects.equals(extras.get(Constants.INTENT_OPERATION), Constants.INTENT_OPERATION_REQUEST)) {
             /*
              * The operation to be performed is to request for permissions
              */
-            PermissionService.requestPermissions(this, Objects.requireNonNull(permissions), requestCode);
+            PermissionRequestTable.getBackend(requestId)
+                    .requestPermissions(this, Objects.requireNonNull(permissions), requestId);
         }
-        Log.e("Test", String.valueOf(getCallingActivity()));
     }
 
     /**
@@ -91,8 +93,8 @@ public class RequestPermissionsActivity extends AppCompatActivity {
      * The user might have granted the permissions or not.
      * <p>
      * Once the user returns back to this RequestPermissionsActivity, a check is made to know the current status
-     * of the permissions requested by PermissionManager. These results are then provided to the PermissionManager
-     * through the internal permission listener.
+     * of the permissions requested by PermissionManager. These results are then routed to the PermissionManager
+     * that made the request through the {@link PermissionRequestTable}.
      * <p>
      * Once the listener has been notified, the transparent activity is finished
      *
@@ -105,28 +107,41 @@ public class RequestPermissionsActivity extends AppCompatActivity {
         super.onActivityResult(requestCode, resultCode, data);
         if (this.permissions == null || this.permissions.length == 0) {
             Log.e("Permission Manager", "Permissions array is null / empty: " + Arrays.toString(this.permissions));
-        } else if (internalPermissionListener == null) {
-            Log.e("Permission Manager", "InternalPermissionListener is null");
-        } else if (this.requestCode == requestCode) {
+        } else if (this.requestId == requestCode) {
             /*
              * Gets the current status of the permissions and notify the listener
              */
-            prepareAndSendResults(this.requestCode, this.permissions, null);
+            prepareAndSendResults(this.requestId, this.permissions, null);
         }
         finish();
     }
 
     /**
-     * Overridden the method to pass the responses back to PermissionManager using the InternalPermissionListener.
+     * Overridden the method to pass the responses back to PermissionManager using the {@link PermissionRequestTable}.
+     * If the request was interrupted, then the current status of the requested permissions are sent.
      * Once the listener has been notified, the transparent activity is finished
      *
-     * @param requestCode  the permission request code
+     * @param requestCode  the permission request code (the request id)
      * @param permissions  the permissions requested
      * @param grantResults the status of reqeusted permissions
      */
     @Override
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
-        prepareAndSendResults(requestCode, permissions, grantResults);
+        if (grantResults.length == 0 && this.permissions != null)
+            // The request was interrupted
+            prepareAndSendResults(requestCode, this.permissions, null);
+        else
+            prepareAndSendResults(requestCode, permissions, grantResults);
+        finish();
+    }
+
+    /**
+     * Method to tear down the request once it has been cancelled.
+     * The application info page is closed if it was opened, and the transparent activity is finished
+     */
+    private void cancelRequest() {
+        cancelled = true;
+        finishActivity(requestId);
         finish();
     }
 
@@ -134,21 +149,25 @@ public class RequestPermissionsActivity extends AppCompatActivity {
      * Method notifies the listener regarding the current status of the permissions.
      * If the permission status are not available, then they are fetched manually
      *
-     * @param requestCode  the permission request code
+     * @param requestId    the id of the request
      * @param permissions  the permissions needed
      * @param grantResults the current permission status
      */
-    private void prepareAndSendResults(int requestCode, String[] permissions, int[] grantResults) {
+    private void prepareAndSendResults(int requestId, String[] permissions, int[] grantResults) {
+        if (cancelled)
+            return;
         if (grantResults == null) {
             grantResults = new int[permissions.length];
+            PermissionBackend permissionBackend = PermissionRequestTable.getBackend(requestId);
             for (int i = 0; i < permissions.length; i++) {
-                grantResults[i] = PermissionService.checkSelfPermission(this, permissions[i]);
+                grantResults[i] = permissionBackend.checkSelfPermission(this, permissions[i]);
             }
         }
         /*
-         * Notifying the listener
+         * Notifying the listener of the PermissionManager that made the request
          */
-        internalPermissionListener.onRequestPermissionsResult(requestCode, permissions, grantResults, callingActivity);
+        if (!PermissionRequestTable.dispatch(requestId, permissions, grantResults))
+            Log.e("Permission Manager", "No request in flight with id " + requestId);
     }
 
 }
@@ -0,0 +1,159 @@
+package in.notyouraveragedev.permissionmanager;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import in.notyouraveragedev.permissionmanager.listener.InternalPermissionListener;
+import in.notyouraveragedev.permissionmanager.metrics.PermissionMetrics;
+import in.notyouraveragedev.permissionmanager.registry.PermissionSet;
+
+/**
+ * A caller waiting for the results of a permission request.
+ * <p>
+ * Several waiters can share one request in flight when their requests have been coalesced,
+ * each one receiving the results of only the permissions it asked for.
+ * <p>
+ * Unless it reports all its permissions, a waiter only reports the permissions that were actually requested for it,
+ * see {@link #selectReportedPermissions(PermissionSet, PermissionSet)}, and its listener is not notified
+ * if there are none.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+class RequestWaiter {
+
+    /**
+     * The key identifying the owner activity across configuration changes
+     */
+    final String ownerKey;
+
+    /**
+     * The permission request code (single or multiple permission request)
+     */
+    final int requestCode;
+
+    /**
+     * The permissions requested by this waiter
+     */
+    final String[] permissions;
+
+    private WeakReference<InternalPermissionListener> listenerReference;
+    private String listenerToken;
+
+    /**
+     * Whether the owner is being recreated and the waiter is waiting to be adopted
+     */
+    private boolean orphaned;
+
+    /**
+     * The collector of the PermissionManager of the waiter and when the request was made, if there is a collector
+     */
+    private final PermissionMetrics metrics;
+    private final long requestedAtNanos;
+
+    /**
+     * Whether the results of all the permissions are reported, whatever was requested
+     */
+    private final boolean reportsAllPermissions;
+
+    /**
+     * The permissions whose results are reported to the listener, in the order of the permissions
+     */
+    private String[] reportedPermissions;
+
+    RequestWaiter(InternalPermissionListener listener, String ownerKey, int requestCode, String[] permissions,
+                  String listenerToken, PermissionMetrics metrics, boolean reportsAllPermissions) {
+        this.listenerReference = new WeakReference<>(listener);
+        this.ownerKey = ownerKey;
+        this.requestCode = requestCode;
+        this.permissions = permissions;
+        this.listenerToken = listenerToken;
+        this.metrics = metrics;
+        this.requestedAtNanos = metrics != null ? System.nanoTime() : 0;
+        this.reportsAllPermissions = reportsAllPermissions;
+        this.reportedPermissions = permissions;
+    }
+
+    /**
+     * Method to select the permissions reported to the listener, once the request of the waiter has been classified.
+     * The permissions of the waiter that are part of the reported permissions of the request are reported.
+     * If there are none, the permissions of the waiter that are part of the fallback permissions are reported instead.
+     * Granted permissions that were not requested are never reported
+     *
+     * @param reported the permissions of the request whose results are reported, i.e. the requested ones
+     * @param fallback the permissions of the request reported if the waiter has none of the reported ones
+     */
+    void selectReportedPermissions(PermissionSet reported, PermissionSet fallback) {
+        if (reportsAllPermissions)
+            return;
+        String[] selected = filter(reported);
+        if (selected.length == 0)
+            selected = filter(fallback);
+        reportedPermissions = selected;
+    }
+
+    private String[] filter(PermissionSet permissionSet) {
+        List<String> selected = new ArrayList<>(permissions.length);
+        for (String permission : permissions)
+            if (permissionSet.contains(permission))
+                selected.add(permission);
+        return selected.toArray(new String[0]);
+    }
+
+    InternalPermissionListener getListener() {
+        return listenerReference != null ? listenerReference.get() : null;
+    }
+
+    boolean isOrphaned() {
+        return orphaned;
+    }
+
+    /**
+     * Method to detach the waiter from its listener while the owner is being recreated
+     */
+    void orphan() {
+        listenerReference = null;
+        orphaned = true;
+    }
+
+    /**
+     * Method to attach the waiter to the listener of the recreated owner
+     *
+     * @param listener      the internal listener of the new PermissionManager
+     * @param listenerToken the token of the listener of the new PermissionManager
+     */
+    void adopt(InternalPermissionListener listener, String listenerToken) {
+        this.listenerReference = new WeakReference<>(listener);
+        this.listenerToken = listenerToken;
+        this.orphaned = false;
+    }
+
+    /**
+     * Method to send the results of the reported permissions of this waiter to its listener.
+     * Permissions missing from the results are reported as skipped. The listener is not notified
+     * if the waiter has no permission to report.
+     *
+     * @param requestId    the id of the request
+     * @param permissions  the permissions of the request
+     * @param grantResults the status of the permissions of the request
+     */
+    void deliver(int requestId, String[] permissions, int[] grantResults) {
+        InternalPermissionListener listener = getListener();
+        if (listener == null || reportedPermissions.length == 0)
+            return;
+
+        int[] waiterResults = new int[reportedPermissions.length];
+        for (int i = 0; i < reportedPermissions.length; i++) {
+            waiterResults[i] = Constants.PERMISSON_SKIPPED;
+            for (int j = 0; j < permissions.length; j++) {
+                if (permissions[j].equals(reportedPermissions[i])) {
+                    waiterResults[i] = grantResults[j];
+                    break;
+                }
+            }
+        }
+        if (metrics != null)
+            metrics.onDelivered(reportedPermissions, System.nanoTime() - requestedAtNanos);
+        listener.onRequestPermissionsResult(requestId, requestCode, reportedPermissions, waiterResults, listenerToken);
+    }
+}
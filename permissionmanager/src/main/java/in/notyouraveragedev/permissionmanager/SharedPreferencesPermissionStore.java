@@ -0,0 +1,134 @@
+package in.notyouraveragedev.permissionmanager;
+
+import android.content.SharedPreferences;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link PermissionStore} backed by the {@link SharedPreferences} file {@link Constants#PREFERENCE_NAME},
+ * storing one boolean entry per permanently denied permission.
+ * <p>
+ * The permanently denied permissions are kept in an in-memory mirror of the file, so lookups never touch the disk.
+ * Changes are applied to the mirror immediately and are written back as a single batch, in one
+ * {@link SharedPreferences.Editor} commit on the write executor, whenever {@link #flush()} is called.
+ * <p>
+ * The request history is not tracked by this store.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+class SharedPreferencesPermissionStore implements PermissionStore {
+
+    /**
+     * The SharedPreferences holding the permanently denied permissions
+     */
+    private final SharedPreferences sharedPreferences;
+
+    /**
+     * The executor on which the changes are written back
+     */
+    private final Executor writeExecutor;
+
+    /**
+     * In-memory mirror of the permanently denied permissions
+     */
+    private final Set<String> permanentlyDeniedPermissions;
+
+    /**
+     * Changes that are yet to be written back.
+     * true if the permission was marked as permanently denied, false if the mark was removed
+     */
+    private final Map<String, Boolean> pendingChanges = new HashMap<>();
+
+    /**
+     * @param sharedPreferences the SharedPreferences holding the permanently denied permissions, read once to
+     *                          load the mirror
+     * @param writeExecutor     the executor on which the changes are written back
+     */
+    SharedPreferencesPermissionStore(SharedPreferences sharedPreferences, Executor writeExecutor) {
+        this.sharedPreferences = sharedPreferences;
+        this.writeExecutor = writeExecutor;
+        this.permanentlyDeniedPermissions = new HashSet<>(sharedPreferences.getAll().keySet());
+    }
+
+    @Override
+    public boolean isPermanentlyDenied(String permission) {
+        synchronized (pendingChanges) {
+            return permanentlyDeniedPermissions.contains(permission);
+        }
+    }
+
+    @Override
+    public void setPermanentlyDenied(String permission, boolean permanentlyDenied) {
+        synchronized (pendingChanges) {
+            boolean changed = permanentlyDenied
+                    ? permanentlyDeniedPermissions.add(permission)
+                    : permanentlyDeniedPermissions.remove(permission);
+            if (changed)
+                pendingChanges.put(permission, permanentlyDenied);
+        }
+    }
+
+    @Override
+    public void recordRequest(String permission) {
+        // Request history is not tracked
+    }
+
+    @Override
+    public void recordGranted(String permission, long timestamp) {
+        // Request history is not tracked
+    }
+
+    @Override
+    public void recordDenied(String permission, long timestamp) {
+        // Request history is not tracked
+    }
+
+    @Override
+    public int getRequestCount(String permission) {
+        return 0;
+    }
+
+    @Override
+    public long getLastDeniedTime(String permission) {
+        return 0;
+    }
+
+    @Override
+    public long getLastGrantedTime(String permission) {
+        return 0;
+    }
+
+    @Override
+    public void flush() {
+        final Map<String, Boolean> changes;
+        synchronized (pendingChanges) {
+            if (pendingChanges.isEmpty())
+                return;
+            changes = new HashMap<>(pendingChanges);
+            pendingChanges.clear();
+        }
+
+        writeExecutor.execute(() -> write(changes));
+    }
+
+    /**
+     * Method to write a batch of changes back to the SharedPreferences file in a single commit.
+     * Runs on the write executor
+     *
+     * @param changes true for the permissions to be marked as permanently denied, false for the marks to be removed
+     */
+    private void write(Map<String, Boolean> changes) {
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        for (Map.Entry<String, Boolean> change : changes.entrySet()) {
+            if (change.getValue())
+                editor.putBoolean(change.getKey(), true);
+            else
+                editor.remove(change.getKey());
+        }
+        editor.commit();
+    }
+}
@@ -5,6 +5,8 @@ import android.view.View;
 import in.notyouraveragedev.permissionmanager.PermissionManager;
 import in.notyouraveragedev.permissionmanager.PermissionManagerBuilder;
 import in.notyouraveragedev.permissionmanager.listener.PermissionResponseListener;
+import in.notyouraveragedev.permissionmanager.metrics.PermissionMetrics;
+import in.notyouraveragedev.permissionmanager.service.PermissionBackend;
 
 /**
  * Interface specifying the contract to create a {@link PermissionManager}
@@ -16,6 +18,24 @@ public interface PermissionManagerBuilderContract {
 
     PermissionManagerBuilder enableSnackbarForSettings(View view);
 
+    PermissionManagerBuilder enableBatchPermissionQuery();
+
+    PermissionManagerBuilder enableMappedPermissionStore();
+
+    PermissionManagerBuilder enableHeadlessFragmentRequests();
+
+    PermissionManagerBuilder setRequestCoalescingWindow(long windowMillis);
+
+    PermissionManagerBuilder enableRationaleDialogPrewarm();
+
+    PermissionManagerBuilder setPermissionBackend(PermissionBackend permissionBackend);
+
+    PermissionManagerBuilder setPermissionMetrics(PermissionMetrics permissionMetrics);
+
+    PermissionManagerBuilder enablePermissionTracing();
+
+    PermissionManagerBuilder setFlightRecorderCapacity(int capacity);
+
     interface Listener {
         PermissionManagerBuilderContract addPermissionResponseListener(PermissionResponseListener permissionResponseListener);
     }
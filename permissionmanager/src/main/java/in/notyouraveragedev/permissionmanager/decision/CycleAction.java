@@ -0,0 +1,27 @@
+package in.notyouraveragedev.permissionmanager.decision;
+
+/**
+ * The action to take for a request cycle, decided by {@link PermissionDecisionEngine}
+ * from the classification of the requested permissions
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+public enum CycleAction {
+    /**
+     * Show the alert dialog explaining why the previously denied permissions are needed, then request the
+     * previously denied and new permissions
+     */
+    SHOW_RATIONALE,
+    /**
+     * Request the new permissions directly
+     */
+    REQUEST,
+    /**
+     * Open the application info page in settings for the permanently denied permissions
+     */
+    OPEN_SETTINGS,
+    /**
+     * Nothing needs to be requested, report the results right away
+     */
+    REPORT
+}
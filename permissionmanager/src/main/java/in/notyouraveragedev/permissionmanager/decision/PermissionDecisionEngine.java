@@ -0,0 +1,129 @@
+package in.notyouraveragedev.permissionmanager.decision;
+
+import static in.notyouraveragedev.permissionmanager.decision.PermissionFacts.Question.IS_GRANTED;
+import static in.notyouraveragedev.permissionmanager.decision.PermissionFacts.Question.IS_RESULT_PERMANENTLY_DENIED;
+import static in.notyouraveragedev.permissionmanager.decision.PermissionFacts.Question.IS_SKIPPED;
+import static in.notyouraveragedev.permissionmanager.decision.PermissionFacts.Question.IS_STORED_PERMANENTLY_DENIED;
+import static in.notyouraveragedev.permissionmanager.decision.PermissionFacts.Question.IS_UNDECLARED;
+import static in.notyouraveragedev.permissionmanager.decision.PermissionFacts.Question.SHOULD_SHOW_RATIONALE;
+import static in.notyouraveragedev.permissionmanager.decision.PermissionFacts.Question.WAS_CLASSIFIED_PERMANENTLY_DENIED;
+import static in.notyouraveragedev.permissionmanager.decision.TransitionTable.outcome;
+
+/**
+ * The rules deciding what PermissionManager does with the permissions of a request cycle.
+ * <p>
+ * The engine has no Android dependency and no side effects. It takes the facts about the permissions
+ * through {@link PermissionFacts} and returns decisions, leaving the actions to the caller.
+ * <p>
+ * 1. Before the request, every permission is classified into a {@link PermissionState}
+ * <p>
+ * 2. From the classification, the {@link CycleAction} of the request cycle is decided
+ * <p>
+ * 3. Once the results arrive, the {@link ResultOutcome} of every permission is decided
+ * <p>
+ * The per permission decisions are table driven state machines, see {@link TransitionTable}.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+public final class PermissionDecisionEngine {
+
+    /**
+     * The statuses reported for the permissions. The engine does not depend on PermissionManager, so the values
+     * repeat those of {@code PermissionManager.PERMISSION_*}, and are checked against them by the unit tests
+     */
+    public static final int STATUS_GRANTED = 0;
+    public static final int STATUS_DENIED = -1;
+    public static final int STATUS_PERMANENTLY_DENIED = -3;
+
+    /**
+     * Classification: granted, then undeclared, then previously denied, then stored as permanently denied, otherwise new.
+     * The rationale is only checked for declared permissions that are not granted
+     */
+    private static final TransitionTable<PermissionState> CLASSIFICATION_TABLE = new TransitionTable<>(
+            PermissionState.values(),
+            new PermissionFacts.Question[]{IS_GRANTED, IS_UNDECLARED, SHOULD_SHOW_RATIONALE, IS_STORED_PERMANENTLY_DENIED},
+            new int[]{
+                    outcome(PermissionState.GRANTED),
+                    outcome(PermissionState.UNDECLARED),
+                    outcome(PermissionState.PREVIOUSLY_DENIED),
+                    outcome(PermissionState.PERMANENTLY_DENIED)},
+            new int[]{1, 2, 3, outcome(PermissionState.NEW)});
+
+    /**
+     * Result mapping: skipped, then undeclared, then already permanently denied, then granted.
+     * A denied permission is permanently denied if it was classified so before the request,
+     * or if no rationale should be shown for it anymore
+     */
+    private static final TransitionTable<ResultOutcome> RESULT_TABLE = new TransitionTable<>(
+            ResultOutcome.values(),
+            new PermissionFacts.Question[]{IS_SKIPPED, IS_UNDECLARED, IS_RESULT_PERMANENTLY_DENIED, IS_GRANTED,
+                    WAS_CLASSIFIED_PERMANENTLY_DENIED, SHOULD_SHOW_RATIONALE},
+            new int[]{
+                    outcome(ResultOutcome.SKIPPED),
+                    outcome(ResultOutcome.UNDECLARED),
+                    outcome(ResultOutcome.RESOLVED_PERMANENTLY_DENIED),
+                    outcome(ResultOutcome.GRANTED),
+                    outcome(ResultOutcome.PERMANENTLY_DENIED),
+                    outcome(ResultOutcome.DENIED)},
+            new int[]{1, 2, 3, 4, 5, outcome(ResultOutcome.PERMANENTLY_DENIED)});
+
+    /**
+     * The action of a request cycle, indexed by
+     * (has previously denied permissions ? 4 : 0) | (has new permissions ? 2 : 0) | (has permanently denied permissions ? 1 : 0)
+     */
+    private static final CycleAction[] CYCLE_ACTION_TABLE = {
+            CycleAction.REPORT,
+            CycleAction.OPEN_SETTINGS,
+            CycleAction.REQUEST,
+            CycleAction.REQUEST,
+            CycleAction.SHOW_RATIONALE,
+            CycleAction.SHOW_RATIONALE,
+            CycleAction.SHOW_RATIONALE,
+            CycleAction.SHOW_RATIONALE
+    };
+
+    private PermissionDecisionEngine() {
+    }
+
+    /**
+     * Method to classify a permission before a request cycle
+     *
+     * @param facts the facts about the permissions, answering {@link PermissionFacts.Question#IS_GRANTED} for the
+     *              current status, {@link PermissionFacts.Question#IS_UNDECLARED},
+     *              {@link PermissionFacts.Question#SHOULD_SHOW_RATIONALE} and
+     *              {@link PermissionFacts.Question#IS_STORED_PERMANENTLY_DENIED}
+     * @param index the index of the permission
+     * @return the classification of the permission
+     */
+    public static PermissionState classify(PermissionFacts facts, int index) {
+        return CLASSIFICATION_TABLE.evaluate(facts, index);
+    }
+
+    /**
+     * Method to decide the action of a request cycle
+     *
+     * @param hasPreviouslyDenied  whether any permission is classified as previously denied
+     * @param hasNew               whether any permission is classified as new
+     * @param hasPermanentlyDenied whether any permission is classified as permanently denied
+     * @return the action of the request cycle
+     */
+    public static CycleAction decideCycle(boolean hasPreviouslyDenied, boolean hasNew, boolean hasPermanentlyDenied) {
+        return CYCLE_ACTION_TABLE[(hasPreviouslyDenied ? 4 : 0) | (hasNew ? 2 : 0) | (hasPermanentlyDenied ? 1 : 0)];
+    }
+
+    /**
+     * Method to decide the outcome of the result of a permission once a request cycle completes
+     *
+     * @param facts the facts about the permissions, answering {@link PermissionFacts.Question#IS_GRANTED} for the
+     *              obtained result, {@link PermissionFacts.Question#IS_SKIPPED},
+     *              {@link PermissionFacts.Question#IS_UNDECLARED},
+     *              {@link PermissionFacts.Question#IS_RESULT_PERMANENTLY_DENIED},
+     *              {@link PermissionFacts.Question#WAS_CLASSIFIED_PERMANENTLY_DENIED} and
+     *              {@link PermissionFacts.Question#SHOULD_SHOW_RATIONALE}
+     * @param index the index of the permission
+     * @return the outcome of the result
+     */
+    public static ResultOutcome resolveResult(PermissionFacts facts, int index) {
+        return RESULT_TABLE.evaluate(facts, index);
+    }
+}
@@ -0,0 +1,55 @@
+package in.notyouraveragedev.permissionmanager.decision;
+
+/**
+ * The source of the facts about the permissions of a request cycle, queried by {@link PermissionDecisionEngine}.
+ * <p>
+ * Facts are only queried when a decision depends on them, so expensive facts like the rationale of a permission
+ * are never looked up for a permission whose fate is already decided.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+public interface PermissionFacts {
+
+    /**
+     * The facts a decision can depend on
+     */
+    enum Question {
+        /**
+         * Whether the request was skipped by the user
+         */
+        IS_SKIPPED,
+        /**
+         * Whether the status or the result of the permission is granted
+         */
+        IS_GRANTED,
+        /**
+         * Whether the permission is not declared in the manifest
+         */
+        IS_UNDECLARED,
+        /**
+         * Whether the result of the permission is already permanently denied
+         */
+        IS_RESULT_PERMANENTLY_DENIED,
+        /**
+         * Whether the permission was classified as permanently denied before the request
+         */
+        WAS_CLASSIFIED_PERMANENTLY_DENIED,
+        /**
+         * Whether a rationale should be shown for the permission
+         */
+        SHOULD_SHOW_RATIONALE,
+        /**
+         * Whether the permission has been stored as permanently denied
+         */
+        IS_STORED_PERMANENTLY_DENIED
+    }
+
+    /**
+     * Method to answer a question about a permission
+     *
+     * @param question the question
+     * @param index    the index of the permission
+     * @return the answer
+     */
+    boolean answer(Question question, int index);
+}
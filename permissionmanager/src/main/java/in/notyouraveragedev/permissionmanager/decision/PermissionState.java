@@ -0,0 +1,29 @@
+package in.notyouraveragedev.permissionmanager.decision;
+
+/**
+ * The classification of a permission before a request cycle, decided by {@link PermissionDecisionEngine}
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+public enum PermissionState {
+    /**
+     * Already granted, need not be requested
+     */
+    GRANTED,
+    /**
+     * Not declared in the manifest, can never be granted and is never requested
+     */
+    UNDECLARED,
+    /**
+     * Denied previously by the user, requested after explaining why it is needed
+     */
+    PREVIOUSLY_DENIED,
+    /**
+     * Denied by choosing "Don't ask again", can only be granted from the application info page
+     */
+    PERMANENTLY_DENIED,
+    /**
+     * Not requested before, requested directly
+     */
+    NEW
+}
@@ -0,0 +1,53 @@
+package in.notyouraveragedev.permissionmanager.decision;
+
+/**
+ * The outcome of the result of a permission once a request cycle completes, decided by {@link PermissionDecisionEngine}.
+ * Each outcome carries the status reported to the listener and the bookkeeping to perform for the permission
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+public enum ResultOutcome {
+    /**
+     * The user chose not to continue with the request
+     */
+    SKIPPED(PermissionDecisionEngine.STATUS_DENIED, false, false),
+    /**
+     * The permission is not declared in the manifest
+     */
+    UNDECLARED(PermissionDecisionEngine.STATUS_DENIED, false, false),
+    /**
+     * The permission was already known to be permanently denied and was not requested
+     */
+    RESOLVED_PERMANENTLY_DENIED(PermissionDecisionEngine.STATUS_PERMANENTLY_DENIED, true, false),
+    /**
+     * The permission has been granted
+     */
+    GRANTED(PermissionDecisionEngine.STATUS_GRANTED, false, true),
+    /**
+     * The permission has been denied, it can be requested again
+     */
+    DENIED(PermissionDecisionEngine.STATUS_DENIED, false, true),
+    /**
+     * The permission has been denied by choosing "Don't ask again"
+     */
+    PERMANENTLY_DENIED(PermissionDecisionEngine.STATUS_PERMANENTLY_DENIED, true, true);
+
+    /**
+     * The status reported to the listener
+     */
+    public final int reportedStatus;
+    /**
+     * Whether the permission is to be stored as permanently denied
+     */
+    public final boolean storePermanentlyDenied;
+    /**
+     * Whether the result is to be recorded in the permission history
+     */
+    public final boolean recordHistory;
+
+    ResultOutcome(int reportedStatus, boolean storePermanentlyDenied, boolean recordHistory) {
+        this.reportedStatus = reportedStatus;
+        this.storePermanentlyDenied = storePermanentlyDenied;
+        this.recordHistory = recordHistory;
+    }
+}
@@ -0,0 +1,61 @@
+package in.notyouraveragedev.permissionmanager.decision;
+
+import in.notyouraveragedev.permissionmanager.decision.PermissionFacts.Question;
+
+/**
+ * A decision state machine stored as a table of transitions.
+ * <p>
+ * Every state asks a single {@link Question} and moves to one of two targets depending on the answer.
+ * A target is either the index of another state or an outcome, encoded as {@link #outcome(Enum)}.
+ * Evaluation starts at state 0 and stops as soon as an outcome is reached.
+ *
+ * @param <T> the type of the outcomes
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+final class TransitionTable<T extends Enum<T>> {
+
+    private final T[] outcomes;
+    private final Question[] questions;
+    private final int[] onYes;
+    private final int[] onNo;
+
+    /**
+     * @param outcomes  all the outcomes, in the order of their ordinals
+     * @param questions the question asked in each state
+     * @param onYes     the target of each state when the answer is yes
+     * @param onNo      the target of each state when the answer is no
+     */
+    TransitionTable(T[] outcomes, Question[] questions, int[] onYes, int[] onNo) {
+        if (questions.length != onYes.length || questions.length != onNo.length)
+            throw new IllegalArgumentException("Every state needs a question and two targets");
+        this.outcomes = outcomes;
+        this.questions = questions;
+        this.onYes = onYes;
+        this.onNo = onNo;
+    }
+
+    /**
+     * Method to encode an outcome as a target
+     *
+     * @param outcome the outcome
+     * @return the target
+     */
+    static int outcome(Enum<?> outcome) {
+        return -outcome.ordinal() - 1;
+    }
+
+    /**
+     * Method to run the state machine for a permission
+     *
+     * @param facts the facts about the permissions
+     * @param index the index of the permission
+     * @return the outcome reached
+     */
+    T evaluate(PermissionFacts facts, int index) {
+        int state = 0;
+        while (state >= 0)
+            state = facts.answer(questions[state], index) ? onYes[state] : onNo[state];
+        return outcomes[-state - 1];
+    }
+}
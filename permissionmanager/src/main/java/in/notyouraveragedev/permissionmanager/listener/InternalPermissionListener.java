@@ -8,5 +8,6 @@ package in.notyouraveragedev.permissionmanager.listener;
  * Created by A Anand on 18-05-2020
  */
 public interface InternalPermissionListener {
-    void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults, String callingActivity);
+    void onRequestPermissionsResult(int requestId, int requestCode, String[] permissions, int[] grantResults,
+                                    String listenerToken);
 }
@@ -3,6 +3,7 @@ package in.notyouraveragedev.permissionmanager.listener;
 import java.util.List;
 
 import in.notyouraveragedev.permissionmanager.responses.PermissionResponse;
+import in.notyouraveragedev.permissionmanager.responses.PermissionResults;
 
 /**
  * The permission response listener that used by the {@link in.notyouraveragedev.permissionmanager.PermissionManager}
@@ -14,4 +15,15 @@ public interface PermissionResponseListener {
     void singlePermissionResponse(PermissionResponse permissionResponse);
 
     void multiplePermissionResponse(List<PermissionResponse> permissionResponses);
+
+    /**
+     * Called with the results of a group permission request.
+     * Override this method to receive the results without a {@link PermissionResponse} being created per permission,
+     * by default the results are passed to {@link #multiplePermissionResponse(List)} as a list.
+     *
+     * @param permissionResults the permissions and their statuses
+     */
+    default void multiplePermissionResponse(PermissionResults permissionResults) {
+        multiplePermissionResponse(permissionResults.asList());
+    }
 }
@@ -0,0 +1,20 @@
+package in.notyouraveragedev.permissionmanager.listener;
+
+import in.notyouraveragedev.permissionmanager.responses.PermissionResults;
+
+/**
+ * The observer used by the {@link in.notyouraveragedev.permissionmanager.PermissionManager}
+ * to notify subscribers of changes in the status of the permissions they observe.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+public interface PermissionStatusObserver {
+
+    /**
+     * Called with the current status of all the observed permissions when the observer is added,
+     * and afterwards with only the observed permissions whose status has changed
+     *
+     * @param changedPermissions the permissions and their new statuses
+     */
+    void onPermissionStatusChanged(PermissionResults changedPermissions);
+}
@@ -0,0 +1,93 @@
+package in.notyouraveragedev.permissionmanager.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies with power of two buckets.
+ * <p>
+ * Bucket 0 counts the latencies below 1 microsecond, and bucket i counts the latencies from 2^(i - 1) up to
+ * 2^i microseconds. The last bucket also counts all the longer latencies, i.e. above half an hour.
+ * Recording is a couple of atomic increments, without any allocation.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+public class LatencyHistogram {
+
+    public static final int BUCKET_COUNT = 32;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    /**
+     * Method to record a latency
+     *
+     * @param latencyNanos the latency in nanoseconds
+     */
+    public void record(long latencyNanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, latencyNanos));
+        int bucket = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalNanos.addAndGet(latencyNanos);
+    }
+
+    /**
+     * @return the number of recorded latencies
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return the mean of the recorded latencies in nanoseconds, 0 if none has been recorded
+     */
+    public long getMeanNanos() {
+        long recorded = count.get();
+        return recorded == 0 ? 0 : totalNanos.get() / recorded;
+    }
+
+    /**
+     * @param bucket the bucket
+     * @return the number of latencies recorded in the bucket
+     */
+    public long getBucketCount(int bucket) {
+        return buckets.get(bucket);
+    }
+
+    /**
+     * @param bucket the bucket
+     * @return the upper bound of the latencies of the bucket, in microseconds
+     */
+    public static long getBucketUpperBoundMicros(int bucket) {
+        return 1L << bucket;
+    }
+
+    /**
+     * Method to estimate a percentile of the recorded latencies, as the upper bound of the bucket it falls in
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the estimated latency in microseconds, 0 if none has been recorded
+     */
+    public long getPercentileMicros(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long recorded = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = buckets.get(i);
+            recorded += snapshot[i];
+        }
+        if (recorded == 0)
+            return 0;
+
+        long rank = (long) Math.ceil(recorded * Math.min(100, Math.max(0, percentile)) / 100);
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += snapshot[i];
+            if (cumulative >= rank && snapshot[i] > 0)
+                return getBucketUpperBoundMicros(i);
+        }
+        return getBucketUpperBoundMicros(BUCKET_COUNT - 1);
+    }
+}
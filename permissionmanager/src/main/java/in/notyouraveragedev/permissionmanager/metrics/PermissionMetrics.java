@@ -0,0 +1,91 @@
+package in.notyouraveragedev.permissionmanager.metrics;
+
+/**
+ * Collector of timed events of the permission request cycles of a PermissionManager, added using
+ * {@link in.notyouraveragedev.permissionmanager.PermissionManagerBuilder#setPermissionMetrics(PermissionMetrics)}.
+ * <p>
+ * The events are reported in the order of a request cycle
+ * 1. The requested permissions are classified
+ * 2. The alert dialog for previously denied permissions is shown and dismissed
+ * 3. The permissions are requested from the Android Permission System, or the application info page is opened,
+ * until the results arrive or the request is cancelled
+ * 4. The results are delivered to the caller
+ * <p>
+ * Events are reported on the main thread and must return quickly. All the methods do nothing by default.
+ * When no collector has been added, no event is created and no time is measured.
+ * {@link PermissionMetricsAggregator} keeps lock-free counters and latency histograms of the events per permission.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+public interface PermissionMetrics {
+
+    /**
+     * Called once the permissions of a request cycle have been classified
+     *
+     * @param permissions   the classified permissions
+     * @param durationNanos the time taken by the classification
+     */
+    default void onClassified(String[] permissions, long durationNanos) {
+    }
+
+    /**
+     * Called when the alert dialog explaining why previously denied permissions are needed is shown
+     *
+     * @param requestId   the id of the request
+     * @param permissions the permissions that will be requested
+     */
+    default void onRationaleShown(int requestId, String[] permissions) {
+    }
+
+    /**
+     * Called when the alert dialog is dismissed by the user
+     *
+     * @param requestId     the id of the request
+     * @param permissions   the permissions that will be requested
+     * @param continued     true if the user chose to continue with the request, false for "Not Now"
+     * @param durationNanos the time the dialog was shown for
+     */
+    default void onRationaleDismissed(int requestId, String[] permissions, boolean continued, long durationNanos) {
+    }
+
+    /**
+     * Called when the results of a permission request made to the Android Permission System arrive
+     *
+     * @param requestId     the id of the request
+     * @param permissions   the requested permissions
+     * @param grantResults  the results of the requested permissions
+     * @param durationNanos the time from the request until the results arrived
+     */
+    default void onSystemPromptCompleted(int requestId, String[] permissions, int[] grantResults, long durationNanos) {
+    }
+
+    /**
+     * Called when the user returns from the application info page in settings
+     *
+     * @param requestId     the id of the request
+     * @param permissions   the permissions to be granted by the user
+     * @param grantResults  the status of the permissions once the user returned
+     * @param durationNanos the time from opening the application info page until the user returned
+     */
+    default void onSettingsRoundTripCompleted(int requestId, String[] permissions, int[] grantResults,
+                                              long durationNanos) {
+    }
+
+    /**
+     * Called when a request handed over to the Android Permission System or to settings is cancelled
+     * before its results arrive, e.g. once all its callers are gone. No result is reported for the request
+     *
+     * @param requestId the id of the request
+     */
+    default void onRequestCancelled(int requestId) {
+    }
+
+    /**
+     * Called when the results of a request are delivered to the caller
+     *
+     * @param permissions  the permissions requested by the caller
+     * @param latencyNanos the time from the request until the delivery of the results
+     */
+    default void onDelivered(String[] permissions, long latencyNanos) {
+    }
+}
@@ -0,0 +1,127 @@
+package in.notyouraveragedev.permissionmanager.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import in.notyouraveragedev.permissionmanager.PermissionManager;
+
+/**
+ * {@link PermissionMetrics} keeping lock-free counters and latency histograms per permission.
+ * <p>
+ * The statistics of a permission are created the first time an event of the permission is reported,
+ * after which every event only updates atomic counters and histograms. A single aggregator can be shared
+ * by all the PermissionManagers of the application.
+ * <p>
+ * A grant is attributed to the alert dialog when the permission is granted by a request the user continued
+ * from the dialog, see {@link PermissionStats#getRationaleConversionRate()}.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+public class PermissionMetricsAggregator implements PermissionMetrics {
+
+    private final Map<String, PermissionStats> permissionStats = new ConcurrentHashMap<>();
+
+    /**
+     * The requests the user continued from the alert dialog, until their results arrive or they are cancelled
+     */
+    private final Map<Integer, Boolean> continuedRequests = new ConcurrentHashMap<>();
+
+    /**
+     * @return the permissions for which events have been reported
+     */
+    public Set<String> getPermissions() {
+        return Collections.unmodifiableSet(permissionStats.keySet());
+    }
+
+    /**
+     * @param permission the permission
+     * @return the statistics of the permission, or null if no event of the permission has been reported
+     */
+    public PermissionStats getStats(String permission) {
+        return permissionStats.get(permission);
+    }
+
+    private PermissionStats statsOf(String permission) {
+        PermissionStats stats = permissionStats.get(permission);
+        if (stats == null) {
+            PermissionStats newStats = new PermissionStats();
+            stats = permissionStats.putIfAbsent(permission, newStats);
+            if (stats == null)
+                stats = newStats;
+        }
+        return stats;
+    }
+
+    @Override
+    public void onClassified(String[] permissions, long durationNanos) {
+        for (String permission : permissions) {
+            PermissionStats stats = statsOf(permission);
+            stats.classifications.incrementAndGet();
+            stats.classificationLatency.record(durationNanos);
+        }
+    }
+
+    @Override
+    public void onRationaleShown(int requestId, String[] permissions) {
+        for (String permission : permissions)
+            statsOf(permission).rationalesShown.incrementAndGet();
+    }
+
+    @Override
+    public void onRationaleDismissed(int requestId, String[] permissions, boolean continued, long durationNanos) {
+        if (continued)
+            continuedRequests.put(requestId, Boolean.TRUE);
+        for (String permission : permissions) {
+            PermissionStats stats = statsOf(permission);
+            if (continued)
+                stats.rationalesContinued.incrementAndGet();
+            else
+                stats.rationalesDeclined.incrementAndGet();
+            stats.rationaleLatency.record(durationNanos);
+        }
+    }
+
+    @Override
+    public void onSystemPromptCompleted(int requestId, String[] permissions, int[] grantResults, long durationNanos) {
+        boolean afterRationale = continuedRequests.remove(requestId) != null;
+        for (int i = 0; i < permissions.length; i++) {
+            PermissionStats stats = statsOf(permissions[i]);
+            stats.systemPrompts.incrementAndGet();
+            stats.systemPromptLatency.record(durationNanos);
+            if (grantResults[i] == PermissionManager.PERMISSION_GRANTED) {
+                stats.systemPromptGrants.incrementAndGet();
+                if (afterRationale)
+                    stats.rationaleGrants.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public void onSettingsRoundTripCompleted(int requestId, String[] permissions, int[] grantResults,
+                                             long durationNanos) {
+        for (int i = 0; i < permissions.length; i++) {
+            PermissionStats stats = statsOf(permissions[i]);
+            stats.settingsRoundTrips.incrementAndGet();
+            stats.settingsRoundTripLatency.record(durationNanos);
+            if (grantResults[i] == PermissionManager.PERMISSION_GRANTED)
+                stats.settingsGrants.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void onRequestCancelled(int requestId) {
+        // Request ids are reused, a cancelled request must not be taken for a continued one later
+        continuedRequests.remove(requestId);
+    }
+
+    @Override
+    public void onDelivered(String[] permissions, long latencyNanos) {
+        for (String permission : permissions) {
+            PermissionStats stats = statsOf(permission);
+            stats.deliveries.incrementAndGet();
+            stats.deliveryLatency.record(latencyNanos);
+        }
+    }
+}
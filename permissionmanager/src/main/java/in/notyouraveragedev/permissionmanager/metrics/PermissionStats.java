@@ -0,0 +1,129 @@
+package in.notyouraveragedev.permissionmanager.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The lock-free counters and latency histograms of a permission, kept by {@link PermissionMetricsAggregator}
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+public class PermissionStats {
+
+    final AtomicLong classifications = new AtomicLong();
+    final AtomicLong rationalesShown = new AtomicLong();
+    final AtomicLong rationalesContinued = new AtomicLong();
+    final AtomicLong rationalesDeclined = new AtomicLong();
+    final AtomicLong rationaleGrants = new AtomicLong();
+    final AtomicLong systemPrompts = new AtomicLong();
+    final AtomicLong systemPromptGrants = new AtomicLong();
+    final AtomicLong settingsRoundTrips = new AtomicLong();
+    final AtomicLong settingsGrants = new AtomicLong();
+    final AtomicLong deliveries = new AtomicLong();
+
+    final LatencyHistogram classificationLatency = new LatencyHistogram();
+    final LatencyHistogram rationaleLatency = new LatencyHistogram();
+    final LatencyHistogram systemPromptLatency = new LatencyHistogram();
+    final LatencyHistogram settingsRoundTripLatency = new LatencyHistogram();
+    final LatencyHistogram deliveryLatency = new LatencyHistogram();
+
+    /**
+     * @return the number of request cycles in which the permission has been classified
+     */
+    public long getClassificationCount() {
+        return classifications.get();
+    }
+
+    /**
+     * @return the number of times the alert dialog has been shown for the permission
+     */
+    public long getRationaleShownCount() {
+        return rationalesShown.get();
+    }
+
+    /**
+     * @return the number of times the user continued from the alert dialog
+     */
+    public long getRationaleContinuedCount() {
+        return rationalesContinued.get();
+    }
+
+    /**
+     * @return the number of times the user chose "Not Now" on the alert dialog
+     */
+    public long getRationaleDeclinedCount() {
+        return rationalesDeclined.get();
+    }
+
+    /**
+     * @return the number of times the permission was granted by a request made after the alert dialog
+     */
+    public long getRationaleGrantCount() {
+        return rationaleGrants.get();
+    }
+
+    /**
+     * @return the number of times the alert dialog has converted to a grant, between 0 and 1
+     */
+    public double getRationaleConversionRate() {
+        long shown = rationalesShown.get();
+        return shown == 0 ? 0 : (double) rationaleGrants.get() / shown;
+    }
+
+    /**
+     * @return the number of times the permission has been requested from the Android Permission System
+     */
+    public long getSystemPromptCount() {
+        return systemPrompts.get();
+    }
+
+    /**
+     * @return the number of times the permission has been granted by a request to the Android Permission System
+     */
+    public long getSystemPromptGrantCount() {
+        return systemPromptGrants.get();
+    }
+
+    /**
+     * @return the number of times the application info page has been opened for the permission
+     */
+    public long getSettingsRoundTripCount() {
+        return settingsRoundTrips.get();
+    }
+
+    /**
+     * @return the number of times the permission has been granted from the application info page
+     */
+    public long getSettingsGrantCount() {
+        return settingsGrants.get();
+    }
+
+    /**
+     * @return the number of times the results of the permission have been delivered to a caller
+     */
+    public long getDeliveryCount() {
+        return deliveries.get();
+    }
+
+    public LatencyHistogram getClassificationLatency() {
+        return classificationLatency;
+    }
+
+    public LatencyHistogram getRationaleLatency() {
+        return rationaleLatency;
+    }
+
+    public LatencyHistogram getSystemPromptLatency() {
+        return systemPromptLatency;
+    }
+
+    public LatencyHistogram getSettingsRoundTripLatency() {
+        return settingsRoundTripLatency;
+    }
+
+    /**
+     * @return the histogram of the time from the request until the delivery of the results to the caller
+     */
+    public LatencyHistogram getDeliveryLatency() {
+        return deliveryLatency;
+    }
+}
@@ -0,0 +1,100 @@
+package in.notyouraveragedev.permissionmanager.registry;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process wide registry that interns permission strings to small integer ids.
+ * <p>
+ * Ids are assigned sequentially starting from 0 in the order in which the permissions are first seen,
+ * so they can be used as indices into arrays and bitsets like {@link PermissionSet}.
+ * Ids are only valid for the lifetime of the process and must not be persisted.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+public final class PermissionRegistry {
+
+    /**
+     * Id returned for permissions that have not been interned
+     */
+    public static final int NO_ID = -1;
+
+    /**
+     * The permission to id mapping
+     */
+    private static final Map<String, Integer> permissionIds = new ConcurrentHashMap<>();
+
+    /**
+     * The id to permission mapping, indexed by the permission id
+     */
+    private static volatile String[] permissionNames = new String[64];
+
+    /**
+     * Number of interned permissions
+     */
+    private static volatile int permissionCount = 0;
+
+    private PermissionRegistry() {
+    }
+
+    /**
+     * Method to get the id of a permission, interning the permission if it has not been seen before
+     *
+     * @param permission the permission
+     * @return the id of the permission
+     */
+    public static int intern(String permission) {
+        Integer permissionId = permissionIds.get(permission);
+        if (permissionId != null)
+            return permissionId;
+
+        synchronized (PermissionRegistry.class) {
+            permissionId = permissionIds.get(permission);
+            if (permissionId != null)
+                return permissionId;
+
+            int newId = permissionCount;
+            if (newId == permissionNames.length)
+                permissionNames = Arrays.copyOf(permissionNames, newId * 2);
+            permissionNames[newId] = permission;
+            permissionCount = newId + 1;
+            permissionIds.put(permission, newId);
+            return newId;
+        }
+    }
+
+    /**
+     * Method to get the id of a permission without interning it
+     *
+     * @param permission the permission
+     * @return the id of the permission, or {@link #NO_ID} if the permission has not been interned
+     */
+    public static int idOf(String permission) {
+        Integer permissionId = permissionIds.get(permission);
+        return permissionId != null ? permissionId : NO_ID;
+    }
+
+    /**
+     * Method to get the permission for an id
+     *
+     * @param permissionId the permission id
+     * @return the permission
+     * @throws IllegalArgumentException if no permission has been interned with the id
+     */
+    public static String nameOf(int permissionId) {
+        if (permissionId < 0 || permissionId >= permissionCount)
+            throw new IllegalArgumentException("Unknown permission id: " + permissionId);
+        return permissionNames[permissionId];
+    }
+
+    /**
+     * Method to get the number of interned permissions.
+     * All the interned ids are less than this value.
+     *
+     * @return the number of interned permissions
+     */
+    public static int size() {
+        return permissionCount;
+    }
+}
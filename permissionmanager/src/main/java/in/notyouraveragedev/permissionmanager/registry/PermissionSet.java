@@ -0,0 +1,277 @@
+package in.notyouraveragedev.permissionmanager.registry;
+
+import java.util.Arrays;
+
+/**
+ * A set of permissions backed by a bitset of the permission ids assigned by {@link PermissionRegistry}.
+ * <p>
+ * Membership checks are a single bit test instead of a string comparison or hash lookup, and the set algebra
+ * operations ({@link #addAll(PermissionSet)}, {@link #retainAll(PermissionSet)}, {@link #removeAll(PermissionSet)})
+ * are performed in place without allocation, unless the set has to grow to hold a newly interned permission.
+ * <p>
+ * To iterate over the permissions in the set,
+ * <pre>
+ * for (int id = set.nextPermissionId(0); id &gt;= 0; id = set.nextPermissionId(id + 1)) {
+ *     String permission = PermissionRegistry.nameOf(id);
+ * }
+ * </pre>
+ * PermissionSet is not thread safe.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+public class PermissionSet {
+
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+
+    /**
+     * The bitset words, bit (id % 64) of word (id / 64) is set if the permission with the id is in the set
+     */
+    private long[] words;
+
+    /**
+     * Creates an empty permission set sized for all the permissions interned so far
+     */
+    public PermissionSet() {
+        words = new long[wordIndex(Math.max(PermissionRegistry.size(), 1) - 1) + 1];
+    }
+
+    /**
+     * Method to create a permission set containing the given permissions
+     *
+     * @param permissions the permissions
+     * @return a new permission set
+     */
+    public static PermissionSet of(String... permissions) {
+        PermissionSet permissionSet = new PermissionSet();
+        for (String permission : permissions)
+            permissionSet.add(permission);
+        return permissionSet;
+    }
+
+    private static int wordIndex(int permissionId) {
+        return permissionId >> ADDRESS_BITS_PER_WORD;
+    }
+
+    private void ensureCapacity(int wordCount) {
+        if (words.length < wordCount)
+            words = Arrays.copyOf(words, Math.max(words.length * 2, wordCount));
+    }
+
+    public boolean add(String permission) {
+        return add(PermissionRegistry.intern(permission));
+    }
+
+    public boolean add(int permissionId) {
+        int wordIndex = wordIndex(permissionId);
+        ensureCapacity(wordIndex + 1);
+        long mask = 1L << permissionId;
+        boolean added = (words[wordIndex] & mask) == 0;
+        words[wordIndex] |= mask;
+        return added;
+    }
+
+    public boolean remove(String permission) {
+        int permissionId = PermissionRegistry.idOf(permission);
+        return permissionId != PermissionRegistry.NO_ID && remove(permissionId);
+    }
+
+    public boolean remove(int permissionId) {
+        int wordIndex = wordIndex(permissionId);
+        if (wordIndex >= words.length)
+            return false;
+        long mask = 1L << permissionId;
+        boolean removed = (words[wordIndex] & mask) != 0;
+        words[wordIndex] &= ~mask;
+        return removed;
+    }
+
+    public boolean contains(String permission) {
+        int permissionId = PermissionRegistry.idOf(permission);
+        return permissionId != PermissionRegistry.NO_ID && contains(permissionId);
+    }
+
+    public boolean contains(int permissionId) {
+        int wordIndex = wordIndex(permissionId);
+        return wordIndex < words.length && (words[wordIndex] & (1L << permissionId)) != 0;
+    }
+
+    /**
+     * Adds all the permissions of the other set to this set (union)
+     *
+     * @param other the other permission set
+     */
+    public void addAll(PermissionSet other) {
+        int otherLength = other.usedWords();
+        ensureCapacity(otherLength);
+        for (int i = 0; i < otherLength; i++)
+            words[i] |= other.words[i];
+    }
+
+    /**
+     * Removes the permissions that are not in the other set from this set (intersection)
+     *
+     * @param other the other permission set
+     */
+    public void retainAll(PermissionSet other) {
+        int commonLength = Math.min(words.length, other.words.length);
+        for (int i = 0; i < commonLength; i++)
+            words[i] &= other.words[i];
+        for (int i = commonLength; i < words.length; i++)
+            words[i] = 0;
+    }
+
+    /**
+     * Removes all the permissions of the other set from this set (difference)
+     *
+     * @param other the other permission set
+     */
+    public void removeAll(PermissionSet other) {
+        int commonLength = Math.min(words.length, other.words.length);
+        for (int i = 0; i < commonLength; i++)
+            words[i] &= ~other.words[i];
+    }
+
+    /**
+     * Method to check whether all the permissions of the other set are in this set
+     *
+     * @param other the other permission set
+     * @return true if the other set is a subset of this set
+     */
+    public boolean containsAll(PermissionSet other) {
+        for (int i = 0; i < other.words.length; i++) {
+            long word = i < words.length ? words[i] : 0;
+            if ((other.words[i] & ~word) != 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Method to check whether this set has any permission in common with the other set
+     *
+     * @param other the other permission set
+     * @return true if the sets intersect
+     */
+    public boolean intersects(PermissionSet other) {
+        int commonLength = Math.min(words.length, other.words.length);
+        for (int i = 0; i < commonLength; i++)
+            if ((words[i] & other.words[i]) != 0)
+                return true;
+        return false;
+    }
+
+    /**
+     * Replaces the contents of this set with the contents of the other set
+     *
+     * @param other the other permission set
+     */
+    public void copyFrom(PermissionSet other) {
+        ensureCapacity(other.words.length);
+        System.arraycopy(other.words, 0, words, 0, other.words.length);
+        for (int i = other.words.length; i < words.length; i++)
+            words[i] = 0;
+    }
+
+    public void clear() {
+        Arrays.fill(words, 0);
+    }
+
+    public boolean isEmpty() {
+        for (long word : words)
+            if (word != 0)
+                return false;
+        return true;
+    }
+
+    public int size() {
+        int size = 0;
+        for (long word : words)
+            size += Long.bitCount(word);
+        return size;
+    }
+
+    /**
+     * Method to get the next permission id in the set
+     *
+     * @param fromPermissionId the id to start searching from (inclusive)
+     * @return the next permission id in the set, or -1 if there are no more permissions
+     */
+    public int nextPermissionId(int fromPermissionId) {
+        int wordIndex = wordIndex(fromPermissionId);
+        if (wordIndex >= words.length)
+            return -1;
+
+        long word = words[wordIndex] & (-1L << fromPermissionId);
+        while (true) {
+            if (word != 0)
+                return (wordIndex << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+            if (++wordIndex == words.length)
+                return -1;
+            word = words[wordIndex];
+        }
+    }
+
+    /**
+     * Method to get the permissions in the set, ordered by their permission ids
+     *
+     * @return the permissions in the set
+     */
+    public String[] toArray() {
+        String[] permissions = new String[size()];
+        int index = 0;
+        for (int permissionId = nextPermissionId(0); permissionId >= 0; permissionId = nextPermissionId(permissionId + 1))
+            permissions[index++] = PermissionRegistry.nameOf(permissionId);
+        return permissions;
+    }
+
+    /**
+     * Method to get the permissions in the set, in the order in which they appear in the given array.
+     * The set is only used for the membership checks, so the order in which the caller asked for the permissions
+     * is preserved. Permissions of the set that are not in the given array are left out
+     *
+     * @param order the permissions in the expected order, without duplicates
+     * @return the permissions in the set, in the given order
+     */
+    public String[] toArray(String[] order) {
+        String[] permissions = new String[size()];
+        int index = 0;
+        for (String permission : order)
+            if (index < permissions.length && contains(permission))
+                permissions[index++] = permission;
+        return index == permissions.length ? permissions : Arrays.copyOf(permissions, index);
+    }
+
+    private int usedWords() {
+        int length = words.length;
+        while (length > 0 && words[length - 1] == 0)
+            length--;
+        return length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PermissionSet)) return false;
+        PermissionSet other = (PermissionSet) o;
+        int usedWords = usedWords();
+        if (usedWords != other.usedWords())
+            return false;
+        for (int i = 0; i < usedWords; i++)
+            if (words[i] != other.words[i])
+                return false;
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = 1234;
+        for (int i = usedWords(); --i >= 0; )
+            hash ^= words[i] * (i + 1);
+        return (int) ((hash >> 32) ^ hash);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -1,5 +1,7 @@
 package in.notyouraveragedev.permissionmanager.responses;
 
+import in.notyouraveragedev.permissionmanager.registry.PermissionRegistry;
+
 /**
  * The wrapper POJO class to provide the permission and its status to calling activity
  * <p>
@@ -18,6 +20,14 @@ public class PermissionResponse {
         return permission;
     }
 
+    /**
+     * @return the id of the permission in the {@link PermissionRegistry},
+     * which can be used with {@link in.notyouraveragedev.permissionmanager.registry.PermissionSet}
+     */
+    public int getPermissionId() {
+        return PermissionRegistry.intern(permission);
+    }
+
     public int getPermissionStatus() {
         return permissionStatus;
     }
@@ -0,0 +1,119 @@
+package in.notyouraveragedev.permissionmanager.responses;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import in.notyouraveragedev.permissionmanager.registry.PermissionRegistry;
+import in.notyouraveragedev.permissionmanager.registry.PermissionSet;
+
+/**
+ * The container used to provide the permissions and their statuses of a group permission request
+ * to the calling activity.
+ * <p>
+ * The permissions and statuses are held in parallel arrays, so no object is created per permission.
+ * A {@link List<PermissionResponse>} view is available through {@link #asList()} for callers working with
+ * {@link PermissionResponse}, whose elements are created lazily on first access.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+public class PermissionResults {
+
+    /**
+     * Status returned by {@link #statusOf(String)} for permissions that are not part of the results
+     */
+    public static final int STATUS_NOT_FOUND = Integer.MIN_VALUE;
+
+    private final String[] permissions;
+    private final int[] permissionStatuses;
+
+    /**
+     * The lazily created list view
+     */
+    private List<PermissionResponse> permissionResponses;
+
+    /**
+     * Creates the results using the given arrays. The arrays are not copied and must not be modified afterwards.
+     *
+     * @param permissions        the permissions
+     * @param permissionStatuses the statuses of the permissions, in the order of the permissions
+     */
+    public PermissionResults(String[] permissions, int[] permissionStatuses) {
+        if (permissions.length != permissionStatuses.length)
+            throw new IllegalArgumentException("Permissions and statuses must have the same length");
+        this.permissions = permissions;
+        this.permissionStatuses = permissionStatuses;
+    }
+
+    public int size() {
+        return permissions.length;
+    }
+
+    public String getPermission(int index) {
+        return permissions[index];
+    }
+
+    public int getPermissionStatus(int index) {
+        return permissionStatuses[index];
+    }
+
+    /**
+     * Method to look up the status of a permission
+     *
+     * @param permission the permission
+     * @return the status of the permission, or {@link #STATUS_NOT_FOUND} if the permission is not part of the results
+     */
+    public int statusOf(String permission) {
+        for (int i = 0; i < permissions.length; i++)
+            if (permissions[i].equals(permission))
+                return permissionStatuses[i];
+        return STATUS_NOT_FOUND;
+    }
+
+    /**
+     * Method to add all the permissions having the given status to a {@link PermissionSet}
+     *
+     * @param permissionStatus the status to look for
+     * @param permissionSet    the set to which the permissions are to be added
+     */
+    public void collectPermissions(int permissionStatus, PermissionSet permissionSet) {
+        for (int i = 0; i < permissions.length; i++)
+            if (permissionStatuses[i] == permissionStatus)
+                permissionSet.add(PermissionRegistry.intern(permissions[i]));
+    }
+
+    /**
+     * Method to get the results as a {@link List<PermissionResponse>}.
+     * The {@link PermissionResponse} for each permission is only created when it is first accessed.
+     *
+     * @return an unmodifiable list view of the results
+     */
+    public List<PermissionResponse> asList() {
+        if (permissionResponses == null)
+            permissionResponses = new PermissionResponseList();
+        return permissionResponses;
+    }
+
+    /**
+     * Unmodifiable list view over the results creating the responses on demand
+     */
+    private class PermissionResponseList extends AbstractList<PermissionResponse> implements RandomAccess {
+
+        private final PermissionResponse[] responses = new PermissionResponse[permissions.length];
+
+        @Override
+        public PermissionResponse get(int index) {
+            PermissionResponse permissionResponse = responses[index];
+            if (permissionResponse == null) {
+                permissionResponse = new PermissionResponse(permissions[index], permissionStatuses[index]);
+                responses[index] = permissionResponse;
+            }
+            return permissionResponse;
+        }
+
+        @Override
+        public int size() {
+            return permissions.length;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package in.notyouraveragedev.permissionmanager.service;
+
+import android.app.Activity;
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
+
+/**
+ * {@link PermissionBackend} checking permissions using {@link ContextCompat#checkSelfPermission(Context, String)}.
+ * <p>
+ * Cost: every check is a single permission check, i.e. one binder call per permission, without the AppOps check
+ * done by {@link PermissionCheckerBackend}. The status does not reflect AppOps restrictions, so this backend
+ * is correct for applications targeting API 23 and above that do not rely on AppOps restricted permissions.
+ * <p>
+ * Batch checks use a single package info lookup for all the permissions.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+public class ContextCompatBackend implements PermissionBackend {
+
+    @Override
+    public int checkSelfPermission(@NonNull Context context, @NonNull String permission) {
+        return ContextCompat.checkSelfPermission(context, permission);
+    }
+
+    @Override
+    public int[] checkSelfPermissions(@NonNull Context context, @NonNull String[] permissions) {
+        return PermissionService.checkSelfPermissions(context, permissions, this);
+    }
+
+    @Override
+    public boolean shouldShowRequestPermissionRationale(@NonNull Activity activity, @NonNull String permission) {
+        return ActivityCompat.shouldShowRequestPermissionRationale(activity, permission);
+    }
+
+    @Override
+    public void requestPermissions(@NonNull Activity activity, @NonNull String[] permissions, int requestCode) {
+        ActivityCompat.requestPermissions(activity, permissions, requestCode);
+    }
+}
@@ -0,0 +1,124 @@
+package in.notyouraveragedev.permissionmanager.service;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.ActivityCompat;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import in.notyouraveragedev.permissionmanager.PermissionManager;
+
+/**
+ * In-memory {@link PermissionBackend}, answering from permission statuses set by the caller.
+ * Meant for tests and benchmarks of the flows built on PermissionManager, on a device or off it.
+ * <p>
+ * Cost: a map lookup per check, no system call at all.
+ * <p>
+ * Permissions are denied until their status is set. A permission request does not show any prompt, each requested
+ * permission takes the result set using {@link #setRequestResult(String, int)}, or keeps its status if none was set.
+ * The results are then posted to {@link ActivityCompat.OnRequestPermissionsResultCallback#onRequestPermissionsResult(int, String[], int[])}
+ * of the requesting activity on the main thread. A permission that is denied by a request shows a rationale afterwards,
+ * unless its rationale has been set explicitly.
+ * <p>
+ * Requests made from the headless fragment would go through the fragment itself, so this backend cannot be used
+ * along with headless fragment requests.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+public class InMemoryPermissionBackend implements PermissionBackend {
+
+    private final Map<String, Integer> permissionStatuses = new ConcurrentHashMap<>();
+    private final Map<String, Integer> requestResults = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> rationales = new ConcurrentHashMap<>();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Method to set the current status of a permission
+     *
+     * @param permission       the permission
+     * @param permissionStatus the status
+     * @return this backend
+     */
+    public InMemoryPermissionBackend setPermissionStatus(@NonNull String permission, int permissionStatus) {
+        permissionStatuses.put(permission, permissionStatus);
+        return this;
+    }
+
+    /**
+     * Method to set the result the user will give when the permission is requested
+     *
+     * @param permission the permission
+     * @param result     {@link PermissionManager#PERMISSION_GRANTED} or {@link PermissionManager#PERMISSION_DENIED}
+     * @return this backend
+     */
+    public InMemoryPermissionBackend setRequestResult(@NonNull String permission, int result) {
+        requestResults.put(permission, result);
+        return this;
+    }
+
+    /**
+     * Method to set whether a rationale should be shown for a permission
+     *
+     * @param permission          the permission
+     * @param shouldShowRationale whether a rationale should be shown
+     * @return this backend
+     */
+    public InMemoryPermissionBackend setShouldShowRequestPermissionRationale(@NonNull String permission,
+                                                                             boolean shouldShowRationale) {
+        rationales.put(permission, shouldShowRationale);
+        return this;
+    }
+
+    /**
+     * @return the number of permission requests made to this backend
+     */
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    @Override
+    public int checkSelfPermission(@NonNull Context context, @NonNull String permission) {
+        Integer permissionStatus = permissionStatuses.get(permission);
+        return permissionStatus != null ? permissionStatus : PermissionManager.PERMISSION_DENIED;
+    }
+
+    @Override
+    public int[] checkSelfPermissions(@NonNull Context context, @NonNull String[] permissions) {
+        int[] statuses = new int[permissions.length];
+        for (int i = 0; i < permissions.length; i++)
+            statuses[i] = checkSelfPermission(context, permissions[i]);
+        return statuses;
+    }
+
+    @Override
+    public boolean shouldShowRequestPermissionRationale(@NonNull Activity activity, @NonNull String permission) {
+        Boolean shouldShowRationale = rationales.get(permission);
+        return shouldShowRationale != null && shouldShowRationale;
+    }
+
+    @Override
+    public void requestPermissions(@NonNull Activity activity, @NonNull String[] permissions, int requestCode) {
+        requestCount.incrementAndGet();
+        int[] grantResults = new int[permissions.length];
+        for (int i = 0; i < permissions.length; i++) {
+            Integer result = requestResults.get(permissions[i]);
+            if (result != null) {
+                permissionStatuses.put(permissions[i], result);
+                if (result != PermissionManager.PERMISSION_GRANTED && !rationales.containsKey(permissions[i]))
+                    rationales.put(permissions[i], true);
+            }
+            grantResults[i] = checkSelfPermission(activity, permissions[i]);
+        }
+
+        if (activity instanceof ActivityCompat.OnRequestPermissionsResultCallback)
+            mainHandler.post(() -> ((ActivityCompat.OnRequestPermissionsResultCallback) activity)
+                    .onRequestPermissionsResult(requestCode, permissions, grantResults));
+    }
+}
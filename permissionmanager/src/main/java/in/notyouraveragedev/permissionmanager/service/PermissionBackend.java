@@ -0,0 +1,63 @@
+package in.notyouraveragedev.permissionmanager.service;
+
+import android.app.Activity;
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Contract of the backends used by PermissionManager to talk to the Android Permission System.
+ * <p>
+ * A backend checks the status of permissions, tells whether a rationale should be shown for a permission
+ * and makes permission requests. The backend is chosen while building the PermissionManager using
+ * {@link in.notyouraveragedev.permissionmanager.PermissionManagerBuilder#setPermissionBackend(PermissionBackend)},
+ * and defaults to {@link PermissionCheckerBackend}.
+ * <p>
+ * The backends shipped with the library are
+ * 1. {@link PermissionCheckerBackend}: AppOps aware, the most accurate and the most expensive check
+ * 2. {@link ContextCompatBackend}: a single permission check, cheaper but blind to AppOps restrictions
+ * 3. {@link InMemoryPermissionBackend}: no system call at all, for tests and benchmarks
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+public interface PermissionBackend {
+
+    /**
+     * Method to check whether a given permission has been granted or not.
+     *
+     * @param context    the activity context
+     * @param permission the permission to check
+     * @return the current status of the permission
+     */
+    int checkSelfPermission(@NonNull Context context, @NonNull String permission);
+
+    /**
+     * Method to check the status of multiple permissions at once.
+     * Used when batch permission query has been enabled while building the PermissionManager
+     *
+     * @param context     the activity context
+     * @param permissions the permissions to check
+     * @return the current status of the permissions, in the order of the permissions
+     */
+    int[] checkSelfPermissions(@NonNull Context context, @NonNull String[] permissions);
+
+    /**
+     * Method to check whether a rationale should be shown before requesting a permission,
+     * i.e. whether the permission has been denied previously without choosing "Don't ask again"
+     *
+     * @param activity   the activity
+     * @param permission the permission to check
+     * @return true if a rationale should be shown
+     */
+    boolean shouldShowRequestPermissionRationale(@NonNull Activity activity, @NonNull String permission);
+
+    /**
+     * Method to make a permission request. The results are delivered to
+     * {@link Activity#onRequestPermissionsResult(int, String[], int[])} of the given activity
+     *
+     * @param activity    the activity from which permission has been requested
+     * @param permissions the permissions to be requested
+     * @param requestCode the permission request code
+     */
+    void requestPermissions(@NonNull Activity activity, @NonNull String[] permissions, int requestCode);
+}
@@ -0,0 +1,42 @@
+package in.notyouraveragedev.permissionmanager.service;
+
+import android.app.Activity;
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.PermissionChecker;
+
+/**
+ * The default {@link PermissionBackend}, checking permissions using {@link PermissionChecker}.
+ * <p>
+ * Cost: every check is a permission check followed by an AppOps check for the permission,
+ * i.e. up to two binder calls per permission. In exchange the status also reflects AppOps restrictions,
+ * such as permissions revoked for legacy applications or restricted by the user through AppOps.
+ * <p>
+ * Batch checks use a single package info lookup for all the permissions, which does not reflect AppOps restrictions.
+ * <p>
+ * Created by A Anand on 17-10-2026
+ */
+public class PermissionCheckerBackend implements PermissionBackend {
+
+    @Override
+    public int checkSelfPermission(@NonNull Context context, @NonNull String permission) {
+        return PermissionChecker.checkSelfPermission(context, permission);
+    }
+
+    @Override
+    public int[] checkSelfPermissions(@NonNull Context context, @NonNull String[] permissions) {
+        return PermissionService.checkSelfPermissions(context, permissions, this);
+    }
+
+    @Override
+    public boolean shouldShowRequestPermissionRationale(@NonNull Activity activity, @NonNull String permission) {
+        return ActivityCompat.shouldShowRequestPermissionRationale(activity, permission);
+    }
+
+    @Override
+    public void requestPermissions(@NonNull Activity activity, @NonNull String[] permissions, int requestCode) {
+        ActivityCompat.requestPermissions(activity, permissions, requestCode);
+    }
+}
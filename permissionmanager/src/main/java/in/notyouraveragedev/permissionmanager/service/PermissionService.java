@@ -2,21 +2,38 @@ package in.notyouraveragedev.permissionmanager.service;
 
 import android.app.Activity;
 import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.core.app.ActivityCompat;
-import androidx.core.content.PermissionChecker;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import in.notyouraveragedev.permissionmanager.PermissionManager;
 
 /**
- * The wrapper class for all static calls to the Android Permission System
+ * The wrapper class for all static calls to the Android Permission System.
+ * <p>
+ * The static calls are answered by the default {@link PermissionCheckerBackend}.
+ * PermissionManager itself goes through the {@link PermissionBackend} chosen while building it.
  * <p>
  * Created by A Anand on 17-05-2020
  */
 public class PermissionService {
 
+    /**
+     * The backend answering the static calls
+     */
+    private static final PermissionBackend defaultBackend = new PermissionCheckerBackend();
+
+    /**
+     * Marker for permission statuses that could not be resolved from the package info
+     */
+    private static final int PERMISSION_STATUS_UNKNOWN = Integer.MIN_VALUE;
+
     /**
      * Method to check whether a given permission has been granted or not.
      *
@@ -25,7 +42,71 @@ public class PermissionService {
      * @return the current status of the permission
      */
     public static int checkSelfPermission(@NonNull Context context, @NonNull String permission) {
-        return PermissionChecker.checkSelfPermission(context, permission);
+        return defaultBackend.checkSelfPermission(context, permission);
+    }
+
+    /**
+     * Method to check the status of multiple permissions using a single
+     * {@link PackageManager#getPackageInfo(String, int)} lookup instead of one
+     * {@link #checkSelfPermission(Context, String)} call per permission.
+     * <p>
+     * The status of each permission is read from the granted bit of
+     * {@link PackageInfo#requestedPermissionsFlags}. Permissions that cannot be answered this way
+     * (not requested in the manifest or the package info is not available) are checked individually.
+     * <p>
+     * Note that the requested permission flags do not reflect AppOps restrictions.
+     *
+     * @param context     the activity context
+     * @param permissions the permissions to check
+     * @return the current status of the permissions, in the order of the permissions
+     */
+    public static int[] checkSelfPermissions(@NonNull Context context, @NonNull String[] permissions) {
+        return checkSelfPermissions(context, permissions, defaultBackend);
+    }
+
+    /**
+     * Method to check the status of multiple permissions using a single
+     * {@link PackageManager#getPackageInfo(String, int)} lookup. Permissions that cannot be answered this way
+     * are checked individually using the given backend
+     *
+     * @param context     the activity context
+     * @param permissions the permissions to check
+     * @param backend     the backend checking the permissions that cannot be answered from the package info
+     * @return the current status of the permissions, in the order of the permissions
+     */
+    public static int[] checkSelfPermissions(@NonNull Context context, @NonNull String[] permissions,
+                                             @NonNull PermissionBackend backend) {
+        int[] permissionStatuses = new int[permissions.length];
+        Arrays.fill(permissionStatuses, PERMISSION_STATUS_UNKNOWN);
+
+        try {
+            PackageInfo packageInfo = context.getPackageManager()
+                    .getPackageInfo(context.getPackageName(), PackageManager.GET_PERMISSIONS);
+            String[] requestedPermissions = packageInfo.requestedPermissions;
+            int[] requestedPermissionsFlags = packageInfo.requestedPermissionsFlags;
+
+            if (requestedPermissions != null && requestedPermissionsFlags != null) {
+                Map<String, Integer> requestedPermissionIndex = new HashMap<>();
+                for (int i = 0; i < requestedPermissions.length; i++)
+                    requestedPermissionIndex.put(requestedPermissions[i], i);
+
+                for (int i = 0; i < permissions.length; i++) {
+                    Integer index = requestedPermissionIndex.get(permissions[i]);
+                    if (index != null)
+                        permissionStatuses[i] = (requestedPermissionsFlags[index] & PackageInfo.REQUESTED_PERMISSION_GRANTED) != 0
+                                ? PermissionManager.PERMISSION_GRANTED : PermissionManager.PERMISSION_DENIED;
+                }
+            }
+        } catch (PackageManager.NameNotFoundException ignored) {
+            // Every permission will be checked individually
+        }
+
+        // Falling back to individual checks for the permissions that could not be answered
+        for (int i = 0; i < permissions.length; i++) {
+            if (permissionStatuses[i] == PERMISSION_STATUS_UNKNOWN)
+                permissionStatuses[i] = backend.checkSelfPermission(context, permissions[i]);
+        }
+        return permissionStatuses;
     }
 
     /**
@@ -41,7 +122,7 @@ public class PermissionService {
         if (activity == null)
             return;
 
-        ActivityCompat.requestPermissions(activity, permissions, requestCode);
+        defaultBackend.requestPermissions(activity, permissions, requestCode);
     }
 
     /**
@@ -56,7 +137,7 @@ public class PermissionService {
         if (activity == null)
             return false;
 
-        return ActivityCompat.shouldShowRequestPermissionRationale(activity, permission);
+        return defaultBackend.shouldShowRequestPermissionRationale(activity, permission);
     }
 
     /**
@@ -2,18 +2,108 @@ package in.notyouraveragedev.permissionmanager.util;
 
 import android.Manifest;
 import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.pm.PermissionInfo;
 import android.graphics.drawable.Drawable;
+import android.os.Build;
 
+import androidx.annotation.DrawableRes;
 import androidx.core.content.ContextCompat;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import in.notyouraveragedev.permissionmanager.R;
 
 /**
  * Utility class
+ * <p>
+ * The alert icons are looked up from a table of permissions and permission groups, which can be extended
+ * with {@link #registerPermissionIcon(String, int)} and {@link #registerPermissionGroupIcon(String, int)}.
+ * Only the resolved drawable resources are cached, the drawables themselves are loaded through the resources
+ * of the given context, so that they always match its current configuration.
+ * <p>
  * Created by A Anand on 20-05-2020
  */
 public class Utility {
 
+    /**
+     * The icons of individual permissions
+     */
+    private static final Map<String, Integer> permissionIcons = new ConcurrentHashMap<>();
+
+    /**
+     * The icons of permission groups, used for permissions without an icon of their own
+     */
+    private static final Map<String, Integer> permissionGroupIcons = new ConcurrentHashMap<>();
+
+    /**
+     * The icons already resolved for permissions, including the ones resolved through their permission group
+     */
+    private static final Map<String, Integer> resolvedIcons = new ConcurrentHashMap<>();
+
+    static {
+        registerIcon(R.drawable.baseline_sms_white_48, Manifest.permission.SEND_SMS,
+                Manifest.permission.RECEIVE_SMS, Manifest.permission.READ_SMS);
+        registerIcon(R.drawable.baseline_calendar_today_white_48, Manifest.permission.READ_CALENDAR,
+                Manifest.permission.WRITE_CALENDAR);
+        registerIcon(R.drawable.baseline_camera_alt_white_48, Manifest.permission.CAMERA);
+        registerIcon(R.drawable.baseline_contacts_white_48, Manifest.permission.READ_CONTACTS,
+                Manifest.permission.WRITE_CONTACTS, Manifest.permission.GET_ACCOUNTS);
+        registerIcon(R.drawable.baseline_location_on_white_48, Manifest.permission.ACCESS_FINE_LOCATION,
+                Manifest.permission.ACCESS_COARSE_LOCATION);
+        registerIcon(R.drawable.baseline_record_voice_over_white_48, Manifest.permission.RECORD_AUDIO);
+        registerIcon(R.drawable.baseline_phone_white_48, Manifest.permission.CALL_PHONE,
+                Manifest.permission.READ_PHONE_STATE, Manifest.permission.READ_PHONE_NUMBERS,
+                Manifest.permission.ANSWER_PHONE_CALLS, Manifest.permission.READ_CALL_LOG,
+                Manifest.permission.WRITE_CALL_LOG);
+        registerIcon(R.drawable.baseline_voicemail_white_48, Manifest.permission.ADD_VOICEMAIL);
+        registerIcon(R.drawable.baseline_dialer_sip_white_48, Manifest.permission.USE_SIP);
+        registerIcon(R.drawable.baseline_accessibility_new_white_48, Manifest.permission.BODY_SENSORS);
+        registerIcon(R.drawable.baseline_mms_white_48, Manifest.permission.RECEIVE_MMS,
+                Manifest.permission.RECEIVE_WAP_PUSH);
+        registerIcon(R.drawable.baseline_storage_white_48, Manifest.permission.READ_EXTERNAL_STORAGE,
+                Manifest.permission.WRITE_EXTERNAL_STORAGE);
+
+        permissionGroupIcons.put(Manifest.permission_group.SMS, R.drawable.baseline_sms_white_48);
+        permissionGroupIcons.put(Manifest.permission_group.CALENDAR, R.drawable.baseline_calendar_today_white_48);
+        permissionGroupIcons.put(Manifest.permission_group.CAMERA, R.drawable.baseline_camera_alt_white_48);
+        permissionGroupIcons.put(Manifest.permission_group.CONTACTS, R.drawable.baseline_contacts_white_48);
+        permissionGroupIcons.put(Manifest.permission_group.LOCATION, R.drawable.baseline_location_on_white_48);
+        permissionGroupIcons.put(Manifest.permission_group.MICROPHONE, R.drawable.baseline_record_voice_over_white_48);
+        permissionGroupIcons.put(Manifest.permission_group.PHONE, R.drawable.baseline_phone_white_48);
+        permissionGroupIcons.put(Manifest.permission_group.SENSORS, R.drawable.baseline_accessibility_new_white_48);
+        permissionGroupIcons.put(Manifest.permission_group.STORAGE, R.drawable.baseline_storage_white_48);
+    }
+
+    private static void registerIcon(int drawableRes, String... permissions) {
+        for (String permission : permissions)
+            permissionIcons.put(permission, drawableRes);
+    }
+
+    /**
+     * Method to register the alert icon of a permission, for example of a custom permission declared by the application
+     *
+     * @param permission  the permission
+     * @param drawableRes the drawable resource of the icon
+     */
+    public static void registerPermissionIcon(String permission, @DrawableRes int drawableRes) {
+        permissionIcons.put(permission, drawableRes);
+        resolvedIcons.clear();
+    }
+
+    /**
+     * Method to register the alert icon of a permission group.
+     * The icon is used for the permissions of the group that do not have an icon of their own
+     *
+     * @param permissionGroup the permission group
+     * @param drawableRes     the drawable resource of the icon
+     */
+    public static void registerPermissionGroupIcon(String permissionGroup, @DrawableRes int drawableRes) {
+        permissionGroupIcons.put(permissionGroup, drawableRes);
+        resolvedIcons.clear();
+    }
+
     /**
      * Method to select an appropriate icon for alert based on type or permission
      *
@@ -22,46 +112,41 @@ public class Utility {
      * @return a drawable
      */
     public static Drawable getDrawableImage(Context context, String permission) {
-        switch (permission) {
-            case Manifest.permission.SEND_SMS:
-            case Manifest.permission.RECEIVE_SMS:
-            case Manifest.permission.READ_SMS:
-                return ContextCompat.getDrawable(context, R.drawable.baseline_sms_white_48);
-            case Manifest.permission.READ_CALENDAR:
-            case Manifest.permission.WRITE_CALENDAR:
-                return ContextCompat.getDrawable(context, R.drawable.baseline_calendar_today_white_48);
-            case Manifest.permission.CAMERA:
-                return ContextCompat.getDrawable(context, R.drawable.baseline_camera_alt_white_48);
-            case Manifest.permission.READ_CONTACTS:
-            case Manifest.permission.WRITE_CONTACTS:
-            case Manifest.permission.GET_ACCOUNTS:
-                return ContextCompat.getDrawable(context, R.drawable.baseline_contacts_white_48);
-            case Manifest.permission.ACCESS_FINE_LOCATION:
-            case Manifest.permission.ACCESS_COARSE_LOCATION:
-                return ContextCompat.getDrawable(context, R.drawable.baseline_location_on_white_48);
-            case Manifest.permission.RECORD_AUDIO:
-                return ContextCompat.getDrawable(context, R.drawable.baseline_record_voice_over_white_48);
-            case Manifest.permission.CALL_PHONE:
-            case Manifest.permission.READ_PHONE_STATE:
-            case Manifest.permission.READ_PHONE_NUMBERS:
-            case Manifest.permission.ANSWER_PHONE_CALLS:
-            case Manifest.permission.READ_CALL_LOG:
-            case Manifest.permission.WRITE_CALL_LOG:
-                return ContextCompat.getDrawable(context, R.drawable.baseline_phone_white_48);
-            case Manifest.permission.ADD_VOICEMAIL:
-                return ContextCompat.getDrawable(context, R.drawable.baseline_voicemail_white_48);
-            case Manifest.permission.USE_SIP:
-                return ContextCompat.getDrawable(context, R.drawable.baseline_dialer_sip_white_48);
-            case Manifest.permission.BODY_SENSORS:
-                return ContextCompat.getDrawable(context, R.drawable.baseline_accessibility_new_white_48);
-            case Manifest.permission.RECEIVE_MMS:
-            case Manifest.permission.RECEIVE_WAP_PUSH:
-                return ContextCompat.getDrawable(context, R.drawable.baseline_mms_white_48);
-            case Manifest.permission.READ_EXTERNAL_STORAGE:
-            case Manifest.permission.WRITE_EXTERNAL_STORAGE:
-                return ContextCompat.getDrawable(context, R.drawable.baseline_storage_white_48);
-            default:
-                return ContextCompat.getDrawable(context, R.drawable.baseline_security_white_48);
+        Integer drawableRes = resolvedIcons.get(permission);
+        if (drawableRes == null) {
+            drawableRes = resolveIcon(context, permission);
+            resolvedIcons.put(permission, drawableRes);
+        }
+
+        return ContextCompat.getDrawable(context, drawableRes);
+    }
+
+    /**
+     * Method to find the icon of a permission, either registered for the permission itself
+     * or for its permission group. The default icon is used if neither has been registered.
+     * From Android 10 the platform no longer reports the group of a permission, so the group is not looked up
+     *
+     * @param context    the activity context
+     * @param permission the permission in question
+     * @return the drawable resource of the icon
+     */
+    private static int resolveIcon(Context context, String permission) {
+        Integer drawableRes = permissionIcons.get(permission);
+        if (drawableRes != null)
+            return drawableRes;
+
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q && !permission.isEmpty() && !permissionGroupIcons.isEmpty()) {
+            try {
+                PermissionInfo permissionInfo = context.getPackageManager().getPermissionInfo(permission, 0);
+                if (permissionInfo.group != null) {
+                    drawableRes = permissionGroupIcons.get(permissionInfo.group);
+                    if (drawableRes != null)
+                        return drawableRes;
+                }
+            } catch (PackageManager.NameNotFoundException ignored) {
+                // Unknown permissions use the default icon
+            }
         }
+        return R.drawable.baseline_security_white_48;
     }
 }
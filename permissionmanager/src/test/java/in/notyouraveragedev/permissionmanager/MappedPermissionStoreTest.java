@@ -0,0 +1,154 @@
+package in.notyouraveragedev.permissionmanager;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests of the {@link MappedPermissionStore}, run on the development machine (host).
+ */
+public class MappedPermissionStoreTest {
+
+    private static final String CAMERA = "android.permission.CAMERA";
+    private static final String LOCATION = "android.permission.ACCESS_FINE_LOCATION";
+
+    /**
+     * Offset of the name length of the first record, right after the 32 byte header
+     */
+    private static final int FIRST_RECORD_NAME_LENGTH_OFFSET = 32;
+
+    private static final Executor DIRECT_EXECUTOR = Runnable::run;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File storeFile() {
+        return new File(temporaryFolder.getRoot(), "permissions.store");
+    }
+
+    @Test
+    public void storedDetailsAreReadBackAfterReopening() throws IOException {
+        MappedPermissionStore store = new MappedPermissionStore(storeFile(), DIRECT_EXECUTOR);
+        store.setPermanentlyDenied(CAMERA, true);
+        store.recordRequest(LOCATION);
+        store.recordRequest(LOCATION);
+        store.recordDenied(LOCATION, 1000L);
+        store.recordGranted(LOCATION, 2000L);
+        store.flush();
+
+        MappedPermissionStore reopened = new MappedPermissionStore(storeFile(), DIRECT_EXECUTOR);
+
+        assertTrue(reopened.isPermanentlyDenied(CAMERA));
+        assertFalse(reopened.isPermanentlyDenied(LOCATION));
+        assertEquals(2, reopened.getRequestCount(LOCATION));
+        assertEquals(1000L, reopened.getLastDeniedTime(LOCATION));
+        assertEquals(2000L, reopened.getLastGrantedTime(LOCATION));
+    }
+
+    @Test
+    public void storeGrowsBeyondItsInitialCapacity() throws IOException {
+        MappedPermissionStore store = new MappedPermissionStore(storeFile(), DIRECT_EXECUTOR);
+        for (int i = 0; i < 100; i++)
+            store.setPermanentlyDenied("test.permission.GROWTH_" + i, true);
+        store.flush();
+
+        MappedPermissionStore reopened = new MappedPermissionStore(storeFile(), DIRECT_EXECUTOR);
+
+        for (int i = 0; i < 100; i++)
+            assertTrue(reopened.isPermanentlyDenied("test.permission.GROWTH_" + i));
+    }
+
+    @Test
+    public void negativeNameLengthDiscardsTheFile() throws IOException {
+        writeStoreWithCamera();
+        corruptFirstRecordNameLength((short) -1);
+
+        MappedPermissionStore reopened = new MappedPermissionStore(storeFile(), DIRECT_EXECUTOR);
+
+        assertFalse(reopened.isPermanentlyDenied(CAMERA));
+        assertFalse(reopened.isMigrated());
+        reopened.setPermanentlyDenied(LOCATION, true);
+        reopened.flush();
+        assertTrue(new MappedPermissionStore(storeFile(), DIRECT_EXECUTOR).isPermanentlyDenied(LOCATION));
+    }
+
+    @Test
+    public void nameLengthBeyondTheRecordDiscardsTheFile() throws IOException {
+        writeStoreWithCamera();
+        corruptFirstRecordNameLength((short) 200);
+
+        MappedPermissionStore reopened = new MappedPermissionStore(storeFile(), DIRECT_EXECUTOR);
+
+        assertFalse(reopened.isPermanentlyDenied(CAMERA));
+        assertEquals(0, reopened.getRequestCount(CAMERA));
+    }
+
+    @Test
+    public void migrationIsMarkedOnlyOnceFinished() throws IOException {
+        MappedPermissionStore store = new MappedPermissionStore(storeFile(), DIRECT_EXECUTOR);
+        assertFalse(store.isMigrated());
+
+        store.migrate(Arrays.asList(CAMERA, LOCATION));
+        assertFalse(new MappedPermissionStore(storeFile(), DIRECT_EXECUTOR).isMigrated());
+
+        store.markMigrated();
+        MappedPermissionStore reopened = new MappedPermissionStore(storeFile(), DIRECT_EXECUTOR);
+        assertTrue(reopened.isMigrated());
+        assertTrue(reopened.isPermanentlyDenied(CAMERA));
+        assertTrue(reopened.isPermanentlyDenied(LOCATION));
+    }
+
+    @Test
+    public void legacyRemovalIsMarkedSeparatelyFromTheMigration() throws IOException {
+        MappedPermissionStore store = new MappedPermissionStore(storeFile(), DIRECT_EXECUTOR);
+        store.migrate(Arrays.asList(CAMERA));
+        store.markMigrated();
+        assertFalse(new MappedPermissionStore(storeFile(), DIRECT_EXECUTOR).isLegacyRemoved());
+
+        store.markLegacyRemoved();
+        MappedPermissionStore reopened = new MappedPermissionStore(storeFile(), DIRECT_EXECUTOR);
+        assertTrue(reopened.isMigrated());
+        assertTrue(reopened.isLegacyRemoved());
+        assertTrue(reopened.isPermanentlyDenied(CAMERA));
+    }
+
+    @Test
+    public void namesThatDoNotFitARecordAreOnlyKeptInMemory() throws IOException {
+        char[] name = new char[200];
+        Arrays.fill(name, 'p');
+        String longPermission = new String(name);
+        MappedPermissionStore store = new MappedPermissionStore(storeFile(), DIRECT_EXECUTOR);
+
+        store.setPermanentlyDenied(longPermission, true);
+        store.recordRequest(longPermission);
+        store.flush();
+
+        assertTrue(store.isPermanentlyDenied(longPermission));
+        assertEquals(0, store.getRequestCount(longPermission));
+        assertFalse(new MappedPermissionStore(storeFile(), DIRECT_EXECUTOR).isPermanentlyDenied(longPermission));
+    }
+
+    private void writeStoreWithCamera() throws IOException {
+        MappedPermissionStore store = new MappedPermissionStore(storeFile(), DIRECT_EXECUTOR);
+        store.setPermanentlyDenied(CAMERA, true);
+        store.recordRequest(CAMERA);
+        store.markMigrated();
+    }
+
+    private void corruptFirstRecordNameLength(short nameLength) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(storeFile(), "rw")) {
+            file.seek(FIRST_RECORD_NAME_LENGTH_OFFSET);
+            file.writeShort(nameLength);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package in.notyouraveragedev.permissionmanager;
+
+import android.Manifest;
+import android.app.Dialog;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageInfo;
+import android.os.Bundle;
+import android.os.Looper;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.shadows.ShadowDialog;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import in.notyouraveragedev.permissionmanager.listener.PermissionResponseListener;
+import in.notyouraveragedev.permissionmanager.responses.PermissionResponse;
+import in.notyouraveragedev.permissionmanager.service.InMemoryPermissionBackend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Soak tests running full permission request cycles through {@link PermissionManager} on the development machine (host).
+ * <p>
+ * A cycle covers the request, the alert dialog for previously denied permissions, the launch of
+ * {@link RequestPermissionsActivity}, the results of the Android Permission System and the delivery to the
+ * {@link PermissionResponseListener}. The Android Permission System is replaced by an {@link InMemoryPermissionBackend}.
+ * <p>
+ * The wall time per cycle and the number of activities started are printed to the standard output.
+ * The soak tests are not run by default, see {@link SoakTests}.
+ */
+@Category(SoakTests.class)
+@RunWith(AndroidJUnit4.class)
+@Config(sdk = 28)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class PermissionCycleSoakTest {
+
+    private static final String PERMISSION = Manifest.permission.CAMERA;
+    private static final String REQUEST_MESSAGE = "The camera is needed to scan documents";
+
+    private static final int REQUEST_CYCLES = 500;
+    private static final int HOST_RECREATIONS = 2000;
+
+    /**
+     * Every this many recreations of the host activity, a full request cycle is run before the host is destroyed
+     */
+    private static final int CYCLE_EVERY_RECREATIONS = 10;
+
+    /**
+     * The heap growth tolerated between the end of the warm up and the end of the soak
+     */
+    private static final long MAX_HEAP_GROWTH_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * The destroyed host activities allowed to remain reachable, e.g. through the last dialog tracked by Robolectric
+     */
+    private static final int MAX_RETAINED_HOSTS = 2;
+
+    private InMemoryPermissionBackend permissionBackend;
+    private int startedActivities;
+
+    /**
+     * The host activity from which the PermissionManager is used
+     */
+    public static class HostActivity extends AppCompatActivity {
+        @Override
+        protected void onCreate(Bundle savedInstanceState) {
+            setTheme(R.style.Theme_AppCompat_Light);
+            super.onCreate(savedInstanceState);
+        }
+    }
+
+    /**
+     * Listener recording the responses delivered to it
+     */
+    private static class RecordingListener implements PermissionResponseListener {
+        private final List<PermissionResponse> responses = new ArrayList<>();
+
+        @Override
+        public void singlePermissionResponse(PermissionResponse permissionResponse) {
+            responses.add(permissionResponse);
+        }
+
+        @Override
+        public void multiplePermissionResponse(List<PermissionResponse> permissionResponses) {
+            responses.addAll(permissionResponses);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        // The permission is declared so that it reaches the permission backend instead of the manifest index
+        Context context = ApplicationProvider.getApplicationContext();
+        PackageInfo packageInfo = shadowOf(context.getPackageManager())
+                .getInternalMutablePackageInfo(context.getPackageName());
+        packageInfo.requestedPermissions = new String[]{PERMISSION};
+
+        permissionBackend = new InMemoryPermissionBackend();
+        startedActivities = 0;
+    }
+
+    @Test
+    public void requestCycles_deliverEveryResult() {
+        ActivityController<HostActivity> hostController = Robolectric.buildActivity(HostActivity.class).setup();
+        RecordingListener listener = new RecordingListener();
+        PermissionManager permissionManager = buildPermissionManager(hostController.get(), listener);
+
+        long startTime = System.nanoTime();
+        for (int cycle = 0; cycle < REQUEST_CYCLES; cycle++) {
+            int expectedStatus = runRequestCycle(hostController.get(), permissionManager, cycle);
+            assertEquals(cycle + 1, listener.responses.size());
+            assertEquals(expectedStatus, listener.responses.get(cycle).getPermissionStatus());
+        }
+        long elapsedNanos = System.nanoTime() - startTime;
+        hostController.pause().stop().destroy();
+
+        System.out.printf("Permission request cycles: %d, wall time per cycle: %.1f us, activities started: %d%n",
+                REQUEST_CYCLES, elapsedNanos / 1000.0 / REQUEST_CYCLES, startedActivities);
+        assertEquals(REQUEST_CYCLES, startedActivities);
+        assertEquals(0, PermissionRequestTable.size());
+    }
+
+    @Test
+    public void hostRecreations_keepRegistriesAndHeapBounded() {
+        int initialListenerCount = ListenerRegistry.size();
+        List<WeakReference<HostActivity>> destroyedHosts = new ArrayList<>();
+        long warmHeap = 0;
+        int cycles = 0;
+
+        for (int recreation = 0; recreation < HOST_RECREATIONS; recreation++) {
+            ActivityController<HostActivity> hostController = Robolectric.buildActivity(HostActivity.class).setup();
+            PermissionManager permissionManager = buildPermissionManager(hostController.get(), new RecordingListener());
+            if (recreation % CYCLE_EVERY_RECREATIONS == 0)
+                runRequestCycle(hostController.get(), permissionManager, cycles++);
+
+            hostController.pause().stop().destroy();
+            destroyedHosts.add(new WeakReference<>(hostController.get()));
+            shadowOf(Looper.getMainLooper()).idle();
+
+            if (recreation == HOST_RECREATIONS / 10)
+                warmHeap = usedHeapAfterGc();
+        }
+        long heapGrowth = usedHeapAfterGc() - warmHeap;
+
+        int retainedHosts = 0;
+        for (WeakReference<HostActivity> destroyedHost : destroyedHosts)
+            if (destroyedHost.get() != null)
+                retainedHosts++;
+
+        System.out.printf("Host recreations: %d, request cycles: %d, activities started: %d, "
+                        + "retained hosts: %d, heap growth: %d KB, registered listeners: %d, requests in flight: %d%n",
+                HOST_RECREATIONS, cycles, startedActivities, retainedHosts, heapGrowth / 1024,
+                ListenerRegistry.size(), PermissionRequestTable.size());
+
+        assertEquals(initialListenerCount, ListenerRegistry.size());
+        assertEquals(0, PermissionRequestTable.size());
+        assertTrue("Destroyed hosts retained: " + retainedHosts, retainedHosts <= MAX_RETAINED_HOSTS);
+        assertTrue("Heap grew by " + heapGrowth + " bytes", heapGrowth < MAX_HEAP_GROWTH_BYTES);
+    }
+
+    private PermissionManager buildPermissionManager(HostActivity host, PermissionResponseListener listener) {
+        return PermissionManagerBuilder.withContext(host)
+                .addPermissionResponseListener(listener)
+                .setPermissionBackend(permissionBackend)
+                .setRequestCoalescingWindow(0)
+                .build();
+    }
+
+    /**
+     * Method to run a full request cycle. Odd cycles go through the alert dialog for a previously denied permission,
+     * and every fourth cycle is denied by the user instead of granted
+     *
+     * @param host              the host activity
+     * @param permissionManager the PermissionManager of the host activity
+     * @param cycle             the number of the cycle
+     * @return the status expected to be delivered to the listener
+     */
+    private int runRequestCycle(HostActivity host, PermissionManager permissionManager, int cycle) {
+        boolean previouslyDenied = cycle % 2 == 1;
+        boolean denied = cycle % 4 == 3;
+        permissionBackend.setPermissionStatus(PERMISSION, PermissionManager.PERMISSION_DENIED)
+                .setShouldShowRequestPermissionRationale(PERMISSION, previouslyDenied)
+                .setRequestResult(PERMISSION, denied ? PermissionManager.PERMISSION_DENIED : PermissionManager.PERMISSION_GRANTED);
+
+        permissionManager.requestPermission(PERMISSION, REQUEST_MESSAGE);
+        shadowOf(Looper.getMainLooper()).idle();
+
+        if (previouslyDenied) {
+            Dialog dialog = ShadowDialog.getLatestDialog();
+            assertNotNull(dialog);
+            assertTrue(dialog.isShowing());
+            dialog.findViewById(R.id.bt_continue).performClick();
+            shadowOf(Looper.getMainLooper()).idle();
+        }
+
+        Intent requestIntent = shadowOf(host).getNextStartedActivity();
+        assertNotNull("The transparent activity was not started", requestIntent);
+        startedActivities++;
+        ActivityController<RequestPermissionsActivity> requestController =
+                Robolectric.buildActivity(RequestPermissionsActivity.class, requestIntent).setup();
+        // The results of the permission backend are posted to the main thread
+        shadowOf(Looper.getMainLooper()).idle();
+        assertTrue(requestController.get().isFinishing());
+        requestController.pause().stop().destroy();
+
+        return denied ? PermissionManager.PERMISSION_DENIED : PermissionManager.PERMISSION_GRANTED;
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            System.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
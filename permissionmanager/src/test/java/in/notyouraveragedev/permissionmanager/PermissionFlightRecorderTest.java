@@ -0,0 +1,88 @@
+package in.notyouraveragedev.permissionmanager;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import in.notyouraveragedev.permissionmanager.decision.PermissionState;
+import in.notyouraveragedev.permissionmanager.registry.PermissionRegistry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests of the {@link PermissionFlightRecorder}, run on the development machine (host).
+ */
+public class PermissionFlightRecorderTest {
+
+    private static final String CAMERA = "android.permission.CAMERA";
+
+    private static String dump(PermissionFlightRecorder recorder) {
+        StringWriter output = new StringWriter();
+        recorder.dump(new PrintWriter(output));
+        return output.toString();
+    }
+
+    @Test
+    public void capacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals(8, new PermissionFlightRecorder(5).getCapacity());
+        assertEquals(8, new PermissionFlightRecorder(8).getCapacity());
+        assertEquals(1, new PermissionFlightRecorder(0).getCapacity());
+    }
+
+    @Test
+    public void oneRecorderIsSharedByTheProcess() {
+        PermissionFlightRecorder recorder = PermissionFlightRecorder.obtain(16);
+
+        assertSame(recorder, PermissionFlightRecorder.obtain(64));
+        assertEquals(recorder.getCapacity(), PermissionFlightRecorder.obtain(4).getCapacity());
+    }
+
+    @Test
+    public void aMismatchedCapacityCanBeDetected() {
+        PermissionFlightRecorder recorder = PermissionFlightRecorder.obtain(16);
+
+        assertEquals(recorder.getCapacity(), PermissionFlightRecorder.roundCapacity(recorder.getCapacity()));
+        assertNotEquals(recorder.getCapacity(), PermissionFlightRecorder.roundCapacity(recorder.getCapacity() * 2));
+    }
+
+    @Test
+    public void eventsAreDumpedOldestFirstWithTheirResults() {
+        int camera = PermissionRegistry.intern(CAMERA);
+        PermissionFlightRecorder recorder = new PermissionFlightRecorder(8);
+
+        recorder.record(PermissionFlightRecorder.Event.CLASSIFIED, 7, camera, PermissionState.PREVIOUSLY_DENIED.ordinal());
+        recorder.record(PermissionFlightRecorder.Event.RATIONALE_DISMISSED, 7, camera, 1);
+        recorder.record(PermissionFlightRecorder.Event.RESULT, 7, new String[]{CAMERA},
+                new int[]{PermissionManager.PERMISSION_PERMANENTLY_DENIED});
+        recorder.record(PermissionFlightRecorder.Event.DELIVERED, PermissionFlightRecorder.NO_REQUEST, camera,
+                PermissionManager.PERMISSION_PERMANENTLY_DENIED);
+
+        String[] lines = dump(recorder).split("\n");
+        assertEquals(5, lines.length);
+        assertTrue(lines[1], lines[1].endsWith("CLASSIFIED " + CAMERA + " PREVIOUSLY_DENIED request=7"));
+        assertTrue(lines[2], lines[2].endsWith("RATIONALE_DISMISSED " + CAMERA + " CONTINUED request=7"));
+        assertTrue(lines[3], lines[3].endsWith("RESULT " + CAMERA + " PERMANENTLY_DENIED request=7"));
+        assertTrue(lines[4], lines[4].endsWith("DELIVERED " + CAMERA + " PERMANENTLY_DENIED"));
+    }
+
+    @Test
+    public void oldestEventsAreOverwrittenOnceFull() {
+        int camera = PermissionRegistry.intern(CAMERA);
+        PermissionFlightRecorder recorder = new PermissionFlightRecorder(4);
+
+        for (int requestId = 1; requestId <= 10; requestId++)
+            recorder.record(PermissionFlightRecorder.Event.REQUESTED, requestId, camera, 0);
+
+        String output = dump(recorder);
+        assertEquals(10, recorder.getRecordedCount());
+        assertTrue(output, output.startsWith("PermissionManager flight recorder: 4 of 10 events"));
+        assertFalse(output, output.contains("request=6\n"));
+        assertTrue(output, output.contains("request=7\n"));
+        assertTrue(output, output.contains("request=10\n"));
+    }
+}
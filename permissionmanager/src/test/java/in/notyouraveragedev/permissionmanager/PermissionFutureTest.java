@@ -0,0 +1,192 @@
+package in.notyouraveragedev.permissionmanager;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests of the {@link PermissionFuture}, run on the development machine (host).
+ */
+public class PermissionFutureTest {
+
+    private static final Executor DIRECT_EXECUTOR = Runnable::run;
+
+    @Test
+    public void getReturnsTheResult() throws Exception {
+        PermissionFuture<String> future = new PermissionFuture<>(DIRECT_EXECUTOR);
+
+        assertFalse(future.isDone());
+        assertTrue(future.complete("granted"));
+
+        assertTrue(future.isDone());
+        assertFalse(future.isCancelled());
+        assertEquals("granted", future.get());
+        assertEquals("granted", future.get(1, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void onlyTheFirstCompletionCounts() throws Exception {
+        PermissionFuture<String> future = new PermissionFuture<>(DIRECT_EXECUTOR);
+
+        assertTrue(future.complete("first"));
+        assertFalse(future.complete("second"));
+        assertFalse(future.completeExceptionally(new IllegalStateException()));
+        assertFalse(future.cancel(false));
+
+        assertEquals("first", future.get());
+    }
+
+    @Test
+    public void errorsAreReportedAsExecutionExceptions() throws InterruptedException {
+        PermissionFuture<String> future = new PermissionFuture<>(DIRECT_EXECUTOR);
+        IllegalStateException error = new IllegalStateException("failed");
+
+        future.completeExceptionally(error);
+
+        try {
+            future.get();
+            fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertSame(error, e.getCause());
+        }
+    }
+
+    @Test
+    public void getTimesOutWhilePending() throws Exception {
+        PermissionFuture<String> future = new PermissionFuture<>(DIRECT_EXECUTOR);
+
+        try {
+            future.get(1, TimeUnit.MILLISECONDS);
+            fail("Expected TimeoutException");
+        } catch (TimeoutException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void callbacksRunOnceCompletedInOrder() {
+        PermissionFuture<String> future = new PermissionFuture<>(DIRECT_EXECUTOR);
+        List<String> calls = new ArrayList<>();
+
+        future.whenComplete((result, error) -> calls.add("first " + result));
+        future.whenComplete((result, error) -> calls.add("second " + result));
+        assertTrue(calls.isEmpty());
+
+        future.complete("granted");
+        // Callbacks added after completion run right away
+        future.whenComplete((result, error) -> calls.add("late " + result));
+
+        assertEquals(3, calls.size());
+        assertEquals("first granted", calls.get(0));
+        assertEquals("second granted", calls.get(1));
+        assertEquals("late granted", calls.get(2));
+    }
+
+    @Test
+    public void callbacksRunOnTheirExecutor() {
+        List<Runnable> queued = new ArrayList<>();
+        PermissionFuture<String> future = new PermissionFuture<>(queued::add);
+        AtomicInteger calls = new AtomicInteger();
+
+        future.whenComplete((result, error) -> calls.incrementAndGet());
+        future.complete("granted");
+
+        assertEquals(0, calls.get());
+        assertEquals(1, queued.size());
+        queued.get(0).run();
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void cancelRunsTheCancellerOnce() {
+        PermissionFuture<String> future = new PermissionFuture<>(DIRECT_EXECUTOR);
+        AtomicInteger cancellations = new AtomicInteger();
+        future.setCanceller(cancellations::incrementAndGet);
+
+        assertTrue(future.cancel(false));
+        assertFalse(future.cancel(false));
+
+        assertTrue(future.isCancelled());
+        assertEquals(1, cancellations.get());
+        try {
+            future.get();
+            fail("Expected CancellationException");
+        } catch (CancellationException expected) {
+            // expected
+        } catch (Exception e) {
+            fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    public void thenApplyTransformsTheResult() throws Exception {
+        PermissionFuture<String> future = new PermissionFuture<>(DIRECT_EXECUTOR);
+        PermissionFuture<Integer> length = future.thenApply(String::length);
+
+        future.complete("granted");
+
+        assertEquals(Integer.valueOf(7), length.get());
+    }
+
+    @Test
+    public void thenApplyPropagatesErrors() throws InterruptedException {
+        PermissionFuture<String> future = new PermissionFuture<>(DIRECT_EXECUTOR);
+        PermissionFuture<Integer> failing = future.thenApply(result -> {
+            throw new IllegalArgumentException(result);
+        });
+        PermissionFuture<Integer> notApplied = new PermissionFuture<String>(DIRECT_EXECUTOR).thenApply(String::length);
+
+        future.complete("granted");
+
+        try {
+            failing.get();
+            fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        assertFalse(notApplied.isDone());
+    }
+
+    @Test
+    public void cancellingTheDependentCancelsTheSource() {
+        PermissionFuture<String> future = new PermissionFuture<>(DIRECT_EXECUTOR);
+        AtomicInteger cancellations = new AtomicInteger();
+        future.setCanceller(cancellations::incrementAndGet);
+        PermissionFuture<Integer> dependent = future.thenApply(String::length);
+
+        dependent.cancel(false);
+
+        assertTrue(future.isCancelled());
+        assertTrue(dependent.isDone());
+        assertEquals(1, cancellations.get());
+    }
+
+    @Test
+    public void cancelledSourceFailsTheDependent() throws InterruptedException {
+        PermissionFuture<String> future = new PermissionFuture<>(DIRECT_EXECUTOR);
+        List<Throwable> errors = new ArrayList<>();
+        future.thenApply(String::length).whenComplete((result, error) -> {
+            assertNull(result);
+            errors.add(error);
+        });
+
+        future.cancel(false);
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof CancellationException);
+    }
+}
@@ -0,0 +1,81 @@
+package in.notyouraveragedev.permissionmanager;
+
+import android.app.Activity;
+import android.content.Context;
+
+import org.junit.Test;
+
+import in.notyouraveragedev.permissionmanager.service.ContextCompatBackend;
+import in.notyouraveragedev.permissionmanager.service.PermissionBackend;
+import in.notyouraveragedev.permissionmanager.service.PermissionCheckerBackend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit tests of the {@link PermissionManagerCore}, run on the development machine (host).
+ */
+public class PermissionManagerCoreTest {
+
+    private static final String CAMERA = "android.permission.CAMERA";
+
+    @Test
+    public void cachesAreSharedPerSystemBackend() {
+        PermissionManagerCore core = new PermissionManagerCore();
+
+        assertSame(core.getPermissionStatusCache(new PermissionCheckerBackend()),
+                core.getPermissionStatusCache(new PermissionCheckerBackend()));
+        assertNotSame(core.getPermissionStatusCache(new PermissionCheckerBackend()),
+                core.getPermissionStatusCache(new ContextCompatBackend()));
+        assertNotSame(core.getPermissionStatusCache(new CustomBackend()),
+                core.getPermissionStatusCache(new CustomBackend()));
+    }
+
+    @Test
+    public void sharedCacheIsOnlyInvalidatedWhenReturningToTheForeground() {
+        PermissionManagerCore core = new PermissionManagerCore();
+        PermissionStatusCache cache = core.getPermissionStatusCache(new PermissionCheckerBackend());
+
+        core.onActivityStarted(null);
+        cache.put(CAMERA, PermissionManager.PERMISSION_GRANTED);
+
+        // Another activity of the application in foreground starts and the first one is resumed again
+        core.onActivityStarted(null);
+        core.onActivityStopped(null);
+        core.onActivityResumed(null);
+        assertEquals(Integer.valueOf(PermissionManager.PERMISSION_GRANTED), cache.get(CAMERA));
+
+        // The application goes to background and returns to the foreground
+        core.onActivityStopped(null);
+        core.onActivityStarted(null);
+        assertNull(cache.get(CAMERA));
+    }
+
+    /**
+     * A backend that does not query the Android Permission System
+     */
+    private static class CustomBackend implements PermissionBackend {
+
+        @Override
+        public int checkSelfPermission(Context context, String permission) {
+            return PermissionManager.PERMISSION_DENIED;
+        }
+
+        @Override
+        public int[] checkSelfPermissions(Context context, String[] permissions) {
+            return new int[permissions.length];
+        }
+
+        @Override
+        public boolean shouldShowRequestPermissionRationale(Activity activity, String permission) {
+            return false;
+        }
+
+        @Override
+        public void requestPermissions(Activity activity, String[] permissions, int requestCode) {
+            // Never answered
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package in.notyouraveragedev.permissionmanager;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests of the {@link PermissionStatusCache}, run on the development machine (host).
+ */
+public class PermissionStatusCacheTest {
+
+    private static final String CAMERA = "android.permission.CAMERA";
+    private static final String LOCATION = "android.permission.ACCESS_FINE_LOCATION";
+
+    @Test
+    public void cachedStatusesAreReturnedAndCountedAsHits() {
+        PermissionStatusCache cache = new PermissionStatusCache();
+        cache.put(CAMERA, PermissionManager.PERMISSION_GRANTED);
+
+        assertEquals(Integer.valueOf(PermissionManager.PERMISSION_GRANTED), cache.get(CAMERA));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    public void unknownStatusesAreCountedAsMisses() {
+        PermissionStatusCache cache = new PermissionStatusCache();
+        cache.put(CAMERA, PermissionManager.PERMISSION_DENIED);
+
+        assertNull(cache.get(LOCATION));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void invalidateDropsAllTheStatuses() {
+        PermissionStatusCache cache = new PermissionStatusCache();
+        cache.put(CAMERA, PermissionManager.PERMISSION_GRANTED);
+        cache.put(LOCATION, PermissionManager.PERMISSION_DENIED);
+
+        cache.invalidate();
+
+        assertNull(cache.get(CAMERA));
+        assertNull(cache.get(LOCATION));
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void latestStatusReplacesTheCachedOne() {
+        PermissionStatusCache cache = new PermissionStatusCache();
+        cache.put(CAMERA, PermissionManager.PERMISSION_DENIED);
+        cache.put(CAMERA, PermissionManager.PERMISSION_GRANTED);
+
+        assertEquals(Integer.valueOf(PermissionManager.PERMISSION_GRANTED), cache.get(CAMERA));
+    }
+}
@@ -0,0 +1,211 @@
+package in.notyouraveragedev.permissionmanager;
+
+import android.content.SharedPreferences;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests of the {@link SharedPreferencesPermissionStore}, run on the development machine (host).
+ */
+public class SharedPreferencesPermissionStoreTest {
+
+    private static final String CAMERA = "android.permission.CAMERA";
+    private static final String LOCATION = "android.permission.ACCESS_FINE_LOCATION";
+    private static final String CONTACTS = "android.permission.READ_CONTACTS";
+
+    private static final Executor DIRECT_EXECUTOR = Runnable::run;
+
+    @Test
+    public void flushWritesAllTheChangesInOneCommit() {
+        FakeSharedPreferences sharedPreferences = new FakeSharedPreferences();
+        sharedPreferences.values.put(CONTACTS, true);
+        SharedPreferencesPermissionStore store = new SharedPreferencesPermissionStore(sharedPreferences, DIRECT_EXECUTOR);
+
+        store.setPermanentlyDenied(CAMERA, true);
+        store.setPermanentlyDenied(LOCATION, true);
+        store.setPermanentlyDenied(CONTACTS, false);
+        store.flush();
+
+        assertEquals(1, sharedPreferences.commitCount);
+        assertEquals(2, sharedPreferences.values.size());
+        assertTrue(sharedPreferences.values.containsKey(CAMERA));
+        assertTrue(sharedPreferences.values.containsKey(LOCATION));
+    }
+
+    @Test
+    public void flushWithoutChangesDoesNotCommit() {
+        FakeSharedPreferences sharedPreferences = new FakeSharedPreferences();
+        SharedPreferencesPermissionStore store = new SharedPreferencesPermissionStore(sharedPreferences, DIRECT_EXECUTOR);
+
+        store.setPermanentlyDenied(CAMERA, false);
+        store.flush();
+
+        assertEquals(0, sharedPreferences.commitCount);
+    }
+
+    @Test
+    public void changesAreVisibleBeforeTheyAreFlushed() {
+        FakeSharedPreferences sharedPreferences = new FakeSharedPreferences();
+        sharedPreferences.values.put(CONTACTS, true);
+        List<Runnable> queued = new ArrayList<>();
+        SharedPreferencesPermissionStore store = new SharedPreferencesPermissionStore(sharedPreferences, queued::add);
+
+        assertTrue(store.isPermanentlyDenied(CONTACTS));
+        store.setPermanentlyDenied(CAMERA, true);
+        store.flush();
+
+        assertTrue(store.isPermanentlyDenied(CAMERA));
+        assertFalse(store.isPermanentlyDenied(LOCATION));
+        assertEquals(0, sharedPreferences.commitCount);
+        assertEquals(1, queued.size());
+    }
+
+    /**
+     * SharedPreferences kept in memory, counting the commits of its editors
+     */
+    private static class FakeSharedPreferences implements SharedPreferences {
+
+        private final Map<String, Object> values = new HashMap<>();
+        private int commitCount;
+
+        @Override
+        public Map<String, ?> getAll() {
+            return new HashMap<>(values);
+        }
+
+        @Override
+        public String getString(String key, String defValue) {
+            return values.containsKey(key) ? (String) values.get(key) : defValue;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Set<String> getStringSet(String key, Set<String> defValues) {
+            return values.containsKey(key) ? (Set<String>) values.get(key) : defValues;
+        }
+
+        @Override
+        public int getInt(String key, int defValue) {
+            return values.containsKey(key) ? (Integer) values.get(key) : defValue;
+        }
+
+        @Override
+        public long getLong(String key, long defValue) {
+            return values.containsKey(key) ? (Long) values.get(key) : defValue;
+        }
+
+        @Override
+        public float getFloat(String key, float defValue) {
+            return values.containsKey(key) ? (Float) values.get(key) : defValue;
+        }
+
+        @Override
+        public boolean getBoolean(String key, boolean defValue) {
+            return values.containsKey(key) ? (Boolean) values.get(key) : defValue;
+        }
+
+        @Override
+        public boolean contains(String key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public Editor edit() {
+            return new FakeEditor();
+        }
+
+        @Override
+        public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+            // Not needed
+        }
+
+        @Override
+        public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+            // Not needed
+        }
+
+        private class FakeEditor implements Editor {
+
+            private final Map<String, Object> changes = new HashMap<>();
+            private boolean clear;
+
+            @Override
+            public Editor putString(String key, String value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putStringSet(String key, Set<String> values) {
+                changes.put(key, values);
+                return this;
+            }
+
+            @Override
+            public Editor putInt(String key, int value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putLong(String key, long value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putFloat(String key, float value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putBoolean(String key, boolean value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor remove(String key) {
+                changes.put(key, null);
+                return this;
+            }
+
+            @Override
+            public Editor clear() {
+                clear = true;
+                return this;
+            }
+
+            @Override
+            public boolean commit() {
+                commitCount++;
+                if (clear)
+                    values.clear();
+                for (Map.Entry<String, Object> change : changes.entrySet()) {
+                    if (change.getValue() == null)
+                        values.remove(change.getKey());
+                    else
+                        values.put(change.getKey(), change.getValue());
+                }
+                return true;
+            }
+
+            @Override
+            public void apply() {
+                commit();
+            }
+        }
+    }
+}
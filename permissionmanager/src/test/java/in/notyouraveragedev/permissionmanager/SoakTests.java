@@ -0,0 +1,10 @@
+package in.notyouraveragedev.permissionmanager;
+
+/**
+ * JUnit category of the long running soak tests.
+ * <p>
+ * The soak tests are excluded from the unit test tasks by default, and are the only tests run
+ * when the soakTests property is set, e.g. {@code ./gradlew :permissionmanager:testDebugUnitTest -PsoakTests}
+ */
+public interface SoakTests {
+}
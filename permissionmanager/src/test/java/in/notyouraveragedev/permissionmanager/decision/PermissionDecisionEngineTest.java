@@ -0,0 +1,152 @@
+package in.notyouraveragedev.permissionmanager.decision;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import in.notyouraveragedev.permissionmanager.PermissionManager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests of the {@link PermissionDecisionEngine}, run on the development machine (host).
+ */
+public class PermissionDecisionEngineTest {
+
+    /**
+     * Facts answering yes to the given questions, recording every question asked
+     */
+    private static class FakeFacts implements PermissionFacts {
+        private final Set<Question> yes;
+        private final List<Question> asked = new ArrayList<>();
+
+        private FakeFacts(Question... yes) {
+            this.yes = yes.length == 0 ? EnumSet.noneOf(Question.class) : EnumSet.of(yes[0], yes);
+        }
+
+        @Override
+        public boolean answer(Question question, int index) {
+            asked.add(question);
+            return yes.contains(question);
+        }
+    }
+
+    @Test
+    public void statuses_matchThoseOfPermissionManager() {
+        assertEquals(PermissionManager.PERMISSION_GRANTED, PermissionDecisionEngine.STATUS_GRANTED);
+        assertEquals(PermissionManager.PERMISSION_DENIED, PermissionDecisionEngine.STATUS_DENIED);
+        assertEquals(PermissionManager.PERMISSION_PERMANENTLY_DENIED, PermissionDecisionEngine.STATUS_PERMANENTLY_DENIED);
+    }
+
+    @Test
+    public void classify_grantedPermission_isGrantedWithoutRationale() {
+        FakeFacts facts = new FakeFacts(PermissionFacts.Question.IS_GRANTED,
+                PermissionFacts.Question.SHOULD_SHOW_RATIONALE);
+        assertEquals(PermissionState.GRANTED, PermissionDecisionEngine.classify(facts, 0));
+        assertFalse(facts.asked.contains(PermissionFacts.Question.SHOULD_SHOW_RATIONALE));
+    }
+
+    @Test
+    public void classify_undeclaredPermission_isUndeclaredWithoutRationale() {
+        FakeFacts facts = new FakeFacts(PermissionFacts.Question.IS_UNDECLARED);
+        assertEquals(PermissionState.UNDECLARED, PermissionDecisionEngine.classify(facts, 0));
+        assertFalse(facts.asked.contains(PermissionFacts.Question.SHOULD_SHOW_RATIONALE));
+    }
+
+    @Test
+    public void classify_permissionWithRationale_isPreviouslyDenied() {
+        FakeFacts facts = new FakeFacts(PermissionFacts.Question.SHOULD_SHOW_RATIONALE,
+                PermissionFacts.Question.IS_STORED_PERMANENTLY_DENIED);
+        assertEquals(PermissionState.PREVIOUSLY_DENIED, PermissionDecisionEngine.classify(facts, 0));
+        assertFalse(facts.asked.contains(PermissionFacts.Question.IS_STORED_PERMANENTLY_DENIED));
+    }
+
+    @Test
+    public void classify_storedPermanentlyDeniedPermission_isPermanentlyDenied() {
+        FakeFacts facts = new FakeFacts(PermissionFacts.Question.IS_STORED_PERMANENTLY_DENIED);
+        assertEquals(PermissionState.PERMANENTLY_DENIED, PermissionDecisionEngine.classify(facts, 0));
+    }
+
+    @Test
+    public void classify_unknownPermission_isNew() {
+        assertEquals(PermissionState.NEW, PermissionDecisionEngine.classify(new FakeFacts(), 0));
+    }
+
+    @Test
+    public void decideCycle_followsPriorityOfRationaleThenRequestThenSettings() {
+        assertEquals(CycleAction.REPORT, PermissionDecisionEngine.decideCycle(false, false, false));
+        assertEquals(CycleAction.OPEN_SETTINGS, PermissionDecisionEngine.decideCycle(false, false, true));
+        assertEquals(CycleAction.REQUEST, PermissionDecisionEngine.decideCycle(false, true, false));
+        assertEquals(CycleAction.REQUEST, PermissionDecisionEngine.decideCycle(false, true, true));
+        assertEquals(CycleAction.SHOW_RATIONALE, PermissionDecisionEngine.decideCycle(true, false, false));
+        assertEquals(CycleAction.SHOW_RATIONALE, PermissionDecisionEngine.decideCycle(true, true, true));
+    }
+
+    @Test
+    public void resolveResult_skipped_isDeniedAndNotRecorded() {
+        ResultOutcome outcome = PermissionDecisionEngine.resolveResult(
+                new FakeFacts(PermissionFacts.Question.IS_SKIPPED, PermissionFacts.Question.IS_GRANTED), 0);
+        assertEquals(ResultOutcome.SKIPPED, outcome);
+        assertEquals(PermissionDecisionEngine.STATUS_DENIED, outcome.reportedStatus);
+        assertFalse(outcome.recordHistory);
+        assertFalse(outcome.storePermanentlyDenied);
+    }
+
+    @Test
+    public void resolveResult_undeclared_isDenied() {
+        ResultOutcome outcome = PermissionDecisionEngine.resolveResult(
+                new FakeFacts(PermissionFacts.Question.IS_UNDECLARED), 0);
+        assertEquals(ResultOutcome.UNDECLARED, outcome);
+        assertEquals(PermissionDecisionEngine.STATUS_DENIED, outcome.reportedStatus);
+    }
+
+    @Test
+    public void resolveResult_resolvedPermanentlyDenied_isStoredButNotRecorded() {
+        ResultOutcome outcome = PermissionDecisionEngine.resolveResult(
+                new FakeFacts(PermissionFacts.Question.IS_RESULT_PERMANENTLY_DENIED), 0);
+        assertEquals(ResultOutcome.RESOLVED_PERMANENTLY_DENIED, outcome);
+        assertTrue(outcome.storePermanentlyDenied);
+        assertFalse(outcome.recordHistory);
+    }
+
+    @Test
+    public void resolveResult_granted_isGrantedWithoutRationale() {
+        FakeFacts facts = new FakeFacts(PermissionFacts.Question.IS_GRANTED);
+        ResultOutcome outcome = PermissionDecisionEngine.resolveResult(facts, 0);
+        assertEquals(ResultOutcome.GRANTED, outcome);
+        assertEquals(PermissionDecisionEngine.STATUS_GRANTED, outcome.reportedStatus);
+        assertTrue(outcome.recordHistory);
+        assertFalse(facts.asked.contains(PermissionFacts.Question.SHOULD_SHOW_RATIONALE));
+    }
+
+    @Test
+    public void resolveResult_deniedWithRationale_isDenied() {
+        ResultOutcome outcome = PermissionDecisionEngine.resolveResult(
+                new FakeFacts(PermissionFacts.Question.SHOULD_SHOW_RATIONALE), 0);
+        assertEquals(ResultOutcome.DENIED, outcome);
+        assertTrue(outcome.recordHistory);
+        assertFalse(outcome.storePermanentlyDenied);
+    }
+
+    @Test
+    public void resolveResult_deniedWithoutRationale_isPermanentlyDenied() {
+        ResultOutcome outcome = PermissionDecisionEngine.resolveResult(new FakeFacts(), 0);
+        assertEquals(ResultOutcome.PERMANENTLY_DENIED, outcome);
+        assertEquals(PermissionDecisionEngine.STATUS_PERMANENTLY_DENIED, outcome.reportedStatus);
+        assertTrue(outcome.storePermanentlyDenied);
+        assertTrue(outcome.recordHistory);
+    }
+
+    @Test
+    public void resolveResult_classifiedPermanentlyDenied_isPermanentlyDeniedWithoutRationale() {
+        FakeFacts facts = new FakeFacts(PermissionFacts.Question.WAS_CLASSIFIED_PERMANENTLY_DENIED,
+                PermissionFacts.Question.SHOULD_SHOW_RATIONALE);
+        assertEquals(ResultOutcome.PERMANENTLY_DENIED, PermissionDecisionEngine.resolveResult(facts, 0));
+        assertFalse(facts.asked.contains(PermissionFacts.Question.SHOULD_SHOW_RATIONALE));
+    }
+}
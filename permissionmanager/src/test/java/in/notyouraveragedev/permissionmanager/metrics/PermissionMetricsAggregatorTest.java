@@ -0,0 +1,110 @@
+package in.notyouraveragedev.permissionmanager.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests of the {@link PermissionMetricsAggregator} and {@link LatencyHistogram}, run on the development machine (host).
+ */
+public class PermissionMetricsAggregatorTest {
+
+    private static final String CAMERA = "android.permission.CAMERA";
+    private static final String LOCATION = "android.permission.ACCESS_FINE_LOCATION";
+
+    private static final int GRANTED = 0;
+    private static final int DENIED = -1;
+
+    @Test
+    public void histogramBucketsLatenciesByPowerOfTwoMicros() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(500);
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(3));
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(1000));
+
+        assertEquals(3, histogram.getCount());
+        assertEquals(1, histogram.getBucketCount(0));
+        assertEquals(1, histogram.getBucketCount(2));
+        assertEquals(1, histogram.getBucketCount(10));
+        assertEquals(4, histogram.getPercentileMicros(50));
+        assertEquals(1024, histogram.getPercentileMicros(100));
+    }
+
+    @Test
+    public void histogramClampsLongLatenciesToTheLastBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.DAYS.toNanos(1));
+
+        assertEquals(1, histogram.getBucketCount(LatencyHistogram.BUCKET_COUNT - 1));
+    }
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getMeanNanos());
+        assertEquals(0, histogram.getPercentileMicros(99));
+    }
+
+    @Test
+    public void grantsAfterContinuingFromTheRationaleAreAttributedToIt() {
+        PermissionMetricsAggregator aggregator = new PermissionMetricsAggregator();
+        String[] permissions = {CAMERA, LOCATION};
+
+        aggregator.onRationaleShown(1, permissions);
+        aggregator.onRationaleDismissed(1, permissions, true, 1000);
+        aggregator.onSystemPromptCompleted(1, permissions, new int[]{GRANTED, DENIED}, 1000);
+
+        aggregator.onRationaleShown(2, permissions);
+        aggregator.onRationaleDismissed(2, permissions, false, 1000);
+
+        aggregator.onSystemPromptCompleted(3, permissions, new int[]{GRANTED, GRANTED}, 1000);
+
+        PermissionStats camera = aggregator.getStats(CAMERA);
+        assertEquals(2, camera.getRationaleShownCount());
+        assertEquals(1, camera.getRationaleContinuedCount());
+        assertEquals(1, camera.getRationaleDeclinedCount());
+        assertEquals(1, camera.getRationaleGrantCount());
+        assertEquals(0.5, camera.getRationaleConversionRate(), 0);
+        assertEquals(2, camera.getSystemPromptGrantCount());
+        assertEquals(0, aggregator.getStats(LOCATION).getRationaleGrantCount());
+    }
+
+    @Test
+    public void cancelledRequestsAreForgotten() {
+        PermissionMetricsAggregator aggregator = new PermissionMetricsAggregator();
+        String[] permissions = {CAMERA};
+
+        aggregator.onRationaleDismissed(1, permissions, true, 1000);
+        aggregator.onRequestCancelled(1);
+        // A later request reusing the id was not continued from the rationale
+        aggregator.onSystemPromptCompleted(1, permissions, new int[]{GRANTED}, 1000);
+
+        PermissionStats camera = aggregator.getStats(CAMERA);
+        assertEquals(1, camera.getRationaleContinuedCount());
+        assertEquals(1, camera.getSystemPromptGrantCount());
+        assertEquals(0, camera.getRationaleGrantCount());
+    }
+
+    @Test
+    public void eventsAreCountedPerPermission() {
+        PermissionMetricsAggregator aggregator = new PermissionMetricsAggregator();
+
+        aggregator.onClassified(new String[]{CAMERA, LOCATION}, 2000);
+        aggregator.onSettingsRoundTripCompleted(4, new String[]{CAMERA}, new int[]{GRANTED}, 5000);
+        aggregator.onDelivered(new String[]{CAMERA}, 3000);
+        aggregator.onDelivered(new String[]{CAMERA}, 5000);
+
+        PermissionStats camera = aggregator.getStats(CAMERA);
+        assertEquals(1, camera.getClassificationCount());
+        assertEquals(1, camera.getSettingsGrantCount());
+        assertEquals(2, camera.getDeliveryCount());
+        assertEquals(4000, camera.getDeliveryLatency().getMeanNanos());
+        assertEquals(0, aggregator.getStats(LOCATION).getDeliveryCount());
+        assertNull(aggregator.getStats("android.permission.RECORD_AUDIO"));
+        assertEquals(2, aggregator.getPermissions().size());
+    }
+}
@@ -0,0 +1,122 @@
+package in.notyouraveragedev.permissionmanager.registry;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests of the {@link PermissionSet}, run on the development machine (host).
+ */
+public class PermissionSetTest {
+
+    private static final String CAMERA = "android.permission.CAMERA";
+    private static final String LOCATION = "android.permission.ACCESS_FINE_LOCATION";
+    private static final String CONTACTS = "android.permission.READ_CONTACTS";
+    private static final String MICROPHONE = "android.permission.RECORD_AUDIO";
+
+    @Test
+    public void addReportsWhetherThePermissionIsNew() {
+        PermissionSet permissionSet = new PermissionSet();
+
+        assertTrue(permissionSet.add(CAMERA));
+        assertFalse(permissionSet.add(CAMERA));
+        assertTrue(permissionSet.contains(CAMERA));
+        assertFalse(permissionSet.contains(LOCATION));
+        assertEquals(1, permissionSet.size());
+    }
+
+    @Test
+    public void addGrowsTheSetBeyondTheInternedPermissions() {
+        PermissionSet permissionSet = new PermissionSet();
+        int permissionId = PermissionRegistry.intern("test.permission.GROWTH_" + System.nanoTime()) + 200;
+
+        assertTrue(permissionSet.add(permissionId));
+        assertTrue(permissionSet.contains(permissionId));
+        assertEquals(permissionId, permissionSet.nextPermissionId(0));
+    }
+
+    @Test
+    public void removeReportsWhetherThePermissionWasInTheSet() {
+        PermissionSet permissionSet = PermissionSet.of(CAMERA, LOCATION);
+
+        assertTrue(permissionSet.remove(CAMERA));
+        assertFalse(permissionSet.remove(CAMERA));
+        assertFalse(permissionSet.remove("test.permission.NEVER_INTERNED"));
+        assertFalse(permissionSet.contains(CAMERA));
+        assertTrue(permissionSet.contains(LOCATION));
+    }
+
+    @Test
+    public void setAlgebraIsAppliedInPlace() {
+        PermissionSet union = PermissionSet.of(CAMERA, LOCATION);
+        union.addAll(PermissionSet.of(CONTACTS));
+        assertEquals(PermissionSet.of(CAMERA, LOCATION, CONTACTS), union);
+
+        PermissionSet intersection = PermissionSet.of(CAMERA, LOCATION, CONTACTS);
+        intersection.retainAll(PermissionSet.of(LOCATION, MICROPHONE));
+        assertEquals(PermissionSet.of(LOCATION), intersection);
+
+        PermissionSet difference = PermissionSet.of(CAMERA, LOCATION, CONTACTS);
+        difference.removeAll(PermissionSet.of(LOCATION));
+        assertEquals(PermissionSet.of(CAMERA, CONTACTS), difference);
+
+        assertTrue(union.containsAll(difference));
+        assertFalse(difference.containsAll(union));
+        assertTrue(union.intersects(intersection));
+        assertFalse(difference.intersects(intersection));
+    }
+
+    @Test
+    public void copyFromReplacesTheContents() {
+        PermissionSet permissionSet = PermissionSet.of(CAMERA, MICROPHONE);
+        PermissionSet source = PermissionSet.of(LOCATION);
+
+        permissionSet.copyFrom(source);
+
+        assertEquals(source, permissionSet);
+        assertEquals(source.hashCode(), permissionSet.hashCode());
+        // The copy does not share the bitset of the source
+        source.add(CONTACTS);
+        assertFalse(permissionSet.contains(CONTACTS));
+    }
+
+    @Test
+    public void iterationVisitsEveryPermissionOnce() {
+        PermissionSet permissionSet = PermissionSet.of(CONTACTS, CAMERA, LOCATION);
+
+        List<String> permissions = new ArrayList<>();
+        for (int id = permissionSet.nextPermissionId(0); id >= 0; id = permissionSet.nextPermissionId(id + 1))
+            permissions.add(PermissionRegistry.nameOf(id));
+
+        assertEquals(3, permissions.size());
+        assertTrue(permissions.contains(CAMERA));
+        assertTrue(permissions.contains(LOCATION));
+        assertTrue(permissions.contains(CONTACTS));
+    }
+
+    @Test
+    public void toArrayKeepsTheGivenOrder() {
+        String[] order = {MICROPHONE, CONTACTS, CAMERA, LOCATION};
+        PermissionSet permissionSet = PermissionSet.of(LOCATION, CAMERA, MICROPHONE);
+
+        assertArrayEquals(new String[]{MICROPHONE, CAMERA, LOCATION}, permissionSet.toArray(order));
+        assertArrayEquals(new String[]{CAMERA}, permissionSet.toArray(new String[]{CONTACTS, CAMERA}));
+    }
+
+    @Test
+    public void clearEmptiesTheSet() {
+        PermissionSet permissionSet = PermissionSet.of(CAMERA, LOCATION);
+
+        permissionSet.clear();
+
+        assertTrue(permissionSet.isEmpty());
+        assertEquals(0, permissionSet.toArray().length);
+        assertEquals(new PermissionSet(), permissionSet);
+    }
+}
@@ -0,0 +1,81 @@
+package in.notyouraveragedev.permissionmanager.responses;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import in.notyouraveragedev.permissionmanager.PermissionManager;
+import in.notyouraveragedev.permissionmanager.registry.PermissionSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests of the {@link PermissionResults}, run on the development machine (host).
+ */
+public class PermissionResultsTest {
+
+    private static final String CAMERA = "android.permission.CAMERA";
+    private static final String LOCATION = "android.permission.ACCESS_FINE_LOCATION";
+    private static final String CONTACTS = "android.permission.READ_CONTACTS";
+
+    private static PermissionResults results() {
+        return new PermissionResults(new String[]{CAMERA, LOCATION, CONTACTS}, new int[]{
+                PermissionManager.PERMISSION_GRANTED,
+                PermissionManager.PERMISSION_DENIED,
+                PermissionManager.PERMISSION_GRANTED});
+    }
+
+    @Test
+    public void permissionsAndStatusesAreReadByIndex() {
+        PermissionResults results = results();
+
+        assertEquals(3, results.size());
+        assertEquals(LOCATION, results.getPermission(1));
+        assertEquals(PermissionManager.PERMISSION_DENIED, results.getPermissionStatus(1));
+    }
+
+    @Test
+    public void statusOfLooksUpThePermission() {
+        PermissionResults results = results();
+
+        assertEquals(PermissionManager.PERMISSION_GRANTED, results.statusOf(CONTACTS));
+        assertEquals(PermissionResults.STATUS_NOT_FOUND, results.statusOf("android.permission.RECORD_AUDIO"));
+    }
+
+    @Test
+    public void collectPermissionsAddsOnlyTheMatchingStatus() {
+        PermissionSet grantedPermissions = new PermissionSet();
+
+        results().collectPermissions(PermissionManager.PERMISSION_GRANTED, grantedPermissions);
+
+        assertEquals(PermissionSet.of(CAMERA, CONTACTS), grantedPermissions);
+    }
+
+    @Test
+    public void listViewCreatesEachResponseOnce() {
+        List<PermissionResponse> responses = results().asList();
+
+        assertEquals(3, responses.size());
+        PermissionResponse response = responses.get(2);
+        assertEquals(CONTACTS, response.getPermission());
+        assertEquals(PermissionManager.PERMISSION_GRANTED, response.getPermissionStatus());
+        assertSame(response, responses.get(2));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void listViewIsUnmodifiable() {
+        results().asList().add(new PermissionResponse(CAMERA, PermissionManager.PERMISSION_DENIED));
+    }
+
+    @Test
+    public void mismatchedArraysAreRejected() {
+        try {
+            new PermissionResults(new String[]{CAMERA, LOCATION}, new int[]{PermissionManager.PERMISSION_GRANTED});
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+}